@@ -1,11 +1,15 @@
 package org.pursuemoon.solvetsp;
 
+import org.pursuemoon.solvetsp.ga.IslandModel;
 import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.DataExtractor;
+import org.pursuemoon.solvetsp.util.InstancePrefetcher;
 
+import java.io.File;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class Application {
 
@@ -25,6 +29,43 @@ public class Application {
     private static final int DEFAULT_LEAST_BEST_STAY_GENERATION = 1000;
     private static final double DEFAULT_MAX_FITNESS_DIFFERENCE_BETWEEN_BEST_AND_WORST = 1e-7;
 
+    /** The default number of instances prefetched by {@code testAll}; 0 means the number of processors. */
+    private static final int DEFAULT_PREFETCH = 0;
+    private static final long DEFAULT_MEMORY_BUDGET_MB = InstancePrefetcher.DEFAULT_MEMORY_BUDGET >> 20;
+
+    /** The default number of threads producing offspring of each population; 1 means the solver thread only. */
+    private static final int DEFAULT_PARALLELISM = 1;
+
+    /** The default number of islands evolving in their own threads; 1 means a single population. */
+    private static final int DEFAULT_ISLAND_NUMBER = 1;
+    private static final int DEFAULT_MIGRATION_INTERVAL = 50;
+    private static final int DEFAULT_MIGRATION_SIZE = 2;
+    private static final IslandModel.Topology DEFAULT_TOPOLOGY = IslandModel.Topology.RING;
+
+    /** If solutions of each population are kept in a packed population by default. */
+    private static final boolean DEFAULT_PACKED = false;
+
+    /** If solutions of the same tour as another one are rejected by each population by default. */
+    private static final boolean DEFAULT_DISTINCT = false;
+
+    /** The default number of offspring produced by each step of the steady-state mode; 0 means it's not used. */
+    private static final int DEFAULT_STEADY_STATE_SIZE = 0;
+
+    /** The default number of latest calls of each operator by which its chance is adapted; 0 means static chances. */
+    private static final int DEFAULT_ADAPTIVE_WINDOW = 0;
+
+    /** By default, populations stop by their generations only, with no wall-clock, target or stagnation limit. */
+    private static final long DEFAULT_TIMEOUT_MILLIS = 0;
+    private static final double DEFAULT_TARGET_QUALITY = -1;
+    private static final long DEFAULT_STAGNANT_MILLIS = 0;
+
+    /** By default, no checkpoint is written, and when it's written, it's every so many generations. */
+    private static final String DEFAULT_CHECKPOINT_DIR = "";
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 100;
+
+    /** By default, no seed is designated, so that each run draws different random numbers. */
+    private static final Long DEFAULT_SEED = null;
+
     public static void main(String[] args) {
         int size = args.length;
         if (size == 0) {
@@ -46,6 +87,10 @@ public class Application {
         int bestQueueSize = DEFAULT_BEST_QUEUE_SIZE;
         int leastBestStayGeneration = DEFAULT_LEAST_BEST_STAY_GENERATION;
         double maxFitnessDifferenceBetweenBestAndWorst = DEFAULT_MAX_FITNESS_DIFFERENCE_BETWEEN_BEST_AND_WORST;
+        int prefetch = DEFAULT_PREFETCH;
+        long memoryBudgetMb = DEFAULT_MEMORY_BUDGET_MB;
+        int parallelism = DEFAULT_PARALLELISM;
+        SolverOptions options = new SolverOptions();
 
         for (int i = 0; i < size; ++i) {
             String s = args[i];
@@ -173,18 +218,159 @@ public class Application {
                 }
                 continue;
             }
+            if (s.equals("--prefetch")) {
+                try {
+                    prefetch = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--budget")) {
+                try {
+                    memoryBudgetMb = Long.parseLong(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--parallel")) {
+                try {
+                    parallelism = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--islands")) {
+                try {
+                    options.islandNumber = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--interval")) {
+                try {
+                    options.migrationInterval = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--migrants")) {
+                try {
+                    options.migrationSize = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--topology")) {
+                try {
+                    options.topology = IslandModel.Topology.valueOf(args[++i].toUpperCase().replace('-', '_'));
+                } catch (IllegalArgumentException ie) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--packed")) {
+                options.packed = Boolean.parseBoolean(args[++i]);
+                continue;
+            }
+            if (s.equals("--distinct")) {
+                options.distinct = Boolean.parseBoolean(args[++i]);
+                continue;
+            }
+            if (s.equals("--steady")) {
+                try {
+                    options.steadyStateSize = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--adaptive")) {
+                try {
+                    options.adaptiveWindow = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--timeout")) {
+                try {
+                    options.timeoutMillis = Long.parseLong(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--target")) {
+                try {
+                    options.targetQuality = Double.parseDouble(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--stagnant")) {
+                try {
+                    options.stagnantMillis = Long.parseLong(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--checkpoint")) {
+                options.checkpointDir = args[++i];
+                continue;
+            }
+            if (s.equals("--checkpointgen")) {
+                try {
+                    options.checkpointInterval = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
+            if (s.equals("--seed")) {
+                try {
+                    options.seed = Long.parseLong(args[++i]);
+                } catch (NumberFormatException ne) {
+                    String para = s + " " + args[i];
+                    wrongParaHalt(para);
+                }
+                continue;
+            }
             wrongParaHalt(s);
         }
+        /* Offspring are produced by a pool shared by all solvers if more than one thread is designated. */
+        options.forkJoinPool = (parallelism > 1 ? new ForkJoinPool(parallelism) : null);
         if (index.equals("all")) {
             testAll(calTime, visible, populationSize, crossoverProbability, mutationProbability,
                     topX, topY, topZ, leastGenerationNumber, limitGenerationNumber,
-                    bestQueueSize, leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst);
+                    bestQueueSize, leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst,
+                    prefetch, memoryBudgetMb, options);
         } else {
             try {
                 int kase = Integer.parseInt(index);
                 testCase(kase, calTime, visible, populationSize, crossoverProbability, mutationProbability,
                         topX, topY, topZ, leastGenerationNumber, limitGenerationNumber,
-                        bestQueueSize, leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst);
+                        bestQueueSize, leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst, options);
             } catch (NumberFormatException ne) {
                 String para = "--test " + index;
                 wrongParaHalt(para);
@@ -237,6 +423,63 @@ public class Application {
                 "                   difference between the fitness of best individual\n" +
                 "                   and that of the worst one should not be greater\n" +
                 "                   than this value. Default value is 1e-7.\n";
+        help += "--prefetch Number    Designate the max number of cases loaded ahead\n" +
+                "                   in background when all cases are tested.\n" +
+                "                   Default value is the number of processors.\n";
+        help += "--budget Number      Designate the memory budget in MB of cases\n" +
+                "                   loaded ahead but not yet solved. Default value\n" +
+                "                   is 512.\n";
+        help += "--parallel Number    Designate the number of threads producing\n" +
+                "                   offspring of each population in parallel.\n" +
+                "                   Default value is 1.\n";
+        help += "--islands Number     Designate the number of populations evolving\n" +
+                "                   as islands in their own threads, which exchange\n" +
+                "                   their best individuals. Default value is 1.\n";
+        help += "--interval Number    Designate the number of generations between\n" +
+                "                   migrations of islands. Default value is 50.\n";
+        help += "--migrants Number    Designate the number of best individuals sent\n" +
+                "                   by each island on each migration. Default value\n" +
+                "                   is 2.\n";
+        help += "--topology Name      Designate the topology of islands, which is\n" +
+                "                   ring, fully-connected or random. Default value\n" +
+                "                   is ring.\n";
+        help += "--packed Boolean     Designate if all individuals of each population\n" +
+                "                   are packed into one array. Default value is\n" +
+                "                   false.\n";
+        help += "--distinct Boolean   Designate if individuals of the same tour as\n" +
+                "                   another one are rejected before selection, so\n" +
+                "                   that each population is kept diverse. Default\n" +
+                "                   value is false.\n";
+        help += "--steady Number      Designate the number of offspring produced by\n" +
+                "                   each step of the steady-state mode, in which\n" +
+                "                   they replace the worst individuals in place.\n" +
+                "                   Default value is 0, which means the whole\n" +
+                "                   population is replaced every generation.\n";
+        help += "--adaptive Number    Designate the number of latest calls of each\n" +
+                "                   operator by which its chance is adapted to the\n" +
+                "                   improvement it makes per nanosecond. Default\n" +
+                "                   value is 0, which means chances are static.\n";
+        help += "--timeout Number     Designate the milliseconds of evolution after\n" +
+                "                   which it stops, whatever the generations are.\n" +
+                "                   Default value is 0, which means no limit.\n";
+        help += "--target Number      Designate the quality in percent above the\n" +
+                "                   optimal solution at which evolution stops.\n" +
+                "                   Default value is -1, which means no target.\n";
+        help += "--stagnant Number    Designate the milliseconds without improvement\n" +
+                "                   of the best individual after which evolution\n" +
+                "                   stops. Default value is 0, which means no limit.\n";
+        help += "--checkpoint Path    Designate the directory in which checkpoints of\n" +
+                "                   each population are written, and from which it\n" +
+                "                   resumes if it was stopped. Default value is\n" +
+                "                   empty, which means no checkpoint.\n";
+        help += "--checkpointgen Number\n" +
+                "                   Designate the number of generations between\n" +
+                "                   checkpoints. Default value is 100.\n";
+        help += "--seed Number        Designate the seed of random numbers, so that\n" +
+                "                   each run of a test case evolves the same way,\n" +
+                "                   except with --islands, --adaptive, --timeout or\n" +
+                "                   --stagnant, which depend on timing. Default\n" +
+                "                   value is none, which means random.\n";
         help += "****************** Above is all of optional parameters ******************\n";
         help += "You can type the following command to start a test case:\n" +
                 "java -jar JarArchiveName.jar --test CaseNumber [Parameters]";
@@ -259,17 +502,23 @@ public class Application {
                                 int populationSize, double crossoverProbability, double mutationProbability,
                                 int topX, int topY, int topZ,
                                 int leastGenerationNumber, int limitGenerationNumber,
-                                int bestQueueSize, int leastBestStayGeneration, double maxFitnessDifferenceBetweenBestAndWorst) {
+                                int bestQueueSize, int leastBestStayGeneration, double maxFitnessDifferenceBetweenBestAndWorst,
+                                int prefetch, long memoryBudgetMb, SolverOptions options) {
         DataExtractor dataExtractor = DataExtractor.instance;
         int coreNum = Runtime.getRuntime().availableProcessors();
         ExecutorService pool =  Executors.newFixedThreadPool(coreNum);
+        /* Cases are loaded in background, and each solver takes whichever one is ready first. */
+        InstancePrefetcher prefetcher = InstancePrefetcher.ofAll(dataExtractor,
+                (prefetch > 0 ? prefetch : coreNum), Math.max(memoryBudgetMb, 1) << 20);
         int size = dataExtractor.getTestDirList().size();
         for (int i = 0; i < size; ++i) {
-            TspSolver tspSolver = new TspSolver(i, calTime, visible,
+            TspSolver tspSolver = new TspSolver(-1, calTime, visible,
                     populationSize, crossoverProbability, mutationProbability,
                     topX, topY, topZ,
                     leastGenerationNumber, limitGenerationNumber,
                     bestQueueSize, leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst);
+            tspSolver.setInstanceSupplier(prefetcher::take);
+            options.configure(tspSolver);
             pool.execute(tspSolver);
         }
     }
@@ -278,7 +527,8 @@ public class Application {
                                  int populationSize, double crossoverProbability, double mutationProbability,
                                  int topX, int topY, int topZ,
                                  int leastGenerationNumber, int limitGenerationNumber,
-                                 int bestQueueSize, int leastBestStayGeneration, double maxFitnessDifferenceBetweenBestAndWorst) {
+                                 int bestQueueSize, int leastBestStayGeneration, double maxFitnessDifferenceBetweenBestAndWorst,
+                                 SolverOptions options) {
         int size = DataExtractor.instance.getTestDirList().size();
         if (index >= size) {
             System.out.println("No such test case exists.");
@@ -290,6 +540,7 @@ public class Application {
                     topX, topY, topZ,
                     leastGenerationNumber, limitGenerationNumber,
                     bestQueueSize, leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst);
+            options.configure(tspSolver);
             Thread thread = new Thread(tspSolver);
             thread.start();
             thread.join();
@@ -297,5 +548,43 @@ public class Application {
             e.printStackTrace();
         }
     }
-}
 
+    /**
+     * Options of each solver which are set after it's constructed, the same for {@code testAll} and
+     * {@code testCase}.
+     */
+    private static final class SolverOptions {
+
+        private ForkJoinPool forkJoinPool;
+        private int islandNumber = DEFAULT_ISLAND_NUMBER;
+        private int migrationInterval = DEFAULT_MIGRATION_INTERVAL;
+        private int migrationSize = DEFAULT_MIGRATION_SIZE;
+        private IslandModel.Topology topology = DEFAULT_TOPOLOGY;
+        private boolean packed = DEFAULT_PACKED;
+        private boolean distinct = DEFAULT_DISTINCT;
+        private int steadyStateSize = DEFAULT_STEADY_STATE_SIZE;
+        private int adaptiveWindow = DEFAULT_ADAPTIVE_WINDOW;
+        private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        private double targetQuality = DEFAULT_TARGET_QUALITY;
+        private long stagnantMillis = DEFAULT_STAGNANT_MILLIS;
+        private String checkpointDir = DEFAULT_CHECKPOINT_DIR;
+        private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        private Long seed = DEFAULT_SEED;
+
+        private void configure(TspSolver tspSolver) {
+            tspSolver.setForkJoinPool(forkJoinPool);
+            tspSolver.setIslandModel(islandNumber, migrationInterval, migrationSize, topology);
+            tspSolver.setPackedPopulation(packed);
+            tspSolver.setDuplicateRejection(distinct);
+            tspSolver.setSteadyState(steadyStateSize);
+            tspSolver.setAdaptiveOperators(adaptiveWindow);
+            tspSolver.setStopLimits(timeoutMillis, targetQuality, stagnantMillis);
+            if (!checkpointDir.isEmpty()) {
+                tspSolver.setCheckpoint(new File(checkpointDir), checkpointInterval);
+            }
+            if (seed != null) {
+                tspSolver.setSeed(seed);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.pursuemoon.solvetsp.util.AliasTable;
+
+import java.util.Random;
+
+/**
+ * Chances of operators of the same kind, adapted to the improvement of tour length each operator makes per
+ * nanosecond it takes, over a sliding window of its latest calls.
+ *
+ * Each operator keeps at least {@code FLOOR} of its static chance, so that an operator which did badly for a while
+ * is still tried, and the rest is shared in proportion to the rates of improvement. An operator not called yet is
+ * taken as good as the average of the others. Calls are recorded by tasks which may run in parallel, and the
+ * chances are updated between generations, after which operators are sampled from an alias table in O(1).
+ */
+final class AdaptiveChances {
+
+    /** The share of the static chance which each operator keeps. */
+    static final double FLOOR = 0.1;
+
+    private final double[] staticChances;
+    private final int window;
+
+    /* The following arrays are guarded by this object. */
+
+    /** The improvements and times of the latest calls of each operator, in ring buffers. */
+    private final double[][] improvements;
+    private final long[][] nanos;
+
+    /** The number of calls of each operator recorded, of which the latest {@code window} are kept. */
+    private final long[] calls;
+
+    private volatile double[] chances;
+    private volatile AliasTable aliasTable;
+
+    /**
+     * Constructor.
+     *
+     * @param staticChances the static chances of operators by their weights
+     * @param window the number of latest calls of each operator taken into account
+     */
+    AdaptiveChances(double[] staticChances, int window) {
+        if (window <= 0) {
+            String m = String.format("Illegal adaptive chances: window = %d", window);
+            throw new RuntimeException(m);
+        }
+        int n = staticChances.length;
+        this.staticChances = staticChances.clone();
+        this.window = window;
+        this.improvements = new double[n][window];
+        this.nanos = new long[n][window];
+        this.calls = new long[n];
+        this.chances = this.staticChances.clone();
+        this.aliasTable = new AliasTable(this.chances);
+    }
+
+    /**
+     * Records a call of an operator.
+     *
+     * @param operator the index of the operator
+     * @param improvement the improvement of tour length made by the call, which is not negative
+     * @param time the time the call took in nanoseconds
+     */
+    synchronized void record(int operator, double improvement, long time) {
+        int slot = (int) (calls[operator]++ % window);
+        improvements[operator][slot] = improvement;
+        nanos[operator][slot] = Math.max(time, 1);
+    }
+
+    /** Updates the chances by the calls recorded, which is called between generations. */
+    synchronized void update() {
+        int n = staticChances.length;
+        double[] rates = new double[n];
+        double sum = 0;
+        int known = 0;
+        for (int i = 0; i < n; ++i) {
+            int count = (int) Math.min(calls[i], window);
+            if (count == 0) {
+                rates[i] = Double.NaN;
+                continue;
+            }
+            double improvement = 0;
+            long time = 0;
+            for (int j = 0; j < count; ++j) {
+                improvement += improvements[i][j];
+                time += nanos[i][j];
+            }
+            rates[i] = improvement / time;
+            sum += rates[i];
+            known++;
+        }
+        if (known == 0 || sum <= 0) {
+            chances = staticChances.clone();
+        } else {
+            double average = sum / known;
+            double[] adapted = new double[n];
+            for (int i = 0; i < n; ++i) {
+                if (Double.isNaN(rates[i])) {
+                    rates[i] = average;
+                    sum += average;
+                }
+            }
+            for (int i = 0; i < n; ++i) {
+                adapted[i] = FLOOR * staticChances[i] + (1 - FLOOR) * rates[i] / sum;
+            }
+            chances = adapted;
+        }
+        aliasTable = new AliasTable(chances);
+    }
+
+    /**
+     * Samples an operator by the current chances.
+     *
+     * @param random the random stream
+     * @return the index of the operator
+     */
+    int sample(Random random) {
+        return aliasTable.sample(random);
+    }
+
+    /**
+     * Gets the current chances of operators.
+     *
+     * @return a copy of the chances
+     */
+    double[] getChances() {
+        return chances.clone();
+    }
+}
@@ -0,0 +1,38 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.pursuemoon.ai.ga.Population;
+
+/**
+ * Population of ga-tsp which could be watched and cancelled by other threads while evolving, so that a caller
+ * with a deadline could take the best solution by now instead of waiting for the stop condition.
+ */
+public interface AnytimePopulation extends Population<Solution> {
+
+    /**
+     * Adds a listener notified after each generation, which could be done while evolving.
+     *
+     * @param listener the listener
+     */
+    void addGenerationListener(GenerationListener listener);
+
+    /**
+     * Sets the token by which the evolution is cancelled between generations.
+     *
+     * @param cancellationToken the token, or {@code null} if the evolution can't be cancelled
+     */
+    void setCancellationToken(CancellationToken cancellationToken);
+
+    /**
+     * Gets the best solution that ever appeared, which could be called by any thread while evolving.
+     *
+     * @return the best solution by now, or {@code null} if the population isn't initialized
+     */
+    Solution getBestSoFar();
+
+    /**
+     * Gets the current generation number.
+     *
+     * @return the generation number
+     */
+    int getGen();
+}
@@ -0,0 +1,19 @@
+package org.pursuemoon.solvetsp.ga;
+
+/**
+ * Token by which another thread cancels the evolution of populations, which stop between generations once it's
+ * cancelled, as if their stop condition were met. A token can't be reset, so a new one is needed to evolve again.
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /** Cancels the evolution of populations which hold this token. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
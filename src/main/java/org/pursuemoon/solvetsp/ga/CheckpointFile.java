@@ -0,0 +1,473 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.apache.log4j.Logger;
+import org.pursuemoon.solvetsp.util.RandomStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary checkpoint file of a solution group, from which its evolution could be resumed.
+ *
+ * The file begins with a magic number, the format version, the name of the TSP instance and the length of genes,
+ * followed by frames, each of which is the state of the solution group after a generation: the generation
+ * counters, the elapsed time, the state of its random stream, and its solutions and the solutions
+ * of its best queues by id. The gene of a solution is written only in the first frame which refers to it, so a
+ * frame is mostly the new offspring, and a solution which lasts, such as one in the best queue, costs an id only.
+ * Each frame ends with its CRC-32, and a reader takes the last complete one, so a frame being written when the
+ * JVM dies is just ignored.
+ *
+ * Frames are taken by the evolution thread, which only copies the new genes, and written by a thread of this
+ * file in the order they're taken, so the evolution never waits for the disk. Once the file grows
+ * {@code COMPACTION_FACTOR} times as large as it was after its first frame, the latest frame is written alone
+ * into a temporary file which then replaces it, so the file stays bounded.
+ */
+final class CheckpointFile {
+
+    private static Logger log = Logger.getLogger(CheckpointFile.class);
+
+    /** The magic number, which is "GTCK" in ASCII. */
+    private static final int MAGIC = 0x4754434B;
+
+    /** The version of the format, which must be increased whenever the format changes. */
+    static final int VERSION = 2;
+
+    private static final int COMPACTION_FACTOR = 8;
+
+    private static AtomicInteger threadCount = new AtomicInteger(0);
+
+    private final File file;
+    private final String name;
+    private final int length;
+
+    /** The thread writing frames, which ends when it's idle, so it neither keeps the JVM alive nor loses frames. */
+    private final ThreadPoolExecutor writer;
+
+    /* The following fields are used by the evolution thread only. */
+
+    /** The ids of the solutions referred to by the latest frame taken. */
+    private Map<Solution, Integer> ids = new IdentityHashMap<>();
+    private int nextId;
+
+    /* The following fields are used by the writer thread only. */
+
+    /** The genes of the solutions referred to by the latest frame written, by id. */
+    private Map<Integer, int[]> genes = new HashMap<>();
+    private FileChannel channel;
+    private long compactedSize;
+
+    /**
+     * Constructor, which neither reads nor writes the file until the first frame is written.
+     *
+     * @param file the checkpoint file
+     * @param name the name of the TSP instance
+     * @param length the length of genes
+     */
+    CheckpointFile(File file, String name, int length) {
+        this.file = file;
+        this.name = name;
+        this.length = length;
+        this.writer = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "tsp-checkpoint-" + threadCount.getAndAdd(1)));
+        this.writer.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Takes a frame of the state of a solution group, which is written later by the writer thread, so the
+     * solutions may be changed or recycled as soon as this method returns.
+     *
+     * @param gen the generation number
+     * @param stayGeneration the number of generations for which the best solution lasts
+     * @param elapsedMillis the milliseconds since the solution group was initialized
+     * @param random the random stream of the solution group
+     * @param solutions the solutions of the solution group
+     * @param bestQueue the solutions of its best queue
+     */
+    void append(int gen, int stayGeneration, long elapsedMillis, RandomStream random,
+                List<Solution> solutions, Collection<Solution> bestQueue) {
+        Map<Solution, Integer> current = new IdentityHashMap<>(2 * (solutions.size() + bestQueue.size()));
+        List<Integer> newIds = new ArrayList<>();
+        List<int[]> newGenes = new ArrayList<>();
+        int[] solutionIds = idsOf(solutions, current, newIds, newGenes);
+        int[] queueIds = idsOf(bestQueue, current, newIds, newGenes);
+        ids = current;
+        Frame frame = new Frame(gen, stayGeneration, elapsedMillis, serialize(random),
+                newIds, newGenes, solutionIds, queueIds);
+        writer.execute(() -> {
+            try {
+                write(frame);
+            } catch (IOException e) {
+                log.warn(String.format("Checkpoint of generation %d could not be written to [%s].", frame.gen, file), e);
+                closeChannel();
+            }
+        });
+    }
+
+    private int[] idsOf(Collection<Solution> list, Map<Solution, Integer> current,
+                        List<Integer> newIds, List<int[]> newGenes) {
+        int[] result = new int[list.size()];
+        int i = 0;
+        for (Solution solution : list) {
+            Integer id = current.get(solution);
+            if (id == null) {
+                id = ids.get(solution);
+                if (id == null) {
+                    id = nextId++;
+                    newIds.add(id);
+                    newGenes.add(solution.gene().clone());
+                }
+                current.put(solution, id);
+            }
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    /**
+     * Waits until all frames taken are written.
+     */
+    void flush() {
+        try {
+            writer.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Closes the file after all frames taken are written, without waiting for them. A frame taken later opens
+     * the file again, by replacing it with that frame.
+     */
+    void close() {
+        writer.execute(this::closeChannel);
+    }
+
+    private void write(Frame frame) throws IOException {
+        for (int i = 0; i < frame.newIds.size(); ++i) {
+            genes.put(frame.newIds.get(i), frame.newGenes.get(i));
+        }
+        if (channel == null || channel.size() > COMPACTION_FACTOR * compactedSize) {
+            closeChannel();
+            compact(frame);
+        } else {
+            channel.write(encode(frame, frame.newIds));
+            channel.force(false);
+        }
+        Map<Integer, int[]> live = new HashMap<>(2 * (frame.solutionIds.length + frame.queueIds.length));
+        for (int id : frame.solutionIds) {
+            live.put(id, genes.get(id));
+        }
+        for (int id : frame.queueIds) {
+            live.put(id, genes.get(id));
+        }
+        genes = live;
+    }
+
+    /** Writes the header and a frame with all its genes into a temporary file, which then replaces the file. */
+    private void compact(Frame frame) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            String m = String.format("Directory [%s] could not be created.", dir);
+            throw new IOException(m);
+        }
+        Set<Integer> all = new LinkedHashSet<>();
+        for (int id : frame.solutionIds) {
+            all.add(id);
+        }
+        for (int id : frame.queueIds) {
+            all.add(id);
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer header = ByteBuffer.allocate(16 + nameBytes.length);
+                header.putInt(MAGIC).putInt(VERSION).putInt(nameBytes.length).put(nameBytes).putInt(length);
+                header.flip();
+                out.write(header);
+                out.write(encode(frame, all));
+                out.force(false);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        compactedSize = channel.size();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn(String.format("Checkpoint file [%s] could not be closed.", file), e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Encodes a frame, with the genes of the specified solutions, into its length, content and CRC-32.
+     */
+    private ByteBuffer encode(Frame frame, Collection<Integer> withGenes) {
+        int size = 4 + 4 + 8 + 4 + frame.randomState.length
+                + 4 + withGenes.size() * 4 * (1 + length)
+                + 4 + 4 * frame.solutionIds.length + 4 + 4 * frame.queueIds.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + size + 4);
+        buffer.putInt(size);
+        buffer.putInt(frame.gen).putInt(frame.stayGeneration).putLong(frame.elapsedMillis);
+        buffer.putInt(frame.randomState.length).put(frame.randomState);
+        buffer.putInt(withGenes.size());
+        for (int id : withGenes) {
+            buffer.putInt(id);
+            for (int locus : genes.get(id)) {
+                buffer.putInt(locus);
+            }
+        }
+        putInts(buffer, frame.solutionIds);
+        putInts(buffer, frame.queueIds);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, size);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] array) {
+        buffer.putInt(array.length);
+        for (int value : array) {
+            buffer.putInt(value);
+        }
+    }
+
+    private static int[] getInts(ByteBuffer buffer) {
+        int[] array = new int[buffer.getInt()];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = buffer.getInt();
+        }
+        return array;
+    }
+
+    private static byte[] serialize(RandomStream random) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static RandomStream deserialize(byte[] state) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            return (RandomStream) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Illegal state of random stream.", e);
+        }
+    }
+
+    /**
+     * Reads the last complete frame of a checkpoint file.
+     *
+     * @param file the checkpoint file
+     * @param name the name of the TSP instance
+     * @param length the length of genes
+     * @return the checkpoint, or {@code null} if the file doesn't exist, is of another version, instance or length
+     *         of genes, or has no complete frame
+     * @throws IOException if the file could not be read
+     */
+    static Checkpoint read(File file, String name, int length) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (in.remaining() < 16 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            log.warn(String.format("Checkpoint file [%s] is of another version and will be ignored.", file));
+            return null;
+        }
+        int nameLength = in.getInt();
+        if (nameLength < 0 || nameLength > in.remaining() - 4) {
+            log.warn(String.format("Checkpoint file [%s] is broken and will be ignored.", file));
+            return null;
+        }
+        byte[] nameBytes = new byte[nameLength];
+        in.get(nameBytes);
+        if (!name.equals(new String(nameBytes, StandardCharsets.UTF_8)) || in.getInt() != length) {
+            log.warn(String.format("Checkpoint file [%s] is of another TSP and will be ignored.", file));
+            return null;
+        }
+
+        Map<Integer, int[]> genes = new HashMap<>();
+        Checkpoint checkpoint = null;
+        while (in.remaining() >= 4) {
+            int size = in.getInt();
+            if (size < 0 || size > in.remaining() - 4) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(in.array(), in.position(), size);
+            if (in.getInt(in.position() + size) != (int) crc.getValue()) {
+                break;
+            }
+            ByteBuffer frame = ByteBuffer.wrap(in.array(), in.position(), size).slice();
+            in.position(in.position() + size + 4);
+
+            int gen = frame.getInt();
+            int stayGeneration = frame.getInt();
+            long elapsedMillis = frame.getLong();
+            byte[] randomState = new byte[frame.getInt()];
+            frame.get(randomState);
+            int count = frame.getInt();
+            for (int i = 0; i < count; ++i) {
+                int id = frame.getInt();
+                int[] gene = new int[length];
+                for (int j = 0; j < length; ++j) {
+                    gene[j] = frame.getInt();
+                }
+                genes.put(id, gene);
+            }
+            int[] solutionIds = getInts(frame);
+            int[] queueIds = getInts(frame);
+            Map<Integer, int[]> live = new HashMap<>();
+            for (int id : solutionIds) {
+                live.put(id, genes.get(id));
+            }
+            for (int id : queueIds) {
+                live.put(id, genes.get(id));
+            }
+            genes = live;
+            checkpoint = new Checkpoint(gen, stayGeneration, elapsedMillis, randomState, solutionIds, queueIds, live);
+        }
+        if (checkpoint == null) {
+            log.warn(String.format("Checkpoint file [%s] has no complete frame and will be ignored.", file));
+            return null;
+        }
+        if (checkpoint.genes.containsValue(null)) {
+            log.warn(String.format("Checkpoint file [%s] refers to unknown solutions and will be ignored.", file));
+            return null;
+        }
+        checkpoint.random = deserialize(checkpoint.randomState);
+        return checkpoint;
+    }
+
+    /** A frame taken by the evolution thread, with copies of the genes of solutions new since the last one. */
+    private static final class Frame {
+
+        private final int gen;
+        private final int stayGeneration;
+        private final long elapsedMillis;
+        private final byte[] randomState;
+        private final List<Integer> newIds;
+        private final List<int[]> newGenes;
+        private final int[] solutionIds;
+        private final int[] queueIds;
+
+        Frame(int gen, int stayGeneration, long elapsedMillis, byte[] randomState,
+              List<Integer> newIds, List<int[]> newGenes, int[] solutionIds, int[] queueIds) {
+            this.gen = gen;
+            this.stayGeneration = stayGeneration;
+            this.elapsedMillis = elapsedMillis;
+            this.randomState = randomState;
+            this.newIds = newIds;
+            this.newGenes = newGenes;
+            this.solutionIds = solutionIds;
+            this.queueIds = queueIds;
+        }
+    }
+
+    /**
+     * The state of a solution group read from a checkpoint file. A solution referred to more than once, such as
+     * one in the best queue for several generations, is the same object each time.
+     */
+    static final class Checkpoint {
+
+        private final int gen;
+        private final int stayGeneration;
+        private final long elapsedMillis;
+        private final byte[] randomState;
+        private final int[] solutionIds;
+        private final int[] queueIds;
+        private final Map<Integer, int[]> genes;
+        private RandomStream random;
+
+        private Checkpoint(int gen, int stayGeneration, long elapsedMillis, byte[] randomState,
+                           int[] solutionIds, int[] queueIds, Map<Integer, int[]> genes) {
+            this.gen = gen;
+            this.stayGeneration = stayGeneration;
+            this.elapsedMillis = elapsedMillis;
+            this.randomState = randomState;
+            this.solutionIds = solutionIds;
+            this.queueIds = queueIds;
+            this.genes = genes;
+        }
+
+        int getGen() {
+            return gen;
+        }
+
+        int getStayGeneration() {
+            return stayGeneration;
+        }
+
+        long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        RandomStream getRandom() {
+            return random;
+        }
+
+        int getSolutionCount() {
+            return solutionIds.length;
+        }
+
+        /**
+         * Gets the solutions and the solutions of the best queue, which are evaluated lazily.
+         *
+         * @param solutions the list to add the solutions to
+         * @param bestQueue the list to add the solutions of the best queue to
+         */
+        void getSolutions(List<Solution> solutions, List<Solution> bestQueue) {
+            Map<Integer, Solution> byId = new HashMap<>(2 * genes.size());
+            for (int id : solutionIds) {
+                solutions.add(byId.computeIfAbsent(id, i -> new Solution(genes.get(i), false)));
+            }
+            for (int id : queueIds) {
+                bestQueue.add(byId.computeIfAbsent(id, i -> new Solution(genes.get(i), false)));
+            }
+        }
+    }
+}
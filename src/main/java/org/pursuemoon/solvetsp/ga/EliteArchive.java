@@ -0,0 +1,179 @@
+package org.pursuemoon.solvetsp.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded archive of the best solutions, which is a min-max heap, so both the best and the worst solution are got
+ * in O(1), and a solution is inserted or replaces the worst one in O(log n).
+ *
+ * Nodes of even levels are not better than their descendants, and nodes of odd levels are not worse than them,
+ * so the worst solution is the root and the best one is a child of it.
+ */
+final class EliteArchive {
+
+    private final Solution[] heap;
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the max number of solutions, which is at least 1
+     */
+    EliteArchive(int capacity) {
+        if (capacity < 1) {
+            String m = String.format("Illegal elite archive: capacity = %d", capacity);
+            throw new RuntimeException(m);
+        }
+        this.heap = new Solution[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == heap.length;
+    }
+
+    /**
+     * Gets the worst solution.
+     *
+     * @return the worst solution, or {@code null} if the archive is empty
+     */
+    Solution worst() {
+        return heap[0];
+    }
+
+    /**
+     * Gets the best solution.
+     *
+     * @return the best solution, or {@code null} if the archive is empty
+     */
+    Solution best() {
+        if (size <= 2) {
+            return heap[size / 2];
+        }
+        return (heap[1].compareTo(heap[2]) >= 0 ? heap[1] : heap[2]);
+    }
+
+    /**
+     * Gets the difference of fitness between the best and the worst solution.
+     *
+     * @return the difference of fitness, or 0 if the archive is empty
+     */
+    double fitnessDifference() {
+        return (size == 0 ? 0 : best().getFitness() - worst().getFitness());
+    }
+
+    /**
+     * Offers a solution, which is inserted if the archive isn't full, or replaces the worst solution if it's
+     * better than that.
+     *
+     * @param solution the solution
+     * @return {@code true} if the solution is inserted
+     */
+    boolean offer(Solution solution) {
+        if (size < heap.length) {
+            heap[size] = solution;
+            bubbleUp(size++);
+            return true;
+        }
+        if (heap[0].compareTo(solution) < 0) {
+            heap[0] = solution;
+            trickleDown(0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets all solutions, in no particular order.
+     *
+     * @return the list of solutions
+     */
+    List<Solution> toList() {
+        List<Solution> list = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            list.add(heap[i]);
+        }
+        return list;
+    }
+
+    private static boolean isMinLevel(int i) {
+        return ((31 - Integer.numberOfLeadingZeros(i + 1)) & 1) == 0;
+    }
+
+    private void bubbleUp(int i) {
+        if (i == 0) {
+            return;
+        }
+        int parent = (i - 1) / 2;
+        if (isMinLevel(i)) {
+            if (heap[i].compareTo(heap[parent]) > 0) {
+                swap(i, parent);
+                bubbleUpGrandparents(parent, false);
+            } else {
+                bubbleUpGrandparents(i, true);
+            }
+        } else {
+            if (heap[i].compareTo(heap[parent]) < 0) {
+                swap(i, parent);
+                bubbleUpGrandparents(parent, true);
+            } else {
+                bubbleUpGrandparents(i, false);
+            }
+        }
+    }
+
+    /** Moves the node at {@code i} up through its grandparents, which are of min levels if {@code min}. */
+    private void bubbleUpGrandparents(int i, boolean min) {
+        while (i > 2) {
+            int grandparent = ((i - 1) / 2 - 1) / 2;
+            int c = heap[i].compareTo(heap[grandparent]);
+            if (min ? c >= 0 : c <= 0) {
+                break;
+            }
+            swap(i, grandparent);
+            i = grandparent;
+        }
+    }
+
+    /** Moves the node at {@code i} of a min level down, which is only done from the root. */
+    private void trickleDown(int i) {
+        while (true) {
+            /* Finds the worst of children and grandchildren. */
+            int first = 2 * i + 1;
+            if (first >= size) {
+                return;
+            }
+            int m = first;
+            if (first + 1 < size && heap[first + 1].compareTo(heap[m]) < 0) {
+                m = first + 1;
+            }
+            for (int k = 2 * first + 1, end = Math.min(2 * first + 5, size); k < end; ++k) {
+                if (heap[k].compareTo(heap[m]) < 0) {
+                    m = k;
+                }
+            }
+            if (heap[m].compareTo(heap[i]) >= 0) {
+                return;
+            }
+            swap(i, m);
+            if (m <= first + 1) {
+                return;
+            }
+            int parent = (m - 1) / 2;
+            if (heap[m].compareTo(heap[parent]) > 0) {
+                swap(m, parent);
+            }
+            i = m;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Solution t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+}
@@ -0,0 +1,65 @@
+package org.pursuemoon.solvetsp.ga;
+
+/**
+ * Pool of gene buffers of the same length, which lets a solution group recycle the genes of solutions it
+ * discards at the end of a generation, and write offspring of the next generation into them.
+ *
+ * Buffers are acquired by tasks which may run in parallel, and released by the solution group between
+ * generations, so both are synchronized. At most {@code capacity} free buffers are kept, and more released
+ * ones are left to the garbage collector.
+ */
+final class GenePool {
+
+    private final int length;
+    private final int[][] free;
+    private int count;
+
+    /**
+     * Constructor.
+     *
+     * @param length the length of each gene buffer
+     * @param capacity the max number of free buffers kept
+     */
+    GenePool(int length, int capacity) {
+        this.length = length;
+        this.free = new int[capacity][];
+    }
+
+    /**
+     * Acquires a buffer, which is a recycled one if there is any or a new one otherwise. Its content is unspecified.
+     *
+     * @return a buffer of {@code length}
+     */
+    synchronized int[] acquire() {
+        if (count == 0) {
+            return new int[length];
+        }
+        int[] buffer = free[--count];
+        free[count] = null;
+        return buffer;
+    }
+
+    /**
+     * Releases a buffer which is no longer referenced by any solution, so that it could be acquired again.
+     *
+     * @param buffer the buffer to release
+     */
+    synchronized void release(int[] buffer) {
+        if (buffer.length != length) {
+            String m = String.format("Length of released buffer [%d] doesn't match the pool of %d.", buffer.length, length);
+            throw new RuntimeException(m);
+        }
+        if (count < free.length) {
+            free[count++] = buffer;
+        }
+    }
+
+    /**
+     * Gets the number of free buffers in this pool.
+     *
+     * @return the number of free buffers
+     */
+    synchronized int getFreeCount() {
+        return count;
+    }
+}
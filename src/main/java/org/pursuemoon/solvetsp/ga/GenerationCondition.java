@@ -0,0 +1,120 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.pursuemoon.ai.ga.Condition;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Stop condition of ga-tsp, which is checked after each generation against a snapshot of the statistics of the
+ * population, so that a new kind of condition needs no change of {@code SolutionGroup}.
+ *
+ * Conditions are composed by {@link #and(GenerationCondition)} and {@link #or(GenerationCondition)}, such as to
+ * stop at a wall-clock budget or once the best solution is good enough, whichever comes first.
+ */
+public abstract class GenerationCondition extends Condition {
+
+    /**
+     * Checks if this condition is met after a generation.
+     *
+     * @param statistics the statistics of the population
+     * @return {@code true} if the evolution should be stopped
+     */
+    public abstract boolean isMet(GenerationStatistics statistics);
+
+    /**
+     * Gets a condition which is met if both this one and the other one are met.
+     *
+     * @param other the other condition
+     * @return the composed condition
+     */
+    public GenerationCondition and(GenerationCondition other) {
+        Objects.requireNonNull(other);
+        return of(statistics -> isMet(statistics) && other.isMet(statistics));
+    }
+
+    /**
+     * Gets a condition which is met if either this one or the other one is met.
+     *
+     * @param other the other condition
+     * @return the composed condition
+     */
+    public GenerationCondition or(GenerationCondition other) {
+        Objects.requireNonNull(other);
+        return of(statistics -> isMet(statistics) || other.isMet(statistics));
+    }
+
+    /**
+     * Gets a condition which is met once the evolution has run for {@code millis} milliseconds since the
+     * population was initialized.
+     *
+     * @param millis the wall-clock budget in milliseconds
+     * @return the condition
+     */
+    public static GenerationCondition ofWallClock(long millis) {
+        return of(statistics -> statistics.getElapsedMillis() >= millis);
+    }
+
+    /**
+     * Gets a condition which is met once the best solution is within {@code percent}% of a reference distance,
+     * which is the distance of a known optimal solution or a lower bound of it.
+     *
+     * @param referenceDistance the reference distance
+     * @param percent the max quality in percent above the reference distance
+     * @return the condition
+     */
+    public static GenerationCondition ofTargetQuality(double referenceDistance, double percent) {
+        if (referenceDistance <= 0 || percent < 0) {
+            String m = String.format("Illegal target quality: referenceDistance = %f, percent = %f", referenceDistance, percent);
+            throw new RuntimeException(m);
+        }
+        double targetDistance = referenceDistance * (1 + percent / 100);
+        return of(statistics -> statistics.getBestDistance() <= targetDistance);
+    }
+
+    /**
+     * Gets a condition which is met once the best solution hasn't been improved for {@code millis} milliseconds.
+     *
+     * @param millis the milliseconds without improvement
+     * @return the condition
+     */
+    public static GenerationCondition ofStagnation(long millis) {
+        return of(statistics -> statistics.getStagnantMillis() >= millis);
+    }
+
+    /**
+     * Adapts a condition of the GA framework to a {@code GenerationCondition}.
+     *
+     * @param condition the condition, which is a {@code GenerationCondition} or one of the conditions in
+     *                  {@code Condition}
+     * @return the adapted condition
+     */
+    public static GenerationCondition of(Condition condition) {
+        if (condition instanceof GenerationCondition) {
+            return (GenerationCondition) condition;
+        }
+        if (condition instanceof MinGenerationCondition) {
+            MinGenerationCondition c = (MinGenerationCondition) condition;
+            return of(statistics -> c.isMet(statistics.getGeneration()));
+        }
+        if (condition instanceof BestWorstDifferenceCondition) {
+            BestWorstDifferenceCondition c = (BestWorstDifferenceCondition) condition;
+            return of(statistics -> statistics.isBestQueueFull() && c.isMet(statistics.getFitnessDifference()));
+        }
+        if (condition instanceof BestStayGenerationCondition) {
+            BestStayGenerationCondition c = (BestStayGenerationCondition) condition;
+            return of(statistics -> c.isMet(statistics.getStayGeneration()));
+        }
+        String m = String.format("Unsupported stop condition: %s", condition);
+        throw new RuntimeException(m);
+    }
+
+    private static GenerationCondition of(Predicate<GenerationStatistics> predicate) {
+        return new GenerationCondition() {
+            @Override
+            public boolean isMet(GenerationStatistics statistics) {
+                return predicate.test(statistics);
+            }
+        };
+    }
+}
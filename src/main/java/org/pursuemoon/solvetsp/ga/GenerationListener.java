@@ -0,0 +1,18 @@
+package org.pursuemoon.solvetsp.ga;
+
+/**
+ * Listener of the progress of a population, which is notified after each generation.
+ *
+ * It's called by the thread evolving the population, which is a thread of its own for each island of an island
+ * model, so it should be thread-safe, and return quickly since the evolution waits for it.
+ */
+@FunctionalInterface
+public interface GenerationListener {
+
+    /**
+     * Called after a generation of a population.
+     *
+     * @param statistics the statistics of the population after the generation
+     */
+    void onGeneration(GenerationStatistics statistics);
+}
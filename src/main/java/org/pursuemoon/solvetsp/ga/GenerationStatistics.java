@@ -0,0 +1,73 @@
+package org.pursuemoon.solvetsp.ga;
+
+/**
+ * Snapshot of the statistics of a population after a generation, by which a {@code GenerationCondition} decides
+ * if the evolution should be stopped. It's taken from fields the population keeps anyway, so taking it is cheap.
+ */
+public final class GenerationStatistics {
+
+    private final int generation;
+    private final int stayGeneration;
+    private final double bestDistance;
+    private final double fitnessDifference;
+    private final boolean bestQueueFull;
+    private final long elapsedMillis;
+    private final long stagnantMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param generation the current generation number
+     * @param stayGeneration the number of generations for which the best solution lasts
+     * @param bestDistance the distance of the best solution that ever appeared
+     * @param fitnessDifference the difference of fitness between the best and the worst of the best queue
+     * @param bestQueueFull if the best queue is full
+     * @param elapsedMillis the milliseconds since the population was initialized
+     * @param stagnantMillis the milliseconds since the best solution was improved last time
+     */
+    public GenerationStatistics(int generation, int stayGeneration, double bestDistance, double fitnessDifference,
+                                boolean bestQueueFull, long elapsedMillis, long stagnantMillis) {
+        this.generation = generation;
+        this.stayGeneration = stayGeneration;
+        this.bestDistance = bestDistance;
+        this.fitnessDifference = fitnessDifference;
+        this.bestQueueFull = bestQueueFull;
+        this.elapsedMillis = elapsedMillis;
+        this.stagnantMillis = stagnantMillis;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getStayGeneration() {
+        return stayGeneration;
+    }
+
+    public double getBestDistance() {
+        return bestDistance;
+    }
+
+    public double getFitnessDifference() {
+        return fitnessDifference;
+    }
+
+    public boolean isBestQueueFull() {
+        return bestQueueFull;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getStagnantMillis() {
+        return stagnantMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GenerationStatistics{generation=%d, stayGeneration=%d, bestDistance=%.0f, " +
+                        "fitnessDifference=%f, bestQueueFull=%b, elapsedMillis=%d, stagnantMillis=%d}",
+                generation, stayGeneration, bestDistance, fitnessDifference, bestQueueFull, elapsedMillis, stagnantMillis);
+    }
+}
@@ -0,0 +1,104 @@
+package org.pursuemoon.solvetsp.ga;
+
+/**
+ * Binary min-heap of the indices {@code 0} to {@code size - 1}, ordered by their keys, in which the key of any
+ * index can be changed in O(log n), since the position of each index in the heap is kept.
+ *
+ * Indices of equal keys are ordered by themselves, so the order of the heap only depends on the keys.
+ */
+final class IndexedMinHeap {
+
+    private final int[] heap;
+    private final int[] position;
+    private final double[] keys;
+
+    /**
+     * Constructor which builds the heap of all indices of the keys in O(n).
+     *
+     * @param keys the keys of indices, which are copied
+     */
+    IndexedMinHeap(double[] keys) {
+        int size = keys.length;
+        this.heap = new int[size];
+        this.position = new int[size];
+        this.keys = keys.clone();
+        for (int i = 0; i < size; ++i) {
+            heap[i] = i;
+            position[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; --i) {
+            siftDown(i);
+        }
+    }
+
+    int size() {
+        return heap.length;
+    }
+
+    /**
+     * Gets the index of the least key.
+     *
+     * @return the index
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    double getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Changes the key of an index.
+     *
+     * @param index the index
+     * @param key the new key
+     */
+    void update(int index, double key) {
+        double old = keys[index];
+        keys[index] = key;
+        if (Double.compare(key, old) < 0) {
+            siftUp(position[index]);
+        } else {
+            siftDown(position[index]);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(heap[i], heap[parent]))
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        int size = heap.length;
+        while (true) {
+            int left = 2 * i + 1, right = left + 1, least = i;
+            if (left < size && less(heap[left], heap[least]))
+                least = left;
+            if (right < size && less(heap[right], heap[least]))
+                least = right;
+            if (least == i)
+                break;
+            swap(i, least);
+            i = least;
+        }
+    }
+
+    private boolean less(int a, int b) {
+        int c = Double.compare(keys[a], keys[b]);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    private void swap(int i, int j) {
+        int a = heap[i], b = heap[j];
+        heap[i] = b;
+        heap[j] = a;
+        position[b] = i;
+        position[a] = j;
+    }
+}
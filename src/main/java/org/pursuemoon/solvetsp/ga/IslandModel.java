@@ -0,0 +1,303 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.apache.log4j.Logger;
+import org.pursuemoon.ai.ga.Condition;
+import org.pursuemoon.solvetsp.util.RandomStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Island model of several {@code SolutionGroup}s, each of which is initialized and evolves in its own thread.
+ *
+ * Every {@code migrationInterval} generations, each island sends its best {@code migrationSize} solutions to
+ * its neighbors in the topology, and replaces its worst solutions with the best of those it has received.
+ * Solutions are sent through lock-free mailboxes, so islands never wait for each other, and an island which
+ * has received nothing since its last migration just goes on. Each island stops when the stop condition is
+ * met by itself, and no more solutions are sent to it since then. Listeners are notified by each island after
+ * each of its generations, in the thread of the island.
+ */
+public final class IslandModel implements AnytimePopulation {
+
+    private static Logger log = Logger.getLogger(IslandModel.class);
+
+    /** Topology of islands, which decides where each island sends its best solutions. */
+    public enum Topology {
+        /** To the next island, and the last island sends to the first one. */
+        RING,
+        /** To all other islands. */
+        FULLY_CONNECTED,
+        /** To another island picked at random on each migration. */
+        RANDOM
+    }
+
+    private static AtomicInteger threadCount = new AtomicInteger(0);
+
+    private List<Island> islands;
+    private int migrationInterval;
+    private int migrationSize;
+    private Topology topology;
+
+    private IslandModel() {
+        islands = new ArrayList<>();
+    }
+
+    @Override
+    public void setCrossoverProbability(double pc) {
+        for (Island island : islands) {
+            island.solutionGroup.setCrossoverProbability(pc);
+        }
+    }
+
+    @Override
+    public void setMutationProbability(double pm) {
+        for (Island island : islands) {
+            island.solutionGroup.setMutationProbability(pm);
+        }
+    }
+
+    @Override
+    public void initialize() {
+        runOnIslands(island -> island.solutionGroup.initialize());
+    }
+
+    @Override
+    public void evolve(Condition stopCondition) {
+        for (Island island : islands) {
+            island.mailbox.clear();
+            island.stopped = false;
+        }
+        runOnIslands(island -> {
+            try {
+                while (!island.solutionGroup.evolve(stopCondition, migrationInterval)) {
+                    emigrate(island);
+                    immigrate(island);
+                }
+            } finally {
+                island.stopped = true;
+                island.mailbox.clear();
+            }
+        });
+    }
+
+    /** Sends the best solutions of an island to the mailboxes of its neighbors which are still evolving. */
+    private void emigrate(Island island) {
+        int size = islands.size();
+        if (size == 1) {
+            return;
+        }
+        List<Solution> emigrants = island.solutionGroup.getBest(migrationSize);
+        switch (topology) {
+            case RING:
+                send(emigrants, islands.get((island.index + 1) % size));
+                break;
+            case FULLY_CONNECTED:
+                for (Island neighbor : islands) {
+                    if (neighbor != island) {
+                        send(emigrants, neighbor);
+                    }
+                }
+                break;
+            case RANDOM:
+                send(emigrants, islands.get((island.index + 1 + island.random.nextInt(size - 1)) % size));
+                break;
+            default:
+                String m = String.format("Unknown topology: %s", topology);
+                throw new RuntimeException(m);
+        }
+    }
+
+    private static void send(List<Solution> emigrants, Island neighbor) {
+        if (!neighbor.stopped) {
+            neighbor.mailbox.addAll(emigrants);
+        }
+    }
+
+    /** Replaces the worst solutions of an island with the best ones in its mailbox, if there are any. */
+    private void immigrate(Island island) {
+        List<Solution> received = new ArrayList<>();
+        Solution solution;
+        while ((solution = island.mailbox.poll()) != null) {
+            received.add(solution);
+        }
+        if (received.isEmpty()) {
+            return;
+        }
+        List<Solution> immigrants = SolutionRanking.topK(received, Math.min(migrationSize, received.size()));
+        island.solutionGroup.immigrate(immigrants);
+        log.debug(String.format("Island [%d] took %d immigrants of %d received at generation %d.",
+                island.index, immigrants.size(), received.size(), island.solutionGroup.getGen()));
+    }
+
+    /**
+     * Runs an action on each island in its own thread, which sees the TSP instance of the caller thread,
+     * and waits for all of them to finish.
+     */
+    private void runOnIslands(Consumer<Island> action) {
+        TspInstance instance = TspSolver.getInstance();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>(islands.size());
+        for (Island island : islands) {
+            Thread thread = new Thread(() -> {
+                TspSolver.bindInstance(instance);
+                TspSolver.bindRandom(island.random);
+                try {
+                    action.accept(island);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "tsp-island-" + threadCount.getAndAdd(1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException("An island failed to evolve.", failure.get());
+        }
+    }
+
+    @Override
+    public Solution getBest() {
+        List<Solution> bestOfIslands = new ArrayList<>(islands.size());
+        for (Island island : islands) {
+            bestOfIslands.add(island.solutionGroup.getBest());
+        }
+        return SolutionRanking.best(bestOfIslands);
+    }
+
+    @Override
+    public void addGenerationListener(GenerationListener listener) {
+        for (Island island : islands) {
+            island.solutionGroup.addGenerationListener(listener);
+        }
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        for (Island island : islands) {
+            island.solutionGroup.setCancellationToken(cancellationToken);
+        }
+    }
+
+    @Override
+    public Solution getBestSoFar() {
+        List<Solution> bestOfIslands = new ArrayList<>(islands.size());
+        for (Island island : islands) {
+            Solution best = island.solutionGroup.getBestSoFar();
+            if (best != null) {
+                bestOfIslands.add(best);
+            }
+        }
+        return (bestOfIslands.isEmpty() ? null : SolutionRanking.best(bestOfIslands));
+    }
+
+    /**
+     * Gets the largest generation number of all islands.
+     *
+     * @return the largest generation number
+     */
+    @Override
+    public int getGen() {
+        int gen = 0;
+        for (Island island : islands) {
+            gen = Math.max(gen, island.solutionGroup.getGen());
+        }
+        return gen;
+    }
+
+    /**
+     * An island, which is a solution group with its mailbox.
+     */
+    private static final class Island {
+
+        private final int index;
+        private final SolutionGroup solutionGroup;
+
+        /** The random stream of the thread of this island, split from that of its solution group. */
+        private final RandomStream random;
+
+        /** Solutions sent by other islands since the last migration of this island. */
+        private final Queue<Solution> mailbox = new ConcurrentLinkedQueue<>();
+
+        /** If this island has stopped evolving. */
+        private volatile boolean stopped;
+
+        Island(int index, SolutionGroup solutionGroup) {
+            this.index = index;
+            this.solutionGroup = solutionGroup;
+            this.random = solutionGroup.splitRandom();
+        }
+    }
+
+    /**
+     * Builder of {@code IslandModel}.
+     */
+    public static class Builder {
+
+        private List<SolutionGroup> solutionGroups;
+        private int migrationInterval;
+        private int migrationSize;
+        private Topology topology;
+
+        private Builder() {
+            solutionGroups = new ArrayList<>();
+            migrationInterval = 50;
+            migrationSize = 2;
+            topology = Topology.RING;
+        }
+
+        public static Builder ofNew() {
+            return new Builder();
+        }
+
+        public Builder withIsland(SolutionGroup solutionGroup) {
+            solutionGroups.add(Objects.requireNonNull(solutionGroup));
+            return this;
+        }
+
+        public Builder withMigrationInterval(int migrationInterval) {
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        public Builder withMigrationSize(int migrationSize) {
+            this.migrationSize = migrationSize;
+            return this;
+        }
+
+        public Builder withTopology(Topology topology) {
+            this.topology = Objects.requireNonNull(topology);
+            return this;
+        }
+
+        public IslandModel build() {
+            if (solutionGroups.isEmpty() || migrationInterval <= 0 || migrationSize <= 0) {
+                String m = String.format("Illegal island model: islands = %d, migrationInterval = %d, migrationSize = %d",
+                        solutionGroups.size(), migrationInterval, migrationSize);
+                throw new RuntimeException(m);
+            }
+            IslandModel islandModel = new IslandModel();
+            for (int i = 0; i < solutionGroups.size(); ++i) {
+                islandModel.islands.add(new Island(i, solutionGroups.get(i)));
+            }
+            islandModel.migrationInterval = migrationInterval;
+            islandModel.migrationSize = migrationSize;
+            islandModel.topology = topology;
+            return islandModel;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Structure-of-arrays storage of solutions, in which the genes of all slots are packed into one int array,
+ * and their distances and fitness into two parallel double arrays.
+ *
+ * A slot is addressed by its index, and its gene is the range of {@code genes} from {@link #offsetOf(int)}, so
+ * operators read and write genes in place, and sweeps over fitness run over a contiguous array instead of
+ * chasing references. Slots are written by tasks which may run in parallel, each of which owns its slots.
+ */
+final class PackedPopulation {
+
+    private final int length;
+    private final int capacity;
+    private final int[] genes;
+    private final double[] distances;
+    private final double[] fitness;
+    private final long[] fingerprints;
+
+    /**
+     * Constructor.
+     *
+     * @param length the length of each gene
+     * @param capacity the number of slots
+     */
+    PackedPopulation(int length, int capacity) {
+        if ((long) length * capacity > Integer.MAX_VALUE) {
+            String m = String.format("Packed population is too large: length = %d, capacity = %d", length, capacity);
+            throw new RuntimeException(m);
+        }
+        this.length = length;
+        this.capacity = capacity;
+        this.genes = new int[length * capacity];
+        this.distances = new double[capacity];
+        this.fitness = new double[capacity];
+        this.fingerprints = new long[capacity];
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the packed genes of all slots, which operators read and write in place.
+     *
+     * @return the packed genes
+     */
+    int[] genes() {
+        return genes;
+    }
+
+    /**
+     * Gets the fitness of all slots, indexed by slot.
+     *
+     * @return the fitness array
+     */
+    double[] fitness() {
+        return fitness;
+    }
+
+    int offsetOf(int slot) {
+        return slot * length;
+    }
+
+    double getDistance(int slot) {
+        return distances[slot];
+    }
+
+    double getFitness(int slot) {
+        return fitness[slot];
+    }
+
+    /**
+     * Gets the fingerprint of a slot, which is valid only if it was computed by {@link #fingerprint(int)}, or
+     * the slot was set or copied from one whose fingerprint is valid.
+     *
+     * @param slot the slot
+     * @return the fingerprint
+     */
+    long getFingerprint(int slot) {
+        return fingerprints[slot];
+    }
+
+    /**
+     * Computes the fingerprint of a slot, after its gene was written.
+     *
+     * @param slot the slot
+     */
+    void fingerprint(int slot) {
+        fingerprints[slot] = Solution.fingerprintOf(genes, offsetOf(slot), length);
+    }
+
+    /**
+     * Checks if two slots have the same tour.
+     *
+     * @param slot1 the first slot
+     * @param slot2 the second slot
+     * @return {@code true} if the tours are the same
+     */
+    boolean sameTour(int slot1, int slot2) {
+        return slot1 == slot2 || (fingerprints[slot1] == fingerprints[slot2]
+                && Solution.sameTour(genes, offsetOf(slot1), genes, offsetOf(slot2), length));
+    }
+
+    /**
+     * Writes a solution into a slot, with its distance, fitness and fingerprint.
+     *
+     * @param slot the slot
+     * @param solution the solution, whose gene begins with 1
+     */
+    void set(int slot, Solution solution) {
+        System.arraycopy(solution.gene(), 0, genes, offsetOf(slot), length);
+        distances[slot] = solution.getDistance();
+        fitness[slot] = solution.getFitness();
+        fingerprints[slot] = solution.getFingerprint();
+    }
+
+    /**
+     * Gets a new solution of a slot, which owns a copy of its gene.
+     *
+     * @param slot the slot
+     * @return the solution
+     */
+    Solution get(int slot) {
+        int offset = offsetOf(slot);
+        return new Solution(Arrays.copyOfRange(genes, offset, offset + length), distances[slot], fitness[slot]);
+    }
+
+    /**
+     * Copies a slot into another one, with its distance, fitness and fingerprint.
+     *
+     * @param from the source slot
+     * @param to the target slot
+     */
+    void copy(int from, int to) {
+        System.arraycopy(genes, offsetOf(from), genes, offsetOf(to), length);
+        distances[to] = distances[from];
+        fitness[to] = fitness[from];
+        fingerprints[to] = fingerprints[from];
+    }
+
+    /**
+     * Checks if the gene of a slot equals that of a solution.
+     *
+     * @param slot the slot
+     * @param solution the solution
+     * @return {@code true} if the genes are equal
+     */
+    boolean geneEquals(int slot, Solution solution) {
+        int[] gene = solution.gene();
+        int offset = offsetOf(slot);
+        for (int i = 0; i < length; ++i) {
+            if (genes[offset + i] != gene[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rotates the gene of a slot, which was just written by an operator from the gene of another slot, to begin
+     * with 1, and evaluates its distance by the change made by the operator if it's known, or in full otherwise.
+     *
+     * @param slot the slot
+     * @param parent the slot of the parent
+     * @param delta the change of distance from the parent, or {@code Double.NaN} if it's unknown
+     */
+    void evaluate(int slot, int parent, double delta) {
+        if (Double.isNaN(delta)) {
+            evaluate(slot);
+            return;
+        }
+        Solution.rotateToBeginWith1(genes, offsetOf(slot), length);
+        UnaryOperator<Double> fitnessFunction = TspSolver.getFitnessFunction();
+        distances[slot] = distances[parent] + delta;
+        fitness[slot] = fitnessFunction.apply(distances[slot]);
+    }
+
+    /**
+     * Rotates the gene of a slot, which was just written by an operator, to begin with 1, and evaluates its
+     * distance and fitness in the same way as {@code Solution} does.
+     *
+     * @param slot the slot
+     */
+    void evaluate(int slot) {
+        int offset = offsetOf(slot);
+        Solution.rotateToBeginWith1(genes, offset, length);
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
+        int from = genes[offset + length - 1] - 1, to = genes[offset] - 1;
+        double distance = distanceOracle.distance(from, to);
+        for (int i = 1; i < length; ++i) {
+            from = genes[offset + i - 1] - 1;
+            to = genes[offset + i] - 1;
+            distance += distanceOracle.distance(from, to);
+        }
+        UnaryOperator<Double> fitnessFunction = TspSolver.getFitnessFunction();
+        distances[slot] = distance;
+        fitness[slot] = fitnessFunction.apply(distance);
+    }
+}
@@ -1,6 +1,8 @@
 package org.pursuemoon.solvetsp.ga;
 
 import org.pursuemoon.ai.ga.Individual;
+import org.pursuemoon.solvetsp.util.ArrayUtils;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
 
 import java.util.Arrays;
 import java.util.function.UnaryOperator;
@@ -16,6 +18,16 @@ public final class Solution implements Individual {
     /** The distance of this solution, using lazy loading. */
     private double distance = -1.0;
 
+    /** The fingerprint of the tour of this solution, using lazy loading, which is valid if {@code fingerprinted}. */
+    private long fingerprint;
+    private boolean fingerprinted;
+
+    /**
+     * If this solution may be referenced out of the solution group which produced it, so that its gene must not
+     * be recycled.
+     */
+    private boolean shared;
+
     public Solution(int[] path, boolean beginWith1) {
         if (beginWith1) {
             gene = (path[0] == 1 ? path : cloneAndConvertToBeginWith1(path));
@@ -32,6 +44,75 @@ public final class Solution implements Individual {
             gene = cloneAndConvertToBeginWith1(gene);
     }
 
+    /**
+     * Constructor of a solution whose gene begins with 1 and whose distance and fitness are already known, such as
+     * one taken out of a packed population.
+     */
+    Solution(int[] gene, double distance, double fitness) {
+        this.gene = gene;
+        this.distance = distance;
+        this.fitness = fitness;
+    }
+
+    /**
+     * Gets a solution which owns the specified gene from now on, rotating it in place to begin with 1 instead of
+     * cloning it, so the caller must not use the gene any more.
+     *
+     * @param gene the gene, such as one written by an operator into a buffer of its own
+     * @return the solution owning the gene
+     */
+    public static Solution wrap(int[] gene) {
+        rotateToBeginWith1(gene);
+        return new Solution(gene, false);
+    }
+
+    /**
+     * Gets a solution which owns the specified gene like {@link #wrap(int[])}, whose distance is that of its parent
+     * plus the change made by an operator, instead of the sum of all its edges.
+     *
+     * @param gene the gene, which was got from the gene of the parent by an operator
+     * @param parent the parent
+     * @param delta the change of distance from the parent, computed from the changed edges only, or
+     *              {@code Double.NaN} if it's unknown
+     * @return the solution owning the gene
+     */
+    public static Solution wrap(int[] gene, Solution parent, double delta) {
+        Solution solution = wrap(gene);
+        if (!Double.isNaN(delta)) {
+            solution.distance = parent.getDistance() + delta;
+        }
+        return solution;
+    }
+
+    /**
+     * Gets the genotype itself, which must not be modified, so that operators could read it without cloning it.
+     *
+     * @return the genotype
+     */
+    int[] gene() {
+        return gene;
+    }
+
+    /** Marks this solution as referenced out of the solution group which produced it. */
+    void markShared() {
+        shared = true;
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Takes away the genotype to be recycled, after which this solution must not be used.
+     *
+     * @return the genotype
+     */
+    int[] releaseGene() {
+        int[] released = gene;
+        gene = null;
+        return released;
+    }
+
     /**
      * Gets a cloned genotype.
      *
@@ -60,6 +141,35 @@ public final class Solution implements Individual {
         return fitness;
     }
 
+    /**
+     * Returns the fingerprint of the tour of this solution, which loads lazily. It's the sum of hashes of all
+     * edges, so it's the same for tours of the same edges whatever their first points and directions are.
+     *
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        if (!fingerprinted) {
+            fingerprint = fingerprintOf(gene, 0, gene.length);
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Checks if this solution has the same tour as another one, that is, the same edges, whatever the directions
+     * of their genes are.
+     *
+     * @param o the other solution
+     * @return {@code true} if the tours are the same
+     */
+    public boolean sameTour(Solution o) {
+        if (this == o)
+            return true;
+        if (gene.length != o.gene.length || getFingerprint() != o.getFingerprint())
+            return false;
+        return sameTour(gene, 0, o.gene, 0, gene.length);
+    }
+
     /**
      * Compares the specified object with this individual for equality.
      * Symmetric solutions will be judged as unequal if their first point is not the same.
@@ -72,17 +182,29 @@ public final class Solution implements Individual {
         if (!(o instanceof Solution))
             return false;
         Solution solution = (Solution) o;
+        if (this == solution)
+            return true;
         if (gene.length != solution.gene.length)
             return false;
+        /* Different fingerprints mean different tours, but the same ones may still be of different genes. */
+        if (fingerprinted && solution.fingerprinted && fingerprint != solution.fingerprint)
+            return false;
         for (int i = 0; i < gene.length; ++i)
             if (gene[i] != solution.gene[i])
                 return false;
         return true;
     }
 
+    /**
+     * Returns the hash code from the fingerprint, which is computed once. Equal solutions have the same tour,
+     * so they have the same hash code.
+     *
+     * @return the hash code
+     */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(gene);
+        long fp = getFingerprint();
+        return (int) (fp ^ (fp >>> 32));
     }
 
     @Override
@@ -104,17 +226,15 @@ public final class Solution implements Individual {
      */
     public double getDistance() {
         if (distance < 0) {
-            /* Accelerates computing distances. */
-            TspSolver.fullyCalDistArray();
-            double[][] distArray = TspSolver.getDistArray();
+            DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
 
-            int size = distArray.length;
+            int size = distanceOracle.size();
             int from = gene[size - 1] - 1, to = gene[0] - 1;
-            distance = distArray[from][to];
+            distance = distanceOracle.distance(from, to);
             for (int i = 1; i < size; ++i) {
                 from = gene[i - 1] - 1;
                 to = gene[i] - 1;
-                distance += distArray[from][to];
+                distance += distanceOracle.distance(from, to);
             }
         }
         return distance;
@@ -133,6 +253,86 @@ public final class Solution implements Individual {
         return fitnessFunction.apply(distance);
     }
 
+    /**
+     * Rotates the input int array in place to begin with 1, by reversing its two parts and then all of it.
+     *
+     * @param ints the input int array
+     */
+    private static void rotateToBeginWith1(int[] ints) {
+        rotateToBeginWith1(ints, 0, ints.length);
+    }
+
+    /**
+     * Rotates a range of an int array in place to begin with 1, such as a gene of a packed population.
+     *
+     * @param ints the int array
+     * @param from the start of the range
+     * @param len the length of the range
+     */
+    static void rotateToBeginWith1(int[] ints, int from, int len) {
+        if (ints[from] == 1)
+            return;
+        int idx;
+        for (idx = from; idx < from + len; ++idx) {
+            if (ints[idx] == 1)
+                break;
+        }
+        if (idx == from + len)
+            throw new RuntimeException("There is no 1 in this array.");
+        reverse(ints, from, idx - 1);
+        reverse(ints, idx, from + len - 1);
+        reverse(ints, from, from + len - 1);
+    }
+
+    private static void reverse(int[] ints, int i, int j) {
+        while (i < j) {
+            int temp = ints[i];
+            ints[i++] = ints[j];
+            ints[j--] = temp;
+        }
+    }
+
+    /**
+     * Gets the fingerprint of a tour, which is a range of an int array, as the sum of hashes of its edges.
+     *
+     * @param ints the int array
+     * @param from the start of the range
+     * @param len the length of the range
+     * @return the fingerprint
+     */
+    static long fingerprintOf(int[] ints, int from, int len) {
+        long fp = hashOfEdge(ints[from + len - 1], ints[from]);
+        for (int i = from + 1; i < from + len; ++i) {
+            fp += hashOfEdge(ints[i - 1], ints[i]);
+        }
+        return fp;
+    }
+
+    /** Hashes an edge regardless of its direction, by the finalizer of SplitMix64. */
+    private static long hashOfEdge(int a, int b) {
+        long z = (a < b ? ((long) a << 32) | b : ((long) b << 32) | a);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Checks if two tours, which are ranges of int arrays, have the same edges, that is, one is the other rotated,
+     * or reversed and rotated.
+     *
+     * @return {@code true} if the tours are the same
+     */
+    static boolean sameTour(int[] a, int fromA, int[] b, int fromB, int len) {
+        int k = ArrayUtils.indexOfUnique(b, fromB, len, a[fromA]);
+        boolean forward = true, backward = true;
+        for (int i = 1; i < len && (forward || backward); ++i) {
+            int f = k + i, r = k - i;
+            forward = forward && a[fromA + i] == b[fromB + (f >= len ? f - len : f)];
+            backward = backward && a[fromA + i] == b[fromB + (r < 0 ? r + len : r)];
+        }
+        return forward || backward;
+    }
+
     /**
      * Clones and converts the input int array begin with 1.
      *
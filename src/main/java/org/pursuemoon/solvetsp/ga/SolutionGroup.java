@@ -1,12 +1,30 @@
 package org.pursuemoon.solvetsp.ga;
 
 import org.pursuemoon.ai.ga.Condition;
-import org.pursuemoon.ai.ga.Population;
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
+import org.pursuemoon.solvetsp.ga.operator.InPlaceCrossoverOperator;
+import org.pursuemoon.solvetsp.ga.operator.InPlaceMutationOperator;
+import org.pursuemoon.solvetsp.ga.operator.IndexSelectionOperator;
+import org.pursuemoon.solvetsp.util.RandomStream;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
-public final class SolutionGroup implements Population<Solution> {
+public final class SolutionGroup implements AnytimePopulation {
+
+    /**
+     * The number of solutions generated, or parents crossed over, or offspring mutated, by one task with its own
+     * random stream. It doesn't depend on the parallelism, so that results are the same however tasks are run.
+     */
+    private static final int CHUNK_SIZE = 4;
+
+    /** The max number of free gene buffers kept for each solution in the population. */
+    private static final int GENE_POOL_CAPACITY_FACTOR = 4;
 
     /* Parameters of traditional GA. */
 
@@ -20,8 +38,6 @@ public final class SolutionGroup implements Population<Solution> {
     private int topY;   // The number of solutions before mutation, remained to compete others in the selection.
     private int topZ;   // The number of solutions before selection, remained to compete others in the selection.
 
-    private int bestQueueSize;  // The number of best solutions maintained by priority queues.
-
     /**
      * The list containing {@code WeightedOperator.WeightedGeneratingOperator}s needed,
      * and their chances of being used.
@@ -53,12 +69,68 @@ public final class SolutionGroup implements Population<Solution> {
     /** The solutions of this solution group. */
     private List<Solution> solutions;
 
-    /** Pseudorandom number generator. */
-    private Random random;
+    /** The best one of {@code solutions}, updated whenever they're replaced. */
+    private Solution best;
+
+    /** The random stream of this solution group, from which the random stream of each task is split. */
+    private RandomStream random;
+
+    /** The pool to run tasks in parallel, or {@code null} if they're run in the caller thread. */
+    private ForkJoinPool forkJoinPool;
+
+    /**
+     * The pool of gene buffers, into which in-place operators write offspring, and to which genes of discarded
+     * solutions are returned at the end of each generation.
+     */
+    private GenePool genePool;
+
+    /**
+     * If solutions of the same tour as another one are rejected before selection and before survivors are chosen,
+     * by fingerprints of tours, which are computed along with the fitness.
+     */
+    private boolean duplicateRejection;
+
+    /**
+     * The number of offspring produced by each step of the steady-state mode, in which they replace the worst
+     * solutions in place, or 0 if the whole population is replaced every generation.
+     */
+    private int steadyStateSize;
+
+    /** The min-heap of indices of {@code solutions} by their fitness in the steady-state mode. */
+    private IndexedMinHeap worstHeap;
+
+    /**
+     * The index in {@code solutions} of a solution of each tour, by its fingerprint, in the steady-state mode if
+     * duplicates are rejected.
+     */
+    private Map<Long, Integer> indexByFingerprint;
+
+    /**
+     * The number of latest calls of each operator by which the chances of crossover and mutation operators are
+     * adapted, or 0 if the chances are static.
+     */
+    private int adaptiveWindow;
+
+    /** The adaptive chances of crossover and mutation operators, or {@code null} if the chances are static. */
+    private AdaptiveChances adaptiveCrossover;
+    private AdaptiveChances adaptiveMutation;
 
-    /** Priority queue of a certain number of best solutions. */
-    private PriorityQueue<Solution> bestQueueNatural;
-    private PriorityQueue<Solution> bestQueueReverse;
+    /** If solutions are kept in a packed population, instead of {@code solutions}. */
+    private boolean packedPopulation;
+
+    /**
+     * The packed population if it's used, or {@code null} otherwise. Its slots are laid out as parents of
+     * the current generation, offspring after crossover, two for each parent, offspring after mutation, one for
+     * each offspring after crossover, and parents of the next generation, and the two regions of parents take
+     * turns from generation to generation.
+     */
+    private PackedPopulation packed;
+
+    /** The first slot of parents of the current generation in {@code packed}. */
+    private int parentBase;
+
+    /** Archive of a certain number of best solutions, one of which is the best of a generation. */
+    private EliteArchive bestQueue;
 
     /** Current generation number. */
     private int gen;
@@ -66,11 +138,30 @@ public final class SolutionGroup implements Population<Solution> {
     /** The number of generation for which the best solution lasts. */
     private int stayGeneration;
 
+    /** The time when this solution group was initialized, and when its best solution was improved last time. */
+    private long initializedNanos;
+    private long improvedNanos;
+
+    /** Listeners notified after each generation, which may be added by other threads while evolving. */
+    private final List<GenerationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** The token by which the evolution is cancelled between generations, or {@code null}. */
+    private volatile CancellationToken cancellationToken;
+
+    /** The best solution that ever appeared, which is published to other threads. */
+    private volatile Solution bestSoFar;
+
+    /**
+     * The file to which a checkpoint is written every {@code checkpointInterval} generations and when the
+     * evolution stops, and from which this solution group is resumed when it's initialized, or {@code null}.
+     */
+    private File checkpointFile;
+    private int checkpointInterval;
+    private CheckpointFile checkpoint;
+
     private SolutionGroup() {
         solutions = new ArrayList<>();
-        random = new Random();
-        bestQueueNatural = new PriorityQueue<>();
-        bestQueueReverse = new PriorityQueue<>(Comparator.reverseOrder());
+        random = new RandomStream();
     }
 
     @Override
@@ -89,45 +180,155 @@ public final class SolutionGroup implements Population<Solution> {
         selectionChances = getChancesByWeights(selectionOperators);
         crossoverChances = getChancesByWeights(crossoverOperators);
         mutationChances = getChancesByWeights(mutationOperators);
-        for (int i = 0; i < populationSize; ++i) {
-            int index = randIndexByGeneratingChances();
-            Solution solution = generatingOperators.get(index).generate();
-            solutions.add(solution);
+        if (adaptiveWindow > 0) {
+            adaptiveCrossover = new AdaptiveChances(crossoverChances, adaptiveWindow);
+            adaptiveMutation = new AdaptiveChances(mutationChances, adaptiveWindow);
+        }
+        int length = TspSolver.getPoints().size();
+        CheckpointFile.Checkpoint resumed = readCheckpoint(length);
+        List<Solution> resumedQueue = new ArrayList<>();
+        if (resumed != null) {
+            resumed.getSolutions(solutions, resumedQueue);
+            for (Solution solution : solutions) {
+                evaluate(solution);
+            }
+            random = resumed.getRandom();
+        } else {
+            solutions.addAll(runInChunks(populationSize, (from, to, chunkRandom) -> {
+                List<Solution> generated = new ArrayList<>(to - from);
+                for (int i = from; i < to; ++i) {
+                    int index = randIndexByChances(generatingChances, chunkRandom);
+                    Solution solution = generatingOperators.get(index).generate();
+                    evaluate(solution);
+                    generated.add(solution);
+                }
+                return generated;
+            }));
+        }
+        if (packedPopulation) {
+            packed = new PackedPopulation(solutions.get(0).gene().length, 6 * populationSize);
+            for (int i = 0; i < populationSize; ++i) {
+                packed.set(i, solutions.get(i));
+            }
+            solutions.clear();
+            parentBase = 0;
+            updatePackedBest();
+        } else {
+            genePool = new GenePool(solutions.get(0).gene().length, GENE_POOL_CAPACITY_FACTOR * populationSize);
+            best = SolutionRanking.best(solutions);
+        }
+        if (resumed != null) {
+            /* Solutions of the best queue were shared by getBest() when they were inserted. */
+            for (Solution solution : resumedQueue) {
+                solution.markShared();
+                bestQueue.offer(solution);
+            }
+            gen = resumed.getGen();
+            stayGeneration = resumed.getStayGeneration();
+            initializedNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(resumed.getElapsedMillis());
+        } else {
+            bestQueue.offer(getBest());
+            gen = 0;
+            stayGeneration = 1;
+            initializedNanos = System.nanoTime();
+        }
+        improvedNanos = System.nanoTime();
+        bestSoFar = bestQueue.best();
+        if (checkpointFile != null) {
+            checkpoint = new CheckpointFile(checkpointFile, TspSolver.getInstance().getName(), length);
         }
-        Solution bestOne = getBest();
-        bestQueueNatural.offer(bestOne);
-        bestQueueReverse.offer(bestOne);
-        gen = 0;
-        stayGeneration = 1;
     }
 
-    private int randIndexByGeneratingChances() {
-        double p = random.nextDouble();
-        for (int i = 0; i < generatingChances.length; ++i) {
-            if (p >= generatingChances[i])
-                p -= generatingChances[i];
-            else
-                return i;
+    /**
+     * Reads the checkpoint of this solution group if it has a checkpoint file from which it could be resumed.
+     *
+     * @param length the length of genes
+     * @return the checkpoint, or {@code null} if there is no valid one
+     */
+    private CheckpointFile.Checkpoint readCheckpoint(int length) {
+        if (checkpointFile == null) {
+            return null;
+        }
+        try {
+            CheckpointFile.Checkpoint resumed = CheckpointFile.read(checkpointFile, TspSolver.getInstance().getName(), length);
+            if (resumed != null && resumed.getSolutionCount() != populationSize) {
+                String m = String.format("Checkpoint [%s] is of another population size: %d, populationSize=%d",
+                        checkpointFile, resumed.getSolutionCount(), populationSize);
+                throw new RuntimeException(m);
+            }
+            return resumed;
+        } catch (IOException e) {
+            String m = String.format("Checkpoint [%s] could not be read.", checkpointFile);
+            throw new RuntimeException(m, e);
         }
-        return 0;
     }
 
-    private int randIndexByCrossoverChances() {
-        double p = random.nextDouble();
-        for (int i = 0; i < crossoverChances.length; ++i) {
-            if (p >= crossoverChances[i])
-                p -= crossoverChances[i];
-            else
-                return i;
+    /** Takes a checkpoint of the state after the current generation, which is written in background. */
+    private void writeCheckpoint() {
+        List<Solution> current = solutions;
+        if (packed != null) {
+            current = new ArrayList<>(populationSize);
+            for (int i = 0; i < populationSize; ++i) {
+                current.add(packed.get(parentBase + i));
+            }
         }
-        return 0;
+        checkpoint.append(gen, stayGeneration, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - initializedNanos),
+                random, current, bestQueue.toList());
+    }
+
+    /**
+     * Splits a random stream from that of this solution group, such as for the island which it is.
+     *
+     * @return the random stream
+     */
+    RandomStream splitRandom() {
+        return random.split();
+    }
+
+    /** Waits until all checkpoints taken are written, which is for tests. */
+    void flushCheckpoint() {
+        if (checkpoint != null) {
+            checkpoint.flush();
+        }
+    }
+
+    @Override
+    public void addGenerationListener(GenerationListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    private boolean isCancelled() {
+        CancellationToken token = cancellationToken;
+        return token != null && token.isCancelled();
+    }
+
+    @Override
+    public Solution getBestSoFar() {
+        return bestSoFar;
+    }
+
+    /**
+     * Gets a snapshot of the statistics of this solution group after the current generation.
+     *
+     * @return the statistics
+     */
+    public GenerationStatistics getStatistics() {
+        long now = System.nanoTime();
+        return new GenerationStatistics(gen, stayGeneration, bestQueue.best().getDistance(),
+                bestQueue.fitnessDifference(), bestQueue.isFull(),
+                TimeUnit.NANOSECONDS.toMillis(now - initializedNanos), TimeUnit.NANOSECONDS.toMillis(now - improvedNanos));
     }
 
-    private int randIndexByMutationChances() {
+    private static int randIndexByChances(double[] chances, Random random) {
         double p = random.nextDouble();
-        for (int i = 0; i < mutationChances.length; ++i) {
-            if (p >= mutationChances[i])
-                p -= mutationChances[i];
+        for (int i = 0; i < chances.length; ++i) {
+            if (p >= chances[i])
+                p -= chances[i];
             else
                 return i;
         }
@@ -136,35 +337,54 @@ public final class SolutionGroup implements Population<Solution> {
 
     @Override
     public void evolve(Condition stopCondition) {
+        evolve(stopCondition, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Makes this solution group evolve until the stop condition is met, or for at most {@code maxGenerations}
+     * generations, so that it could be paused, such as to exchange solutions with others, and then go on.
+     *
+     * @param stopCondition the stop condition which needs to be met to stop the evolution
+     * @param maxGenerations the max number of generations to evolve for
+     * @return {@code true} if the stop condition was met, or the evolution was cancelled
+     */
+    public boolean evolve(Condition stopCondition, int maxGenerations) {
         if (populationSize <= 1) {
             String m = String.format("Population size is not greater than 1: populationSize=%d", populationSize);
             throw new RuntimeException(m);
         }
+        if (maxGenerations <= 0) {
+            String m = String.format("Max generations to evolve for is not positive: maxGenerations=%d", maxGenerations);
+            throw new RuntimeException(m);
+        }
 
+        if (isCancelled()) {
+            return true;
+        }
+        GenerationCondition condition = GenerationCondition.of(stopCondition);
         boolean stopFlag = false;
+        int generations = 0;
+        if (steadyStateSize > 0) {
+            /* Solutions may have been replaced by immigrants since the last call. */
+            buildSteadyStateIndex();
+        }
         do {
             gen++;
-
-            /* Remains the top x solutions before crossover. */
-            List<Solution> topXList = getTopK(solutions, topX);
-            List<Solution> afterCrossover = crossoverParents(solutions);
-
-            /* Remains the top y solutions before mutation. */
-            List<Solution> topYList = getTopK(afterCrossover, topY);
-            List<Solution> afterMutation = mutateOffspring(afterCrossover);
-
-            /* Remains the top z solutions before selection. */
-            List<Solution> topZList = getTopK(afterMutation, topZ);
-            List<Solution> afterSelection = selectParents(afterMutation);
-
-            afterSelection.addAll(topXList);
-            afterSelection.addAll(topYList);
-            afterSelection.addAll(topZList);
-            afterSelection.sort(Comparator.reverseOrder());
-            solutions = afterSelection.subList(0, populationSize);
+            generations++;
+            if (adaptiveWindow > 0) {
+                adaptiveCrossover.update();
+                adaptiveMutation.update();
+            }
+            if (packed != null) {
+                nextPackedGeneration();
+            } else if (steadyStateSize > 0) {
+                nextSteadyStateGeneration();
+            } else {
+                nextGeneration();
+            }
 
             Solution theBest = getBest();
-            Solution bestByNow  = bestQueueReverse.element();
+            Solution bestByNow  = bestQueue.best();
 
             /* Increases the age of the best solution. */
             if (bestByNow.compareTo(theBest) >= 0) {
@@ -172,98 +392,678 @@ public final class SolutionGroup implements Population<Solution> {
             }
             else {
                 stayGeneration = 1;
+                improvedNanos = System.nanoTime();
+                bestSoFar = theBest;
             }
 
-            /* Inserts the best one of this generation into the priority queues. */
-            if (bestQueueNatural.size() < bestQueueSize) {
-                bestQueueNatural.add(theBest);
-                bestQueueReverse.add(theBest);
-            } else {
-                Solution theWorst = bestQueueNatural.element();
-                if (theWorst.compareTo(theBest) < 0) {
-                    bestQueueNatural.remove();
-                    bestQueueReverse.remove(theWorst);
-                    bestQueueNatural.offer(theBest);
-                    bestQueueReverse.offer(theBest);
-                }
+            /* Inserts the best one of this generation into the archive, in place of the worst one if it's full. */
+            bestQueue.offer(theBest);
+
+            GenerationStatistics statistics = getStatistics();
+            for (GenerationListener listener : listeners) {
+                listener.onGeneration(statistics);
             }
 
             /* Decides if the evolution should be stopped. */
-            if (stopCondition instanceof Condition.MinGenerationCondition) {
-                if (((Condition.MinGenerationCondition) stopCondition).isMet(gen)) {
-                    stopFlag = true;
+            stopFlag = condition.isMet(statistics) || isCancelled();
+            if (checkpoint != null && (stopFlag || gen % checkpointInterval == 0)) {
+                writeCheckpoint();
+                if (stopFlag) {
+                    checkpoint.close();
                 }
-            } else if (stopCondition instanceof Condition.BestWorstDifferenceCondition) {
-                Solution bestOne = bestQueueReverse.element();
-                Solution worstOne = bestQueueNatural.element();
-                double difference = bestOne.getFitness() - worstOne.getFitness();
-                if (bestQueueNatural.size() == bestQueueSize &&
-                        ((Condition.BestWorstDifferenceCondition) stopCondition).isMet(difference)) {
-                    stopFlag = true;
+            }
+        } while (!stopFlag && generations < maxGenerations);
+        return stopFlag;
+    }
+
+    /** Produces the next generation of {@code solutions}, and updates the best one. */
+    private void nextGeneration() {
+        List<Solution> previous = solutions;
+
+        /* Remains the top x solutions before crossover. */
+        List<Solution> topXList = getTopK(solutions, topX);
+        List<Solution> afterCrossover = crossoverParents(solutions);
+
+        /* Remains the top y solutions before mutation. */
+        List<Solution> topYList = getTopK(afterCrossover, topY);
+        List<Solution> afterMutation = mutateOffspring(afterCrossover);
+        List<Solution> candidates = afterMutation;
+        if (duplicateRejection) {
+            candidates = afterMutation.subList(0, moveDuplicatesBack(afterMutation));
+        }
+
+        /* Remains the top z solutions before selection. */
+        List<Solution> topZList = getTopK(candidates, Math.min(topZ, candidates.size()));
+        List<Solution> afterSelection = selectParents(candidates);
+
+        afterSelection.addAll(topXList);
+        afterSelection.addAll(topYList);
+        afterSelection.addAll(topZList);
+        if (duplicateRejection) {
+            solutions = getDistinctSurvivors(afterSelection, candidates);
+        } else {
+            solutions = getTopK(afterSelection, populationSize);
+        }
+        best = SolutionRanking.best(solutions);
+        recycle(previous, afterCrossover, afterMutation);
+    }
+
+    /**
+     * Produces as many offspring as {@code populationSize} by steps of the steady-state mode, which is counted as
+     * a generation.
+     */
+    private void nextSteadyStateGeneration() {
+        for (int produced = 0; produced < populationSize; produced += steadyStateSize) {
+            steadyStateStep();
+        }
+    }
+
+    /** Builds the heap of the worst solutions, and the index of tours if duplicates are rejected. */
+    private void buildSteadyStateIndex() {
+        double[] fitness = new double[solutions.size()];
+        for (int i = 0; i < fitness.length; ++i) {
+            fitness[i] = solutions.get(i).getFitness();
+        }
+        worstHeap = new IndexedMinHeap(fitness);
+        if (duplicateRejection) {
+            indexByFingerprint = new HashMap<>(2 * fitness.length);
+            for (int i = 0; i < fitness.length; ++i) {
+                indexByFingerprint.putIfAbsent(solutions.get(i).getFingerprint(), i);
+            }
+        }
+    }
+
+    /**
+     * Produces {@code steadyStateSize} offspring of random pairs of parents, each of which replaces the worst
+     * solution in place if it's better, and isn't of the same tour as another one if duplicates are rejected.
+     * Finding the worst solution and updating it take O(log n), and the best one is updated in O(1).
+     */
+    private void steadyStateStep() {
+        List<Solution> population = solutions;
+        int len = population.size();
+        List<Solution> offspring = runInChunks((steadyStateSize + 1) / 2, (from, to, chunkRandom) -> {
+            List<Solution> produced = new ArrayList<>();
+            for (int i = from; i < to; ++i) {
+                int idx1 = chunkRandom.nextInt(len), idx2;
+                do {
+                    idx2 = chunkRandom.nextInt(len);
+                } while (idx2 == idx1);
+                Solution p1 = population.get(idx1);
+                Solution p2 = population.get(idx2);
+                List<Solution> children;
+                if (chunkRandom.nextDouble() > crossoverProbability) {
+                    children = Arrays.asList(p1, p2);
+                } else {
+                    int index = pickCrossoverOperator(chunkRandom);
+                    long start = System.nanoTime();
+                    children = crossover(crossoverOperators.get(index), p1, p2);
+                    if (adaptiveCrossover != null) {
+                        children.forEach(this::evaluate);
+                        recordCrossover(index, p1, p2, children, start);
+                    }
                 }
-            } else if (stopCondition instanceof Condition.BestStayGenerationCondition) {
-                if (((Condition.BestStayGenerationCondition) stopCondition).isMet(stayGeneration)) {
-                    stopFlag = true;
+                for (Solution child : children) {
+                    int index = pickMutationOperator(chunkRandom);
+                    if (chunkRandom.nextDouble() <= mutationProbability) {
+                        long start = System.nanoTime();
+                        Solution mutated = mutate(mutationOperators.get(index), child);
+                        if (adaptiveMutation != null) {
+                            evaluate(mutated);
+                            recordMutation(index, child.getDistance(), mutated.getDistance(), start);
+                        }
+                        if (child != p1 && child != p2) {
+                            discard(child);
+                        }
+                        child = mutated;
+                    } else if (child == p1 || child == p2) {
+                        /* A parent itself is already in the population. */
+                        continue;
+                    }
+                    evaluate(child);
+                    produced.add(child);
                 }
-            } else if (stopCondition instanceof StopCondition) {
-                Solution bestOne = bestQueueReverse.element();
-                Solution worstOne = bestQueueNatural.element();
-                double difference = bestOne.getFitness() - worstOne.getFitness();
-                if (((StopCondition) stopCondition).isMet(gen, stayGeneration, difference)) {
-                    stopFlag = true;
+            }
+            return produced;
+        });
+        for (Solution child : offspring) {
+            int worst = worstHeap.peek();
+            Solution replaced = population.get(worst);
+            if (Double.compare(child.getFitness(), replaced.getFitness()) <= 0 || isDuplicate(child)) {
+                discard(child);
+                continue;
+            }
+            population.set(worst, child);
+            worstHeap.update(worst, child.getFitness());
+            if (duplicateRejection) {
+                indexByFingerprint.remove(replaced.getFingerprint(), worst);
+                indexByFingerprint.putIfAbsent(child.getFingerprint(), worst);
+            }
+            if (Double.compare(child.getFitness(), best.getFitness()) > 0) {
+                best = child;
+            }
+            discard(replaced);
+        }
+    }
+
+    /** Checks if a solution is of the same tour as one in the population, in the steady-state mode. */
+    private boolean isDuplicate(Solution solution) {
+        if (!duplicateRejection) {
+            return false;
+        }
+        Integer index = indexByFingerprint.get(solution.getFingerprint());
+        return index != null && solutions.get(index).sameTour(solution);
+    }
+
+    /** Returns the gene of a solution no longer in use to the gene pool, unless it's shared. */
+    private void discard(Solution solution) {
+        if (!solution.isShared()) {
+            genePool.release(solution.releaseGene());
+        }
+    }
+
+    /**
+     * Produces the next generation in the packed population, in the same way as {@link #nextGeneration()} and with
+     * the same random streams, so the results are the same for a given seed. Each step refers to solutions by
+     * their slots, and the survivors are copied into the region of parents of the next generation.
+     */
+    private void nextPackedGeneration() {
+        double[] fitness = packed.fitness();
+        int[] parentRefs = getParentRefs();
+
+        /* Remains the top x solutions before crossover. */
+        int[] topXRefs = SolutionRanking.topK(parentRefs, populationSize, fitness, topX);
+        int[] crossoverRefs = crossoverPackedParents();
+
+        /* Remains the top y solutions before mutation. */
+        int[] topYRefs = SolutionRanking.topK(crossoverRefs, crossoverRefs.length, fitness, topY);
+        int[] mutationRefs = mutatePackedOffspring(crossoverRefs);
+        int candidates = (duplicateRejection ? moveDuplicateRefsBack(mutationRefs, mutationRefs.length) : mutationRefs.length);
+
+        /* Remains the top z solutions before selection. */
+        int[] topZRefs = SolutionRanking.topK(mutationRefs, candidates, fitness, Math.min(topZ, candidates));
+        int[] selectionRefs = selectPackedParents(mutationRefs, candidates, topXRefs.length + topYRefs.length + topZRefs.length);
+
+        int count = populationSize;
+        for (int[] refs : Arrays.asList(topXRefs, topYRefs, topZRefs)) {
+            System.arraycopy(refs, 0, selectionRefs, count, refs.length);
+            count += refs.length;
+        }
+        int[] survivors;
+        if (duplicateRejection) {
+            survivors = getDistinctSurvivorRefs(selectionRefs, count, mutationRefs, candidates);
+        } else {
+            survivors = SolutionRanking.topK(selectionRefs, count, fitness, populationSize);
+        }
+        int base = getNextParentBase();
+        for (int i = 0; i < populationSize; ++i) {
+            packed.copy(survivors[i], base + i);
+        }
+        parentBase = base;
+        updatePackedBest();
+    }
+
+    /**
+     * Crosses over the parents in the packed population, each with a random other one, into the region of
+     * offspring after crossover, whose fitness is evaluated by the same task.
+     *
+     * @return the slots of offspring after crossover, two for each parent, which are those of parents if they
+     *         weren't crossed over
+     */
+    private int[] crossoverPackedParents() {
+        int len = populationSize;
+        int[] refs = new int[2 * len];
+        int[] genes = packed.genes();
+        int length = packed.getLength();
+        int offspringBase = populationSize;
+        runInChunks(len, (from, to, chunkRandom) -> {
+            double[] deltas = new double[2];
+            for (int i = from; i < to; ++i) {
+                int idx;
+                do {
+                    idx = chunkRandom.nextInt(len);
+                } while (idx == i);
+                int p1 = parentBase + i;
+                int p2 = parentBase + idx; // p2 must be different from p1
+                refs[2 * i] = p1;
+                refs[2 * i + 1] = p2;
+                double rate = chunkRandom.nextDouble();
+                if (rate > crossoverProbability) {
+                    continue;
+                }
+                int index = pickCrossoverOperator(chunkRandom);
+                InPlaceCrossoverOperator operator = (InPlaceCrossoverOperator) crossoverOperators.get(index);
+                int o1 = offspringBase + 2 * i, o2 = o1 + 1;
+                long start = System.nanoTime();
+                if (operator.crossover(genes, packed.offsetOf(p1), genes, packed.offsetOf(p2),
+                        genes, packed.offsetOf(o1), genes, packed.offsetOf(o2), length, deltas)) {
+                    evaluatePacked(o1, p1, deltas[0]);
+                    evaluatePacked(o2, p2, deltas[1]);
+                    refs[2 * i] = o1;
+                    refs[2 * i + 1] = o2;
                 }
+                if (adaptiveCrossover != null) {
+                    double before = Math.min(packed.getDistance(p1), packed.getDistance(p2));
+                    double after = Math.min(packed.getDistance(refs[2 * i]), packed.getDistance(refs[2 * i + 1]));
+                    adaptiveCrossover.record(index, Math.max(before - after, 0), System.nanoTime() - start);
+                }
+            }
+            return Collections.emptyList();
+        });
+        return refs;
+    }
+
+    /**
+     * Mutates the offspring after crossover in the packed population into the region of offspring after mutation,
+     * whose fitness is evaluated by the same task.
+     *
+     * @param crossoverRefs the slots of offspring after crossover
+     * @return the slots of offspring after mutation, which are those after crossover if they weren't mutated
+     */
+    private int[] mutatePackedOffspring(int[] crossoverRefs) {
+        int[] refs = new int[crossoverRefs.length];
+        int[] genes = packed.genes();
+        int length = packed.getLength();
+        int offspringBase = 3 * populationSize;
+        runInChunks(crossoverRefs.length, (from, to, chunkRandom) -> {
+            for (int j = from; j < to; ++j) {
+                int index = pickMutationOperator(chunkRandom);
+                double rate = chunkRandom.nextDouble();
+                if (rate > mutationProbability) {
+                    refs[j] = crossoverRefs[j];
+                    continue;
+                }
+                InPlaceMutationOperator operator = (InPlaceMutationOperator) mutationOperators.get(index);
+                int slot = offspringBase + j;
+                long start = System.nanoTime();
+                double delta = operator.mutate(genes, packed.offsetOf(crossoverRefs[j]), genes, packed.offsetOf(slot), length);
+                evaluatePacked(slot, crossoverRefs[j], delta);
+                refs[j] = slot;
+                recordMutation(index, packed.getDistance(crossoverRefs[j]), packed.getDistance(slot), start);
+            }
+            return Collections.emptyList();
+        });
+        return refs;
+    }
+
+    /**
+     * Selects as many slots as {@code populationSize} of offspring after mutation in the packed population,
+     * by their fitness.
+     *
+     * @param mutationRefs the slots of offspring after mutation
+     * @param count the number of the first slots to select from
+     * @param extra the number of free elements left at the end of the returned array
+     * @return the selected slots, followed by {@code extra} free elements
+     */
+    private int[] selectPackedParents(int[] mutationRefs, int count, int extra) {
+        double[] fitness = new double[count];
+        for (int j = 0; j < count; ++j) {
+            fitness[j] = packed.getFitness(mutationRefs[j]);
+        }
+        int[] selected = new int[populationSize + extra];
+        /* Selection is a single task, which is run in the caller thread. */
+        runInChunks(1, (from, to, chunkRandom) -> {
+            int cnt = 0;
+            for (int i = 0; i < selectionChances.length - 1; ++i) {
+                int targetSize = (int) (selectionChances[i] * populationSize);
+                ((IndexSelectionOperator) selectionOperators.get(i)).select(fitness, count, targetSize, selected, cnt);
+                cnt += targetSize;
+            }
+            ((IndexSelectionOperator) selectionOperators.get(selectionChances.length - 1))
+                    .select(fitness, count, populationSize - cnt, selected, cnt);
+            return Collections.emptyList();
+        });
+        for (int i = 0; i < populationSize; ++i) {
+            selected[i] = mutationRefs[selected[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the survivors of distinct tours in the packed population, in the same way as
+     * {@link #getDistinctSurvivors(List, List)}.
+     *
+     * @param selectionRefs the slots of selected solutions and the top ones, which are reordered
+     * @param count the number of slots in {@code selectionRefs}
+     * @param candidateRefs the slots of distinct offspring after mutation
+     * @param candidates the number of slots in {@code candidateRefs}
+     * @return the slots of survivors
+     */
+    private int[] getDistinctSurvivorRefs(int[] selectionRefs, int count, int[] candidateRefs, int candidates) {
+        double[] fitness = packed.fitness();
+        int distinct = moveDuplicateRefsBack(selectionRefs, count);
+        if (distinct >= populationSize) {
+            return SolutionRanking.topK(selectionRefs, distinct, fitness, populationSize);
+        }
+        int[] pool = new int[distinct + candidates];
+        System.arraycopy(selectionRefs, 0, pool, 0, distinct);
+        System.arraycopy(candidateRefs, 0, pool, distinct, candidates);
+        int others = moveDuplicateRefsBack(pool, pool.length) - distinct;
+        int[] rest = Arrays.copyOfRange(pool, distinct, distinct + others);
+        int[] fill = SolutionRanking.topK(rest, others, fitness, Math.min(populationSize - distinct, others));
+        int[] survivors = new int[populationSize];
+        System.arraycopy(pool, 0, survivors, 0, distinct);
+        System.arraycopy(fill, 0, survivors, distinct, fill.length);
+        int size = distinct + fill.length;
+        System.arraycopy(selectionRefs, distinct, survivors, size, populationSize - size);
+        return survivors;
+    }
+
+    /** Evaluates a slot written by an operator, and computes its fingerprint if duplicates are rejected. */
+    private void evaluatePacked(int slot, int parent, double delta) {
+        packed.evaluate(slot, parent, delta);
+        if (duplicateRejection) {
+            packed.fingerprint(slot);
+        }
+    }
+
+    /**
+     * Moves the slots of duplicate tours in a range of an array after the distinct ones, keeping the order of both.
+     *
+     * @param refs the slots
+     * @param count the number of the first slots to check
+     * @return the number of distinct ones, which are the first ones of the range
+     */
+    private int moveDuplicateRefsBack(int[] refs, int count) {
+        Map<Long, Integer> firstByFingerprint = new HashMap<>(2 * count);
+        int[] duplicates = new int[count];
+        int distinct = 0, duplicate = 0;
+        for (int i = 0; i < count; ++i) {
+            int ref = refs[i];
+            Integer first = firstByFingerprint.putIfAbsent(packed.getFingerprint(ref), ref);
+            if (first != null && packed.sameTour(first, ref)) {
+                duplicates[duplicate++] = ref;
+            } else {
+                refs[distinct++] = ref;
             }
-        } while (!stopFlag);
+        }
+        System.arraycopy(duplicates, 0, refs, distinct, duplicate);
+        return distinct;
+    }
+
+    private int[] getParentRefs() {
+        int[] refs = new int[populationSize];
+        for (int i = 0; i < populationSize; ++i) {
+            refs[i] = parentBase + i;
+        }
+        return refs;
+    }
+
+    /** Gets the first slot of the region of parents which doesn't hold the current generation. */
+    private int getNextParentBase() {
+        return (parentBase == 0 ? 5 * populationSize : 0);
+    }
+
+    /** Updates the best solution from the parents in the packed population, which is taken out only if it changed. */
+    private void updatePackedBest() {
+        int slot = SolutionRanking.best(getParentRefs(), populationSize, packed.fitness());
+        if (best == null || Double.compare(packed.getFitness(slot), best.getFitness()) != 0
+                || !packed.geneEquals(slot, best)) {
+            best = packed.get(slot);
+        }
+    }
+
+    /**
+     * Gets the best solutions of this solution group, such as to send them to other solution groups.
+     *
+     * @param count the number of solutions to get
+     * @return at most {@code count} best solutions
+     */
+    public List<Solution> getBest(int count) {
+        if (packed != null) {
+            int[] refs = SolutionRanking.topK(getParentRefs(), populationSize, packed.fitness(),
+                    Math.min(count, populationSize));
+            List<Solution> list = new ArrayList<>(refs.length);
+            for (int ref : refs) {
+                list.add(packed.get(ref));
+            }
+            return list;
+        }
+        List<Solution> list = getTopK(solutions, Math.min(count, solutions.size()));
+        for (Solution solution : list) {
+            solution.markShared();
+        }
+        return list;
     }
 
     /**
-     * Crossover the input parents to get more offspring.
+     * Replaces as many worst solutions of this solution group as the immigrants with them, between generations.
+     *
+     * @param immigrants the solutions from other solution groups, which are not more than the population size
+     */
+    public void immigrate(List<Solution> immigrants) {
+        if (immigrants.isEmpty()) {
+            return;
+        }
+        int size = (packed != null ? populationSize : solutions.size());
+        if (immigrants.size() > size) {
+            String m = String.format("More immigrants than solutions: immigrants=%d, solutions=%d", immigrants.size(), size);
+            throw new RuntimeException(m);
+        }
+        if (packed != null) {
+            int[] survivors = SolutionRanking.topK(getParentRefs(), size, packed.fitness(), size - immigrants.size());
+            int base = getNextParentBase();
+            for (int i = 0; i < survivors.length; ++i) {
+                packed.copy(survivors[i], base + i);
+            }
+            for (int i = 0; i < immigrants.size(); ++i) {
+                packed.set(base + survivors.length + i, immigrants.get(i));
+            }
+            parentBase = base;
+            updatePackedBest();
+            return;
+        }
+        List<Solution> survivors = getTopK(solutions, solutions.size() - immigrants.size());
+        for (Solution immigrant : immigrants) {
+            immigrant.markShared();
+        }
+        survivors.addAll(immigrants);
+        solutions = survivors;
+        best = SolutionRanking.best(solutions);
+    }
+
+    /**
+     * Crossover the input parents to get more offspring, whose fitness is evaluated by the same task.
      *
      * @param parents the input parents
      * @return the offspring after crossover
      */
     private List<Solution> crossoverParents(List<Solution> parents) {
-        List<Solution> afterCrossover = new ArrayList<>();
         int len = parents.size();
-        for (int i = 0; i < len; ++i) {
-            int idx;
-            do {
-                idx = random.nextInt(len);
-            } while (idx == i);
-            Solution p1 = parents.get(i);
-            Solution p2 = parents.get(idx); // p2 must be different from p1
-            double rate = random.nextDouble();
-            if (rate > crossoverProbability) {
-                afterCrossover.add(p1);
-                afterCrossover.add(p2);
-                continue;
+        return runInChunks(len, (from, to, chunkRandom) -> {
+            List<Solution> afterCrossover = new ArrayList<>();
+            for (int i = from; i < to; ++i) {
+                int idx;
+                do {
+                    idx = chunkRandom.nextInt(len);
+                } while (idx == i);
+                Solution p1 = parents.get(i);
+                Solution p2 = parents.get(idx); // p2 must be different from p1
+                double rate = chunkRandom.nextDouble();
+                if (rate > crossoverProbability) {
+                    afterCrossover.add(p1);
+                    afterCrossover.add(p2);
+                    continue;
+                }
+                int index = pickCrossoverOperator(chunkRandom);
+                long start = System.nanoTime();
+                List<Solution> offspring = crossover(crossoverOperators.get(index), p1, p2);
+                for (Solution solution : offspring) {
+                    evaluate(solution);
+                }
+                recordCrossover(index, p1, p2, offspring, start);
+                afterCrossover.addAll(offspring);
             }
-            int index = randIndexByCrossoverChances();
-            List<Solution> offspring = crossoverOperators.get(index).crossover(p1, p2);
-            afterCrossover.addAll(offspring);
-        }
-        return afterCrossover;
+            return afterCrossover;
+        });
     }
 
     /**
-     * Mutates the input individuals to have different genotypes.
+     * Mutates the input individuals to have different genotypes, whose fitness is evaluated by the same task.
      *
      * @param originalList the original individuals to be mutated
      * @return mutated offspring, collected as {@code List}
      */
     private List<Solution> mutateOffspring(List<Solution> originalList) {
-        List<Solution> afterMutation = new ArrayList<>();
-        for (Solution solution : originalList) {
-            int index = randIndexByMutationChances();
-            double rate = random.nextDouble();
-            if (rate > mutationProbability) {
-                afterMutation.add(solution);
-                continue;
+        return runInChunks(originalList.size(), (from, to, chunkRandom) -> {
+            List<Solution> afterMutation = new ArrayList<>(to - from);
+            for (Solution solution : originalList.subList(from, to)) {
+                int index = pickMutationOperator(chunkRandom);
+                double rate = chunkRandom.nextDouble();
+                if (rate > mutationProbability) {
+                    afterMutation.add(solution);
+                    continue;
+                }
+                long start = System.nanoTime();
+                Solution newOne = mutate(mutationOperators.get(index), solution);
+                evaluate(newOne);
+                recordMutation(index, solution.getDistance(), newOne.getDistance(), start);
+                afterMutation.add(newOne);
+            }
+            return afterMutation;
+        });
+    }
+
+    private int pickCrossoverOperator(Random random) {
+        return (adaptiveCrossover != null ? adaptiveCrossover.sample(random) : randIndexByChances(crossoverChances, random));
+    }
+
+    private int pickMutationOperator(Random random) {
+        return (adaptiveMutation != null ? adaptiveMutation.sample(random) : randIndexByChances(mutationChances, random));
+    }
+
+    /**
+     * Records a call of a crossover operator started at {@code start} if chances are adaptive, by how much shorter
+     * the best offspring is than the best parent.
+     */
+    private void recordCrossover(int index, Solution p1, Solution p2, List<Solution> offspring, long start) {
+        if (adaptiveCrossover == null) {
+            return;
+        }
+        double before = Math.min(p1.getDistance(), p2.getDistance());
+        double after = Double.MAX_VALUE;
+        for (Solution solution : offspring) {
+            after = Math.min(after, solution.getDistance());
+        }
+        adaptiveCrossover.record(index, Math.max(before - after, 0), System.nanoTime() - start);
+    }
+
+    /** Records a call of a mutation operator started at {@code start} if chances are adaptive. */
+    private void recordMutation(int index, double before, double after, long start) {
+        if (adaptiveMutation != null) {
+            adaptiveMutation.record(index, Math.max(before - after, 0), System.nanoTime() - start);
+        }
+    }
+
+    /** Evaluates the fitness of a solution, and its fingerprint if duplicates are rejected. */
+    private void evaluate(Solution solution) {
+        solution.getFitness();
+        if (duplicateRejection) {
+            solution.getFingerprint();
+        }
+    }
+
+    /**
+     * Gets the survivors of distinct tours. They're the best ones of the distinct selected ones if there are enough,
+     * or all of them and then the best of other distinct offspring otherwise, so that selection still decides
+     * most survivors. Duplicates survive only if there are not enough distinct tours at all.
+     *
+     * @param afterSelection the selected solutions and the top ones, which are reordered
+     * @param candidates the distinct offspring after mutation
+     * @return the survivors
+     */
+    private List<Solution> getDistinctSurvivors(List<Solution> afterSelection, List<Solution> candidates) {
+        int distinct = moveDuplicatesBack(afterSelection);
+        if (distinct >= populationSize) {
+            return getTopK(afterSelection.subList(0, distinct), populationSize);
+        }
+        List<Solution> pool = new ArrayList<>(afterSelection.subList(0, distinct));
+        pool.addAll(candidates);
+        int others = moveDuplicatesBack(pool) - distinct;
+        List<Solution> survivors = new ArrayList<>(pool.subList(0, distinct));
+        survivors.addAll(getTopK(pool.subList(distinct, distinct + others), Math.min(populationSize - distinct, others)));
+        survivors.addAll(afterSelection.subList(distinct, distinct + populationSize - survivors.size()));
+        return survivors;
+    }
+
+    /**
+     * Moves solutions of duplicate tours in a list after the distinct ones, keeping the order of both.
+     *
+     * @param list the list of solutions
+     * @return the number of distinct ones, which are the first ones of the list
+     */
+    private static int moveDuplicatesBack(List<Solution> list) {
+        Map<Long, Solution> firstByFingerprint = new HashMap<>(2 * list.size());
+        List<Solution> duplicates = new ArrayList<>();
+        int distinct = 0;
+        for (int i = 0, n = list.size(); i < n; ++i) {
+            Solution solution = list.get(i);
+            Solution first = firstByFingerprint.putIfAbsent(solution.getFingerprint(), solution);
+            if (first != null && first.sameTour(solution)) {
+                duplicates.add(solution);
+            } else {
+                list.set(distinct++, solution);
+            }
+        }
+        for (int i = 0; i < duplicates.size(); ++i) {
+            list.set(distinct + i, duplicates.get(i));
+        }
+        return distinct;
+    }
+
+    /**
+     * Crosses over two parents by an operator, which writes the offspring into buffers of the gene pool if it's
+     * an {@code InPlaceCrossoverOperator}.
+     */
+    private List<Solution> crossover(WeightedOperator.WeightedCrossoverOperator<Integer, Solution> operator,
+                                     Solution p1, Solution p2) {
+        if (!(operator instanceof InPlaceCrossoverOperator)) {
+            return operator.crossover(p1, p2);
+        }
+        int[] offspring1 = genePool.acquire();
+        int[] offspring2 = genePool.acquire();
+        int length = offspring1.length;
+        double[] deltas = new double[2];
+        if (!((InPlaceCrossoverOperator) operator).crossover(p1.gene(), 0, p2.gene(), 0,
+                offspring1, 0, offspring2, 0, length, deltas)) {
+            genePool.release(offspring1);
+            genePool.release(offspring2);
+            return Arrays.asList(p1, p2);
+        }
+        return Arrays.asList(Solution.wrap(offspring1, p1, deltas[0]), Solution.wrap(offspring2, p2, deltas[1]));
+    }
+
+    /**
+     * Mutates a solution by an operator, which writes the result into a buffer of the gene pool if it's
+     * an {@code InPlaceMutationOperator}.
+     */
+    private Solution mutate(WeightedOperator.WeightedMutationOperator<Integer, Solution> operator, Solution solution) {
+        if (!(operator instanceof InPlaceMutationOperator)) {
+            return operator.mutate(solution);
+        }
+        int[] offspring = genePool.acquire();
+        double delta = ((InPlaceMutationOperator) operator).mutate(solution.gene(), offspring);
+        return Solution.wrap(offspring, solution, delta);
+    }
+
+    /**
+     * Returns the genes of solutions of the last generation and offspring of this one, which were not survived
+     * and never shared out of this solution group, to the gene pool.
+     *
+     * @param previous the solutions of the last generation
+     * @param afterCrossover the offspring after crossover
+     * @param afterMutation the offspring after mutation
+     */
+    private void recycle(List<Solution> previous, List<Solution> afterCrossover, List<Solution> afterMutation) {
+        /* Solutions may appear more than once, so each one is recycled only the first time it's seen. */
+        Set<Solution> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.addAll(solutions);
+        for (List<Solution> list : Arrays.asList(previous, afterCrossover, afterMutation)) {
+            for (Solution solution : list) {
+                if (!solution.isShared() && seen.add(solution)) {
+                    genePool.release(solution.releaseGene());
+                }
             }
-            Solution newOne = mutationOperators.get(index).mutate(solution);
-            afterMutation.add(newOne);
         }
-        return afterMutation;
     }
 
     /**
@@ -273,25 +1073,81 @@ public final class SolutionGroup implements Population<Solution> {
      * @return selected parents, collected as {@code List}
      */
     private List<Solution> selectParents(List<Solution> originalList) {
-        List<Solution> parent = new ArrayList<>(), sList;
-        int cnt = 0;
-        for (int i = 0; i < selectionChances.length - 1; ++i) {
-            int targetSize = (int) (selectionChances[i] * populationSize);
-            sList = selectionOperators.get(i).select(originalList, targetSize);
+        /* Selection is a single task, which is run in the caller thread. */
+        return runInChunks(1, (from, to, chunkRandom) -> {
+            List<Solution> parent = new ArrayList<>(), sList;
+            int cnt = 0;
+            for (int i = 0; i < selectionChances.length - 1; ++i) {
+                int targetSize = (int) (selectionChances[i] * populationSize);
+                sList = selectionOperators.get(i).select(originalList, targetSize);
+                parent.addAll(sList);
+                cnt += targetSize;
+            }
+            sList = selectionOperators.get(selectionChances.length - 1).select(originalList, populationSize - cnt);
             parent.addAll(sList);
-            cnt += targetSize;
+            return parent;
+        });
+    }
+
+    /**
+     * Splits {@code count} items into chunks of {@code CHUNK_SIZE}, and runs a task for each chunk, with its own
+     * random stream split in order from {@code random}. Tasks are run in {@code forkJoinPool} if there are more
+     * than one and the pool is set, or in the caller thread otherwise. Each task sees the TSP instance of the
+     * caller thread, and operators it runs draw from its random stream, so the results are the same for a given
+     * seed whether tasks are run in parallel or not.
+     *
+     * @param count the number of items
+     * @param task the task to run for each chunk
+     * @return the solutions returned by all tasks, in the order of the chunks
+     */
+    private List<Solution> runInChunks(int count, ChunkTask task) {
+        TspInstance instance = TspSolver.getInstance();
+        List<Solution> result = new ArrayList<>();
+        int chunks = Math.max((count + CHUNK_SIZE - 1) / CHUNK_SIZE, 1);
+        if (forkJoinPool == null || chunks == 1) {
+            for (int c = 0; c < chunks; ++c) {
+                int from = c * CHUNK_SIZE, to = Math.min(from + CHUNK_SIZE, count);
+                result.addAll(runChunk(instance, task, from, to, random.split()));
+            }
+            return result;
+        }
+        List<ForkJoinTask<List<Solution>>> submitted = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; ++c) {
+            int from = c * CHUNK_SIZE, to = Math.min(from + CHUNK_SIZE, count);
+            RandomStream chunkRandom = random.split();
+            submitted.add(forkJoinPool.submit(() -> runChunk(instance, task, from, to, chunkRandom)));
+        }
+        for (ForkJoinTask<List<Solution>> t : submitted) {
+            result.addAll(t.join());
+        }
+        return result;
+    }
+
+    private static List<Solution> runChunk(TspInstance instance, ChunkTask task, int from, int to, Random chunkRandom) {
+        /* Pooled threads keep nothing bound after the chunk, so an evicted instance is never kept reachable. */
+        Random previous = TspSolver.getRandom();
+        TspInstance previousInstance = TspSolver.bindInstance(instance);
+        TspSolver.bindRandom(chunkRandom);
+        try {
+            return task.run(from, to, chunkRandom);
+        } finally {
+            TspSolver.bindRandom(previous);
+            TspSolver.bindInstance(previousInstance);
         }
-        sList = selectionOperators.get(selectionChances.length - 1).select(originalList, populationSize - cnt);
-        parent.addAll(sList);
-        return parent;
     }
 
+    /**
+     * Gets the best solution, which is shared out of this solution group from now on, so its gene is never recycled.
+     *
+     * @return the best solution
+     */
     @Override
     public Solution getBest() {
-        solutions.sort(Comparator.reverseOrder());
-        return solutions.get(0);
+        best.markShared();
+        return best;
     }
 
+    @Override
     public int getGen() {
         return gen;
     }
@@ -308,15 +1164,31 @@ public final class SolutionGroup implements Population<Solution> {
     }
 
     /**
-     * Gets the best {@code number} solutions from the {@code list}.
+     * Gets the best {@code number} solutions from the {@code list}, without sorting it.
      *
      * @param list the input list
      * @param number the number "k"
-     * @return the top k list
+     * @return the top k list, in the order of the input list
      */
     private static List<Solution> getTopK(List<Solution> list, int number) {
-        list.sort(Comparator.reverseOrder());
-        return list.subList(0, number);
+        return SolutionRanking.topK(list, number);
+    }
+
+    /**
+     * A task which handles a chunk of items.
+     */
+    @FunctionalInterface
+    private interface ChunkTask {
+
+        /**
+         * Handles the items from {@code from}, inclusive, to {@code to}, exclusive.
+         *
+         * @param from the index of the first item
+         * @param to the index after the last item
+         * @param chunkRandom the random stream of this chunk
+         * @return the solutions got from the items
+         */
+        List<Solution> run(int from, int to, Random chunkRandom);
     }
 
     /**
@@ -334,6 +1206,16 @@ public final class SolutionGroup implements Population<Solution> {
 
         private int bestQueueSize;
 
+        private Long seed;
+        private RandomStream randomStream;
+        private ForkJoinPool forkJoinPool;
+        private boolean packedPopulation;
+        private boolean duplicateRejection;
+        private int steadyStateSize;
+        private int adaptiveWindow;
+        private File checkpointFile;
+        private int checkpointInterval;
+
         private List<WeightedOperator.WeightedGeneratingOperator<Integer, Solution>> generatingOperators;
         private List<WeightedOperator.WeightedSelectionOperator<Integer, Solution>> selectionOperators;
         private List<WeightedOperator.WeightedCrossoverOperator<Integer, Solution>> crossoverOperators;
@@ -407,7 +1289,130 @@ public final class SolutionGroup implements Population<Solution> {
             return this;
         }
 
+        /**
+         * Sets the seed of the pseudorandom number generator, so that the evolution is the same for a given seed.
+         *
+         * @param seed the seed
+         * @return this builder
+         */
+        public Builder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the random stream of this solution group, such as one split from the stream of a solver, so that
+         * the evolution is the same for a given seed of that stream. It takes the place of the seed.
+         *
+         * @param randomStream the random stream, which is used by this solution group only
+         * @return this builder
+         */
+        public Builder withRandomStream(RandomStream randomStream) {
+            this.randomStream = Objects.requireNonNull(randomStream);
+            return this;
+        }
+
+        /**
+         * Sets the pool in which solutions are generated, crossed over, mutated and evaluated in parallel.
+         * They're produced in the caller thread if no pool is set.
+         *
+         * @param forkJoinPool the pool, or {@code null} to produce solutions in the caller thread
+         * @return this builder
+         */
+        public Builder withForkJoinPool(ForkJoinPool forkJoinPool) {
+            this.forkJoinPool = forkJoinPool;
+            return this;
+        }
+
+        /**
+         * Sets if solutions are kept in a packed population, in which all genes are packed into one array,
+         * and operators read and write them in place. All crossover and mutation operators must be in-place ones,
+         * and all selection operators must be {@code IndexSelectionOperator}s.
+         *
+         * @param packedPopulation if the packed population is used
+         * @return this builder
+         */
+        public Builder withPackedPopulation(boolean packedPopulation) {
+            this.packedPopulation = packedPopulation;
+            return this;
+        }
+
+        /**
+         * Sets if solutions of the same tour as another one are rejected before selection and before survivors are
+         * chosen, so that the population is kept diverse. Tours are compared by their fingerprints, which don't
+         * depend on their first points or directions.
+         *
+         * @param duplicateRejection if duplicates are rejected
+         * @return this builder
+         */
+        public Builder withDuplicateRejection(boolean duplicateRejection) {
+            this.duplicateRejection = duplicateRejection;
+            return this;
+        }
+
+        /**
+         * Sets the steady-state mode, in which each step produces a few offspring of random pairs of parents, and
+         * each of them replaces the worst solution in place if it's better. As many offspring as the population
+         * size are counted as a generation. It can't be used with the packed population.
+         *
+         * @param steadyStateSize the number of offspring produced by each step, or 0 to replace the whole
+         *                        population every generation
+         * @return this builder
+         */
+        public Builder withSteadyState(int steadyStateSize) {
+            this.steadyStateSize = steadyStateSize;
+            return this;
+        }
+
+        /**
+         * Makes the chances of crossover and mutation operators adapt to the improvement of tour length each
+         * operator makes per nanosecond, over its latest calls, instead of being static by their weights. Since
+         * the chances depend on measured times, the evolution is no longer the same for a given seed.
+         *
+         * @param adaptiveWindow the number of latest calls of each operator taken into account, or 0 to keep
+         *                       the chances static
+         * @return this builder
+         */
+        public Builder withAdaptiveOperators(int adaptiveWindow) {
+            this.adaptiveWindow = adaptiveWindow;
+            return this;
+        }
+
+        /**
+         * Makes this solution group write checkpoints to a file, from which it's resumed instead of generating
+         * new solutions when it's initialized again, such as after the JVM died. The file of a solution group
+         * which finished is kept, so resuming from it just stops at once.
+         *
+         * @param checkpointFile the checkpoint file
+         * @param checkpointInterval the number of generations between checkpoints
+         * @return this builder
+         */
+        public Builder withCheckpoint(File checkpointFile, int checkpointInterval) {
+            this.checkpointFile = checkpointFile;
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
         public SolutionGroup build() {
+            if (checkpointFile != null && checkpointInterval <= 0) {
+                String m = String.format("Illegal checkpoint: checkpointFile = %s, checkpointInterval = %d",
+                        checkpointFile, checkpointInterval);
+                throw new RuntimeException(m);
+            }
+            if (adaptiveWindow < 0) {
+                String m = String.format("Illegal adaptive operators: adaptiveWindow = %d", adaptiveWindow);
+                throw new RuntimeException(m);
+            }
+            if (steadyStateSize < 0 || (steadyStateSize > 0 && packedPopulation)) {
+                String m = String.format("Illegal steady-state mode: steadyStateSize = %d, packedPopulation = %b",
+                        steadyStateSize, packedPopulation);
+                throw new RuntimeException(m);
+            }
+            if (packedPopulation) {
+                requireAll(crossoverOperators, InPlaceCrossoverOperator.class);
+                requireAll(mutationOperators, InPlaceMutationOperator.class);
+                requireAll(selectionOperators, IndexSelectionOperator.class);
+            }
             SolutionGroup solutionGroup = new SolutionGroup();
             solutionGroup.populationSize = Objects.requireNonNull(populationSize);
             solutionGroup.crossoverProbability = Objects.requireNonNull(crossoverProbability);
@@ -419,10 +1424,31 @@ public final class SolutionGroup implements Population<Solution> {
             solutionGroup.topX = topX;
             solutionGroup.topY = topY;
             solutionGroup.topZ = topZ;
-            solutionGroup.bestQueueSize = bestQueueSize;
+            solutionGroup.bestQueue = new EliteArchive(bestQueueSize);
+            if (randomStream != null) {
+                solutionGroup.random = randomStream;
+            } else if (seed != null) {
+                solutionGroup.random = new RandomStream(seed);
+            }
+            solutionGroup.forkJoinPool = forkJoinPool;
+            solutionGroup.packedPopulation = packedPopulation;
+            solutionGroup.duplicateRejection = duplicateRejection;
+            solutionGroup.steadyStateSize = steadyStateSize;
+            solutionGroup.adaptiveWindow = adaptiveWindow;
+            solutionGroup.checkpointFile = checkpointFile;
+            solutionGroup.checkpointInterval = checkpointInterval;
             return solutionGroup;
         }
 
+        private static void requireAll(List<?> operatorList, Class<?> type) {
+            for (Object operator : operatorList) {
+                if (!type.isInstance(operator)) {
+                    String m = String.format("Packed population needs [%s], but [%s] is not.", type.getSimpleName(), operator.getClass());
+                    throw new RuntimeException(m);
+                }
+            }
+        }
+
         private static <T extends List<? extends WeightedOperator<Integer>>> T requireNonEmpty(T operatorList) {
             if (operatorList.isEmpty()) {
                 String m = String.format("The instance of [%s] is empty.", operatorList.getClass());
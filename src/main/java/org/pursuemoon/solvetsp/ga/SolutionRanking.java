@@ -0,0 +1,164 @@
+package org.pursuemoon.solvetsp.ga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selection of the best solutions of a list, or of references to slots of a packed population, without sorting it.
+ *
+ * The fitness of each solution is read once into a primitive array, and the best k are found by quickselect
+ * in expected linear time. Solutions of equal fitness are ranked by their positions in the list, so that
+ * the result is the same set as the first k of a stable sort in reverse order.
+ */
+final class SolutionRanking {
+
+    private SolutionRanking() {}
+
+    /**
+     * Gets the best {@code k} solutions of a list, in their order in the list. The list is not modified.
+     *
+     * @param list the list of solutions
+     * @param k the number of solutions to get, which is not greater than the size of the list
+     * @return a new list of the best k solutions
+     */
+    static List<Solution> topK(List<Solution> list, int k) {
+        int n = list.size();
+        if (k < 0 || k > n) {
+            String m = String.format("Illegal k of top k: size = %d, k = %d", n, k);
+            throw new RuntimeException(m);
+        }
+        if (k == n) {
+            return new ArrayList<>(list);
+        }
+        double[] fitness = new double[n];
+        int[] indices = new int[n];
+        for (int i = 0; i < n; ++i) {
+            fitness[i] = list.get(i).getFitness();
+            indices[i] = i;
+        }
+        select(indices, fitness, k);
+        int[] top = Arrays.copyOf(indices, k);
+        Arrays.sort(top);
+        List<Solution> result = new ArrayList<>(k);
+        for (int i : top) {
+            result.add(list.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the best solution of a list, which is the first one if several are equally good.
+     *
+     * @param list the non-empty list of solutions
+     * @return the best solution
+     */
+    static Solution best(List<Solution> list) {
+        Solution best = list.get(0);
+        double bestFitness = best.getFitness();
+        for (int i = 1, n = list.size(); i < n; ++i) {
+            Solution solution = list.get(i);
+            double fitness = solution.getFitness();
+            if (Double.compare(fitness, bestFitness) > 0) {
+                best = solution;
+                bestFitness = fitness;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the best {@code k} of the first {@code count} references to slots of a packed population, in their
+     * order in the array, which is ranked in the same way as {@link #topK(List, int)}. The array is not modified.
+     *
+     * @param refs the references to slots, which may refer to the same slot more than once
+     * @param count the number of references
+     * @param fitness the fitness of slots
+     * @param k the number of references to get, which is not greater than {@code count}
+     * @return a new array of the best k references
+     */
+    static int[] topK(int[] refs, int count, double[] fitness, int k) {
+        if (k < 0 || k > count) {
+            String m = String.format("Illegal k of top k: size = %d, k = %d", count, k);
+            throw new RuntimeException(m);
+        }
+        if (k == count) {
+            return Arrays.copyOf(refs, count);
+        }
+        double[] values = new double[count];
+        int[] indices = new int[count];
+        for (int i = 0; i < count; ++i) {
+            values[i] = fitness[refs[i]];
+            indices[i] = i;
+        }
+        select(indices, values, k);
+        int[] top = Arrays.copyOf(indices, k);
+        Arrays.sort(top);
+        for (int i = 0; i < k; ++i) {
+            top[i] = refs[top[i]];
+        }
+        return top;
+    }
+
+    /**
+     * Gets the best of the first {@code count} references to slots of a packed population, which is the first
+     * one if several are equally good.
+     *
+     * @param refs the references to slots
+     * @param count the positive number of references
+     * @param fitness the fitness of slots
+     * @return the best reference
+     */
+    static int best(int[] refs, int count, double[] fitness) {
+        int best = refs[0];
+        for (int i = 1; i < count; ++i) {
+            if (Double.compare(fitness[refs[i]], fitness[best]) > 0) {
+                best = refs[i];
+            }
+        }
+        return best;
+    }
+
+    /** Partially orders the indices so that the first k of them are those of the best k solutions. */
+    private static void select(int[] indices, double[] fitness, int k) {
+        int lo = 0, hi = indices.length - 1;
+        while (lo < hi) {
+            swap(indices, medianOfThree(indices, fitness, lo, (lo + hi) >>> 1, hi), hi);
+            int store = lo;
+            for (int i = lo; i < hi; ++i) {
+                if (better(fitness, indices[i], indices[hi])) {
+                    swap(indices, i, store++);
+                }
+            }
+            swap(indices, store, hi);
+            if (store < k) {
+                lo = store + 1;
+            } else if (store > k) {
+                hi = store - 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static int medianOfThree(int[] indices, double[] fitness, int a, int b, int c) {
+        int x = indices[a], y = indices[b], z = indices[c];
+        if (better(fitness, x, y)) {
+            return (better(fitness, y, z) ? b : (better(fitness, x, z) ? c : a));
+        } else {
+            return (better(fitness, x, z) ? a : (better(fitness, y, z) ? c : b));
+        }
+    }
+
+    /** Ranks by fitness in reverse order, and then by position in the list. */
+    private static boolean better(double[] fitness, int i, int j) {
+        int c = Double.compare(fitness[i], fitness[j]);
+        return c > 0 || (c == 0 && i < j);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
@@ -5,7 +5,7 @@ import org.pursuemoon.ai.ga.Condition;
 /**
  * Class of compound stop condition of ga-tsp.
  */
-public final class StopCondition extends Condition {
+public final class StopCondition extends GenerationCondition {
 
     private MinGenerationCondition minGenerationCondition;
     private int maxGeneration;
@@ -22,6 +22,11 @@ public final class StopCondition extends Condition {
         bestWorstDifferenceCondition = Condition.ofBestWorstDifferenceCondition(difference);
     }
 
+    @Override
+    public boolean isMet(GenerationStatistics statistics) {
+        return isMet(statistics.getGeneration(), statistics.getStayGeneration(), statistics.getFitnessDifference());
+    }
+
     public boolean isMet(int gen, int stayGen, double diff) {
         return (gen >= maxGeneration) ||
                 (minGenerationCondition.isMet(gen) && bestStayGenerationCondition.isMet(stayGen)
@@ -0,0 +1,257 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.distance.MappedDistanceMatrix;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
+import org.pursuemoon.solvetsp.util.geometry.ComputationalGeometryUtils;
+import org.pursuemoon.solvetsp.util.geometry.KdTree;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable TSP instance, which can be shared by all threads solving the same case.
+ *
+ * Derived structures, such as the filled distance store, the k-d tree, the candidate lists and
+ * the convex hull layers, are built once when they're first needed and safely published to all
+ * threads, unless they're given when this instance is constructed.
+ */
+public final class TspInstance {
+
+    /** The max number of convex hull layers kept by an instance, which is enough for all hull based operators. */
+    public static final int MAX_CONVEX_HULL_LAYERS = 25;
+
+    private final String name;
+    private final List<AbstractPoint> points;
+    private final PointArrays pointArrays;
+    private final Solution optimalSolution;
+    private final UnaryOperator<Double> fitnessFunction;
+    private final DistanceOracle distanceOracle;
+
+    /** If the distance oracle is ready to be read, written after a {@code DistanceStore} is filled. */
+    private volatile boolean distanceReady;
+
+    /** If {@code kdTree} is built, written after it. */
+    private volatile boolean kdTreeBuilt;
+    private volatile KdTree kdTree;
+
+    private volatile CandidateLists candidateLists;
+
+    private volatile int[][] convexHullLayers;
+
+    /**
+     * Constructor with all needed parts.
+     *
+     * @param name the name of the TSP case
+     * @param points the points of the TSP
+     * @param optimalSolution the optimal solution of the TSP, or {@code null} if it's unknown
+     * @param fitnessFunction the fitness function adapted to the TSP
+     * @param distanceOracle the distance oracle of the TSP; if it's a {@code DistanceStore} other than a
+     *                       {@code MappedDistanceMatrix} or the given distances of EXPLICIT points, it will be
+     *                       filled by this instance when it's first needed
+     */
+    public TspInstance(String name, List<? extends AbstractPoint> points, Solution optimalSolution,
+                       UnaryOperator<Double> fitnessFunction, DistanceOracle distanceOracle) {
+        this(name, points, optimalSolution, fitnessFunction, distanceOracle, null, null);
+    }
+
+    /**
+     * Constructor with all needed parts and precomputed structures, for example those loaded from a binary cache.
+     *
+     * @param name the name of the TSP case
+     * @param points the points of the TSP
+     * @param optimalSolution the optimal solution of the TSP, or {@code null} if it's unknown
+     * @param fitnessFunction the fitness function adapted to the TSP
+     * @param distanceOracle the distance oracle of the TSP; if it's a {@code DistanceStore} other than a
+     *                       {@code MappedDistanceMatrix} or the given distances of EXPLICIT points, it will be
+     *                       filled by this instance when it's first needed
+     * @param candidateLists the K-nearest candidate lists, or {@code null} to build them when needed
+     * @param convexHullLayers the convex hull layers as 0-based indices of points, or {@code null} to build
+     *                         them when needed
+     */
+    public TspInstance(String name, List<? extends AbstractPoint> points, Solution optimalSolution,
+                       UnaryOperator<Double> fitnessFunction, DistanceOracle distanceOracle,
+                       CandidateLists candidateLists, int[][] convexHullLayers) {
+        this(name, points, PointArrays.of(points), optimalSolution, fitnessFunction, distanceOracle,
+                candidateLists, convexHullLayers);
+    }
+
+    /** Constructor with the point arrays already built from the points, so they're not built twice. */
+    private TspInstance(String name, List<? extends AbstractPoint> points, PointArrays pointArrays,
+                        Solution optimalSolution, UnaryOperator<Double> fitnessFunction,
+                        DistanceOracle distanceOracle, CandidateLists candidateLists, int[][] convexHullLayers) {
+        this.name = name;
+        this.points = Collections.unmodifiableList(new ArrayList<>(points));
+        this.pointArrays = pointArrays;
+        this.optimalSolution = optimalSolution;
+        this.fitnessFunction = fitnessFunction;
+        this.distanceOracle = distanceOracle;
+        /* Mapped matrices and the given distances of EXPLICIT points are filled before they're passed in. */
+        this.distanceReady = !(distanceOracle instanceof DistanceStore) || distanceOracle instanceof MappedDistanceMatrix
+                || distanceOracle == pointArrays.getWeights();
+        this.candidateLists = candidateLists;
+        this.convexHullLayers = convexHullLayers;
+    }
+
+    /**
+     * Gets an instance whose distance oracle is adapted to the number of points, or is the given distances
+     * if the points are EXPLICIT ones of the whole TSP.
+     *
+     * @param name the name of the TSP case
+     * @param points the points of the TSP
+     * @param optimalSolution the optimal solution of the TSP, or {@code null} if it's unknown
+     * @param fitnessFunction the fitness function adapted to the TSP
+     * @return the TSP instance
+     */
+    public static TspInstance of(String name, List<? extends AbstractPoint> points, Solution optimalSolution,
+                                 UnaryOperator<Double> fitnessFunction) {
+        PointArrays pointArrays = PointArrays.of(points);
+        DistanceOracle weights = pointArrays.getWeights();
+        DistanceOracle distanceOracle = (weights != null && weights.size() == points.size() ? weights
+                : DistanceOracle.of(pointArrays));
+        return new TspInstance(name, points, pointArrays, optimalSolution, fitnessFunction, distanceOracle,
+                null, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<AbstractPoint> getPoints() {
+        return points;
+    }
+
+    public PointArrays getPointArrays() {
+        return pointArrays;
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Gets the optimal solution of this TSP, if it exists; if it doesn't, gets {@code null}.
+     *
+     * @return the optimal solution of this TSP if exists, or {@code null} if it doesn't
+     */
+    public Solution getOptimalSolution() {
+        return optimalSolution;
+    }
+
+    public UnaryOperator<Double> getFitnessFunction() {
+        return fitnessFunction;
+    }
+
+    /**
+     * Gets the distance oracle, which is fully calculated before it's returned.
+     *
+     * @return the distance oracle of this TSP
+     */
+    public DistanceOracle getDistanceOracle() {
+        if (!distanceReady) {
+            synchronized (this) {
+                if (!distanceReady) {
+                    DistanceStore.fill((DistanceStore) distanceOracle, pointArrays);
+                    distanceReady = true;
+                }
+            }
+        }
+        return distanceOracle;
+    }
+
+    /**
+     * Gets the k-d tree, which is built once when it's first needed.
+     *
+     * @return the k-d tree of this TSP, or {@code null} if its points are not EUC_2D
+     */
+    public KdTree getKdTree() {
+        if (!kdTreeBuilt) {
+            synchronized (this) {
+                if (!kdTreeBuilt) {
+                    if (pointArrays.getType() == PointArrays.Type.EUC_2D) {
+                        kdTree = new KdTree(pointArrays);
+                    }
+                    kdTreeBuilt = true;
+                }
+            }
+        }
+        return kdTree;
+    }
+
+    /**
+     * Gets the K-nearest candidate lists, which are built once when they're first needed.
+     *
+     * @return the K-nearest candidate lists of this TSP
+     */
+    public CandidateLists getCandidateLists() {
+        CandidateLists lists = candidateLists;
+        if (lists == null) {
+            synchronized (this) {
+                lists = candidateLists;
+                if (lists == null) {
+                    KdTree tree = getKdTree();
+                    if (tree != null) {
+                        lists = tree.candidateLists(CandidateLists.DEFAULT_SIZE);
+                    } else {
+                        lists = CandidateLists.of(getDistanceOracle(), CandidateLists.DEFAULT_SIZE);
+                    }
+                    candidateLists = lists;
+                }
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * Gets the convex hull layers, which are built once when they're first needed. The first layer is the
+     * convex hull of all points, and each next one is that of the points remaining; approximate convex hulls
+     * are used for points which are not EUC_2D. The returned arrays must not be modified.
+     *
+     * @return at most {@code MAX_CONVEX_HULL_LAYERS} layers, each of which is 0-based indices of points in hull order
+     */
+    public int[][] getConvexHullLayers() {
+        int[][] layers = convexHullLayers;
+        if (layers == null) {
+            synchronized (this) {
+                layers = convexHullLayers;
+                if (layers == null) {
+                    if (pointArrays.getType() == PointArrays.Type.EUC_2D) {
+                        layers = indicesOf(ComputationalGeometryUtils.getConvexHullLayers(points, MAX_CONVEX_HULL_LAYERS));
+                    } else {
+                        layers = ComputationalGeometryUtils.getApproximateConvexHullLayers(getDistanceOracle(), MAX_CONVEX_HULL_LAYERS);
+                    }
+                    convexHullLayers = layers;
+                }
+            }
+        }
+        return layers;
+    }
+
+    private int[][] indicesOf(List<List<AbstractPoint>> hulls) {
+        Map<AbstractPoint, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < points.size(); ++i) {
+            indices.put(points.get(i), i);
+        }
+        int[][] layers = new int[hulls.size()][];
+        for (int l = 0; l < layers.length; ++l) {
+            List<AbstractPoint> hull = hulls.get(l);
+            layers[l] = new int[hull.size()];
+            for (int t = 0; t < hull.size(); ++t) {
+                layers[l][t] = indices.get(hull.get(t));
+            }
+        }
+        return layers;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TspInstance [%s](%d points)", name, points.size());
+    }
+}
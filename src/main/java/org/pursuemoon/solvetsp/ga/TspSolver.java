@@ -4,11 +4,19 @@ import org.apache.log4j.Logger;
 import org.pursuemoon.solvetsp.ga.operator.*;
 import org.pursuemoon.solvetsp.util.DataExtractor;
 import org.pursuemoon.solvetsp.util.Painter;
+import org.pursuemoon.solvetsp.util.RandomStream;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
 import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
 import org.pursuemoon.solvetsp.util.geometry.Euc2DPoint;
+import org.pursuemoon.solvetsp.util.geometry.KdTree;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 /**
@@ -27,12 +35,71 @@ public final class TspSolver implements Runnable {
     /** The id of the current solver thread. */
     private static ThreadLocal<Integer> idLocal = ThreadLocal.withInitial(() -> atomicInteger.getAndAdd(1));
 
-    /** The information about the TSP being solved by the current solver thread. */
-    private static ThreadLocal<List<Object>> tspLocal = ThreadLocal.withInitial(() -> dataExtractor.getNextTsp());
+    /**
+     * The TSP instance being solved by the current solver thread, which may be shared with other threads. It's
+     * the next TSP of the data extractor if none is bound, which is got lazily by {@link #getInstance()}.
+     */
+    private static ThreadLocal<TspInstance> instanceLocal = new ThreadLocal<>();
+
+    /** The pseudorandom number generator which operators running in the current thread draw from. */
+    private static ThreadLocal<Random> randomLocal = ThreadLocal.withInitial(RandomStream::new);
 
     /** The index of a TSP case found in default resource. */
     private int index;
 
+    /** The supplier of a prepared TSP instance to solve instead of the case of {@code index}, or {@code null}. */
+    private Supplier<TspInstance> instanceSupplier;
+
+    /** The pool to produce offspring of each population in parallel, or {@code null}. */
+    private ForkJoinPool forkJoinPool;
+
+    /* Parameters of island model. */
+
+    private int islandNumber = 1;
+    private int migrationInterval;
+    private int migrationSize;
+    private IslandModel.Topology topology;
+
+    /** If solutions of each population are kept in a packed population. */
+    private boolean packedPopulation;
+
+    /** If solutions of the same tour as another one are rejected by each population. */
+    private boolean duplicateRejection;
+
+    /** The number of offspring produced by each step of the steady-state mode, or 0 if it's not used. */
+    private int steadyStateSize;
+
+    /** The number of latest calls of each operator by which chances of operators are adapted, or 0 if static. */
+    private int adaptiveWindow;
+
+    /**
+     * The wall-clock budget and the milliseconds without improvement at which each population stops, or 0 if
+     * there is no such limit, and the quality in percent above the optimal solution at which it stops, or a
+     * negative value if there is no target.
+     */
+    private long wallClockMillis;
+    private long stagnantMillis;
+    private double targetQuality = -1;
+
+    /** Listeners added to each population, and the token by which all populations are cancelled, or {@code null}. */
+    private final List<GenerationListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile CancellationToken cancellationToken;
+
+    /**
+     * The directory in which each population writes its checkpoints every {@code checkpointInterval}
+     * generations, and from which it's resumed, or {@code null}.
+     */
+    private File checkpointDir;
+    private int checkpointInterval;
+
+    /** The root stream which streams of all populations are split from, in order, so that a seed reproduces them. */
+    private RandomStream random = new RandomStream();
+    private boolean seeded;
+
+    /** The population being solved, and the best solution of populations solved before, which other threads read. */
+    private volatile AnytimePopulation currentPopulation;
+    private volatile Solution bestOfSolved;
+
     /** Number of calculations for the same TSP. */
     private int calTime;
 
@@ -126,23 +193,123 @@ public final class TspSolver implements Runnable {
         this.solutionReportList = new ArrayList<>();
     }
 
+    /**
+     * Sets the supplier of the TSP instance to solve, such as an {@code InstancePrefetcher}, which is called by
+     * the solver thread when it starts. The case of {@code index} is ignored if a supplier is set.
+     *
+     * @param instanceSupplier the supplier of a prepared TSP instance
+     */
+    public void setInstanceSupplier(Supplier<TspInstance> instanceSupplier) {
+        this.instanceSupplier = instanceSupplier;
+    }
+
+    /**
+     * Sets the pool in which offspring of each population are produced in parallel. They're produced in the
+     * solver thread if no pool is set.
+     *
+     * @param forkJoinPool the pool, which may be shared by solvers, or {@code null}
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Makes this solver evolve several solution groups as islands, each in its own thread, which exchange their
+     * best solutions periodically. A single solution group evolves in the solver thread if this is not set.
+     *
+     * @param islandNumber the number of islands
+     * @param migrationInterval the number of generations between migrations
+     * @param migrationSize the number of best solutions sent by each island on each migration
+     * @param topology the topology of islands
+     */
+    public void setIslandModel(int islandNumber, int migrationInterval, int migrationSize, IslandModel.Topology topology) {
+        this.islandNumber = islandNumber;
+        this.migrationInterval = migrationInterval;
+        this.migrationSize = migrationSize;
+        this.topology = topology;
+    }
+
+    /**
+     * Makes each population keep its solutions in a packed population, in which all genes are packed into one
+     * array, instead of a list of solutions.
+     *
+     * @param packedPopulation if the packed population is used
+     */
+    public void setPackedPopulation(boolean packedPopulation) {
+        this.packedPopulation = packedPopulation;
+    }
+
+    /**
+     * Makes each population reject solutions of the same tour as another one before selection and before
+     * survivors are chosen, so that it's kept diverse.
+     *
+     * @param duplicateRejection if duplicates are rejected
+     */
+    public void setDuplicateRejection(boolean duplicateRejection) {
+        this.duplicateRejection = duplicateRejection;
+    }
+
+    /**
+     * Makes each population evolve in the steady-state mode, in which each step produces a few offspring which
+     * replace the worst solutions in place, instead of replacing the whole population every generation.
+     *
+     * @param steadyStateSize the number of offspring produced by each step, or 0 not to use the steady-state mode
+     */
+    public void setSteadyState(int steadyStateSize) {
+        this.steadyStateSize = steadyStateSize;
+    }
+
+    /**
+     * Makes the chances of crossover and mutation operators of each population adapt to the improvement each
+     * operator makes per nanosecond over its latest calls, instead of being static by their weights.
+     *
+     * @param adaptiveWindow the number of latest calls of each operator taken into account, or 0 to keep the
+     *                       chances static
+     */
+    public void setAdaptiveOperators(int adaptiveWindow) {
+        this.adaptiveWindow = adaptiveWindow;
+    }
+
+    /**
+     * Makes each population stop earlier than its generation conditions, at whichever of these limits comes first.
+     *
+     * @param wallClockMillis the milliseconds of evolution after which it stops, or 0 for no limit
+     * @param targetQuality the quality in percent above the optimal solution at which it stops, or a negative
+     *                      value for no target; a target needs the optimal solution of the TSP to be known
+     * @param stagnantMillis the milliseconds without improvement of the best solution after which it stops,
+     *                       or 0 for no limit
+     */
+    public void setStopLimits(long wallClockMillis, double targetQuality, long stagnantMillis) {
+        this.wallClockMillis = wallClockMillis;
+        this.targetQuality = targetQuality;
+        this.stagnantMillis = stagnantMillis;
+    }
+
     /**
      * Initialize this solver before running it.
      * If the {@code baseDir} is empty, set it to the value from {@code DataExtractor}, and get data of TSP by default.
      * If the {@code baseDir} is not empty, get data of TSP according to it.
      */
     private void init() {
-        if (index == -1) {
-            List<Object> tsp = tspLocal.get();
-            optimalSolution = (Solution) tsp.get(2);
+        if (instanceSupplier != null) {
+            TspInstance instance = Objects.requireNonNull(instanceSupplier.get(), "No TSP instance was supplied.");
+            instanceLocal.set(instance);
+            optimalSolution = instance.getOptimalSolution();
+        } else if (index == -1) {
+            optimalSolution = getInstance().getOptimalSolution();
         } else {
-            List<Object> tsp = DataExtractor.instance.getTspByIndex(index);
-            tspLocal.set(tsp);
-            optimalSolution = (Solution) tsp.get(2);
+            TspInstance instance = DataExtractor.instance.getTspByIndex(index);
+            instanceLocal.set(instance);
+            optimalSolution = instance.getOptimalSolution();
             /* Makes solver id equal to index. */
             idLocal.set(index);
         }
-        String dirName = (String) tspLocal.get().get(0);
+        String dirName = getTestCaseName();
+        if (targetQuality >= 0 && optimalSolution == null) {
+            String m = String.format("Illegal target quality: targetQuality = %s, but [%s] has no optimal solution",
+                    targetQuality, dirName);
+            throw new RuntimeException(m);
+        }
         log.info(String.format("[%d] The TSP [%s] is being solved.", idLocal.get(), dirName));
     }
 
@@ -150,44 +317,39 @@ public final class TspSolver implements Runnable {
     public void run() {
         /* Initializes this TSP solver. */
         init();
+        bindRandom(random);
+        List<String> timedModes = getTimedModes();
+        if (seeded && !timedModes.isEmpty()) {
+            log.warn(String.format("[%d] The seed doesn't make evolution reproducible with %s, which depend on timing.",
+                    idLocal.get(), String.join(", ", timedModes)));
+        }
         int numberOfLoci = getPoints().size();
 
         for (int time = 1; time <= calTime; ++time) {
-            SolutionGroup solutionGroup = SolutionGroup.Builder.ofNew()
-                    /* Traditional GA parameters. */
-                    .populationSize(populationSize)
-                    .withCrossoverProbability(crossoverProbability)
-                    .withMutationProbability(mutationProbability)
-                    /* Generating strategy. */
-                    .withGenerationOperator(new RandomGeneratingOperator(4))
-                    .withGenerationOperator(new NearestKNeighborsGreedyGeneratingOperator(18, 1))
-                    .withGenerationOperator(new ShortestKEdgeGreedyGeneratingOperator(12, 2))
-                    .withGenerationOperator(new ConvexHullConstrictionGeneratingOperator(48, 3))
-                    .withGenerationOperator(new ConvexHullDivisionGeneratingOperator(18))
-                    /* Crossover strategy. */
-                    .withCrossoverOperator(new SinglePointCrossoverOperator(10, (int) (numberOfLoci * 0.050)))
-                    .withCrossoverOperator(new SinglePointCrossoverOperator(10, (int) (numberOfLoci * 0.100)))
-                    .withCrossoverOperator(new SinglePointCrossoverOperator(10, (int) (numberOfLoci * 0.300)))
-                    .withCrossoverOperator(new SectionCrossoverOperator(10))
-                    .withCrossoverOperator(new NearestNeighborCrossoverOperator(60))
-                    /* Mutation strategy. */
-                    .withMutationOperator(new MultiPointMutationOperator(10, (int) (numberOfLoci * 0.050)))
-                    .withMutationOperator(new MultiPointMutationOperator(10, (int) (numberOfLoci * 0.125)))
-                    .withMutationOperator(new RangeReversingMutationOperator(10, (int) (numberOfLoci * 0.125)))
-                    .withMutationOperator(new RangeReversingMutationOperator(20, (int) (numberOfLoci * 0.250)))
-                    .withMutationOperator(new RangeReversingMutationOperator(50, (int) (numberOfLoci * 0.650)))
-                    /* Selection strategy. */
-                    .withSelectionOperator(new RouletteSelectionOperator(100))
-                    .withTopX(topX)
-                    .withTopY(topY)
-                    .withTopZ(topZ)
-                    .withBestQueueSize(bestQueueSize)
-                    .build();
+            AnytimePopulation population;
+            if (islandNumber > 1) {
+                IslandModel.Builder builder = IslandModel.Builder.ofNew()
+                        .withMigrationInterval(migrationInterval)
+                        .withMigrationSize(migrationSize)
+                        .withTopology(topology);
+                for (int i = 0; i < islandNumber; ++i) {
+                    builder.withIsland(newSolutionGroup(numberOfLoci, checkpointFileOf(time, i)));
+                }
+                population = builder.build();
+            } else {
+                population = newSolutionGroup(numberOfLoci, checkpointFileOf(time, -1));
+            }
+
+            for (GenerationListener listener : listeners) {
+                population.addGenerationListener(listener);
+            }
+            population.setCancellationToken(cancellationToken);
+            currentPopulation = population;
 
             long beforeInit = System.currentTimeMillis();
 
             /* Initializes population. */
-            solutionGroup.initialize();
+            population.initialize();
 
             long afterInit = System.currentTimeMillis();
             double initUsedTime = (double) (afterInit - beforeInit) / 1000;
@@ -195,19 +357,19 @@ public final class TspSolver implements Runnable {
 
             try {
                 /* Evolution. */
-                solutionGroup.evolve(new StopCondition(leastGenerationNumber, limitGenerationNumber,
-                        leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst));
+                population.evolve(newStopCondition());
 
                 long afterEvolution = System.currentTimeMillis();
                 double evolutionUsedTime = (double) (afterEvolution - afterInit) / 1000;
-                int generationNumber = solutionGroup.getGen();
+                int generationNumber = population.getGen();
                 log.info(String.format("[%d] Population-%d evolution finished. " +
                         "It went through %d generations and took time %ss.", idLocal.get(), time, generationNumber, evolutionUsedTime));
 
                 /* Obtains the approximate optimal solution. */
-                Solution solution = solutionGroup.getBest();
+                Solution solution = population.getBest();
                 SolutionReport report = new SolutionReport(time, solution, generationNumber, initUsedTime, evolutionUsedTime);
                 solutionReportList.add(report);
+                bestOfSolved = getBestSoFar();
 
                 /* Records the result. */
                 String result = reportSolution(solution, generationNumber);
@@ -224,66 +386,240 @@ public final class TspSolver implements Runnable {
                 log.error(String.format("[%d] Population-%d evolution stopped because of exception: ", idLocal.get(), time), e);
                 throw new RuntimeException(e);
             }
+            if (cancellationToken != null && cancellationToken.isCancelled()) {
+                log.info(String.format("[%d] Evolution was cancelled after population-%d.", idLocal.get(), time));
+                break;
+            }
         }
+        currentPopulation = null;
 
         log.info(String.format("[%d] Evolution of all populations finished.", idLocal.get()));
 
+        int solvedTime = solutionReportList.size();
         solutionReportList.sort(Comparator.reverseOrder());
         Solution bestSolution = solutionReportList.get(0).solution;
         double bestDistance = bestSolution.getDistance();
-        double bestQuality = (bestDistance - optimalSolution.getDistance()) / optimalSolution.getDistance();
         averageDistance = solutionReportList.stream()
                 .map(SolutionReport::getDistance)
-                .reduce(0d, Double::sum) / calTime;
+                .reduce(0d, Double::sum) / solvedTime;
         averageGenerationNumber = solutionReportList.stream()
                 .map(SolutionReport::getGenerationNumber)
                 .map(t -> (double)t)
-                .reduce(0d, Double::sum) / calTime;
+                .reduce(0d, Double::sum) / solvedTime;
         averageInitUsedTime = solutionReportList.stream()
                 .map(SolutionReport::getInitUsedTime)
-                .reduce(0d, Double::sum) / calTime;
+                .reduce(0d, Double::sum) / solvedTime;
         averageEvolutionUsedTime = solutionReportList.stream()
                 .map(SolutionReport::getEvolutionUsedTime)
-                .reduce(0d, Double::sum) / calTime;
-        double averageQuality = (averageDistance - optimalSolution.getDistance()) / optimalSolution.getDistance();
+                .reduce(0d, Double::sum) / solvedTime;
         double averageAlgorithmUsedTime = averageInitUsedTime + averageEvolutionUsedTime;
 
-        String dirName = (String) tspLocal.get().get(0);
+        String dirName = getTestCaseName();
 
         int[] bestGene = bestSolution.getClonedGene();
         List<Integer> bestGeneList = new ArrayList<>();
         for (int i : bestGene) {
             bestGeneList.add(i);
         }
-        int[] optimalGene = optimalSolution.getClonedGene();
-        List<Integer> optimalGeneList = new ArrayList<>();
-        for (int i : optimalGene) {
-            optimalGeneList.add(i);
-        }
 
         report = String.format("Here is the report of the improved genetic algorithm of solving [%s]:\n" +
                         "calculation times: %d\n" +
                         "average generation number: %.2f\n" +
                         "average initialization cost time: %.2fs\n" +
                         "average evolution cost time: %.2fs\n" +
-                        "average overall cost time: %.2fs\n" +
-                        "average distance: %.3f [%.2f%%]\n" +
-                        "best obtained distance: %.3f [%.2f%%]\n" +
-                        "best obtained solution: %s\n" +
-                        "true optimal distance: %.3f [%.2f%%]\n" +
-                        "true optimal solution: %s",
-                dirName, calTime, averageGenerationNumber,
-                averageInitUsedTime, averageEvolutionUsedTime, averageAlgorithmUsedTime,
-                averageDistance, averageQuality * 100,
-                bestDistance, bestQuality * 100,
-                bestGeneList,
-                optimalSolution.getDistance(), 0d,
-                optimalGeneList);
+                        "average overall cost time: %.2fs\n",
+                dirName, solvedTime, averageGenerationNumber,
+                averageInitUsedTime, averageEvolutionUsedTime, averageAlgorithmUsedTime);
+        if (optimalSolution != null) {
+            double averageQuality = (averageDistance - optimalSolution.getDistance()) / optimalSolution.getDistance();
+            double bestQuality = (bestDistance - optimalSolution.getDistance()) / optimalSolution.getDistance();
+            int[] optimalGene = optimalSolution.getClonedGene();
+            List<Integer> optimalGeneList = new ArrayList<>();
+            for (int i : optimalGene) {
+                optimalGeneList.add(i);
+            }
+            report += String.format("average distance: %.3f [%.2f%%]\n" +
+                            "best obtained distance: %.3f [%.2f%%]\n" +
+                            "best obtained solution: %s\n" +
+                            "true optimal distance: %.3f [%.2f%%]\n" +
+                            "true optimal solution: %s",
+                    averageDistance, averageQuality * 100,
+                    bestDistance, bestQuality * 100,
+                    bestGeneList,
+                    optimalSolution.getDistance(), 0d,
+                    optimalGeneList);
+        } else {
+            /* Without a known optimal solution, there's nothing to measure the quality against. */
+            report += String.format("average distance: %.3f\n" +
+                            "best obtained distance: %.3f\n" +
+                            "best obtained solution: %s",
+                    averageDistance, bestDistance, bestGeneList);
+        }
 
         log.info(String.format("[%d] %s", idLocal.get(), report));
     }
 
+    /**
+     * Gets the checkpoint file of a population, or of an island of it.
+     *
+     * @param time the number of the population
+     * @param island the index of the island, or -1 if the population has no islands
+     * @return the checkpoint file, or {@code null} if no checkpoint is written
+     */
+    private File checkpointFileOf(int time, int island) {
+        if (checkpointDir == null) {
+            return null;
+        }
+        String name = (island < 0 ? String.format("%s-%d.ckpt", getTestCaseName(), time)
+                : String.format("%s-%d-%d.ckpt", getTestCaseName(), time, island));
+        return new File(checkpointDir, name);
+    }
+
+    private SolutionGroup newSolutionGroup(int numberOfLoci, File checkpointFile) {
+        SolutionGroup.Builder builder = SolutionGroup.Builder.ofNew()
+                /* Traditional GA parameters. */
+                .populationSize(populationSize)
+                .withCrossoverProbability(crossoverProbability)
+                .withMutationProbability(mutationProbability)
+                /* Generating strategy. */
+                .withGenerationOperator(new RandomGeneratingOperator(4))
+                .withGenerationOperator(new NearestKNeighborsGreedyGeneratingOperator(18, 1))
+                .withGenerationOperator(new ShortestKEdgeGreedyGeneratingOperator(12, 2))
+                .withGenerationOperator(new ConvexHullConstrictionGeneratingOperator(48, 3))
+                .withGenerationOperator(new ConvexHullDivisionGeneratingOperator(18))
+                /* Crossover strategy. */
+                .withCrossoverOperator(new SinglePointCrossoverOperator(10, (int) (numberOfLoci * 0.050)))
+                .withCrossoverOperator(new SinglePointCrossoverOperator(10, (int) (numberOfLoci * 0.100)))
+                .withCrossoverOperator(new SinglePointCrossoverOperator(10, (int) (numberOfLoci * 0.300)))
+                .withCrossoverOperator(new SectionCrossoverOperator(10))
+                .withCrossoverOperator(new NearestNeighborCrossoverOperator(60))
+                /* Mutation strategy. */
+                .withMutationOperator(new MultiPointMutationOperator(10, (int) (numberOfLoci * 0.050)))
+                .withMutationOperator(new MultiPointMutationOperator(10, (int) (numberOfLoci * 0.125)))
+                .withMutationOperator(new RangeReversingMutationOperator(10, (int) (numberOfLoci * 0.125)))
+                .withMutationOperator(new RangeReversingMutationOperator(20, (int) (numberOfLoci * 0.250)))
+                .withMutationOperator(new RangeReversingMutationOperator(50, (int) (numberOfLoci * 0.650)))
+                /* Selection strategy. */
+                .withSelectionOperator(new RouletteSelectionOperator(100))
+                .withTopX(topX)
+                .withTopY(topY)
+                .withTopZ(topZ)
+                .withBestQueueSize(bestQueueSize)
+                .withForkJoinPool(forkJoinPool)
+                .withPackedPopulation(packedPopulation)
+                .withDuplicateRejection(duplicateRejection)
+                .withSteadyState(steadyStateSize)
+                .withAdaptiveOperators(adaptiveWindow)
+                .withRandomStream(random.split());
+        if (checkpointFile != null) {
+            builder.withCheckpoint(checkpointFile, checkpointInterval);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Makes each population write checkpoints to a file in a directory, named by the TSP case and the number of
+     * the population, and resume from it if it exists, such as when a solver is run again after the JVM died.
+     *
+     * @param checkpointDir the directory, or {@code null} not to write checkpoints
+     * @param checkpointInterval the number of generations between checkpoints
+     */
+    public void setCheckpoint(File checkpointDir, int checkpointInterval) {
+        this.checkpointDir = checkpointDir;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Seeds the root stream of this solver, so that populations it solves evolve the same way in each run,
+     * however their offspring are scheduled on threads. That doesn't hold for the modes of
+     * {@link #getTimedModes()}, which depend on timing, and a warning is logged if any of them is set.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.random = new RandomStream(seed);
+        this.seeded = true;
+    }
+
+    /**
+     * Gets the modes set for this solver whose evolution depends on timing besides the random streams, so that
+     * a seed doesn't reproduce it: islands, whose immigrants depend on when other islands send them, adaptive
+     * operators, whose chances are adapted to measured nanoseconds, and wall-clock and stagnation limits.
+     *
+     * @return the names of such modes, or an empty list if a seed reproduces the evolution
+     */
+    List<String> getTimedModes() {
+        List<String> modes = new ArrayList<>();
+        if (islandNumber > 1) {
+            modes.add("islands");
+        }
+        if (adaptiveWindow > 0) {
+            modes.add("adaptive operators");
+        }
+        if (wallClockMillis > 0) {
+            modes.add("wall-clock limit");
+        }
+        if (stagnantMillis > 0) {
+            modes.add("stagnation limit");
+        }
+        return modes;
+    }
+
+    /**
+     * Adds a listener notified after each generation of each population, which is called by the thread evolving
+     * the population.
+     *
+     * @param listener the listener
+     */
+    public void addGenerationListener(GenerationListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Sets the token by which this solver is cancelled. Once it's cancelled, the population being solved stops
+     * between generations and its result is reported, and no more populations are solved.
+     *
+     * @param cancellationToken the token, or {@code null} if this solver can't be cancelled
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Gets the best solution found by now, which could be called by any thread while solving.
+     *
+     * @return the best solution by now, or {@code null} if no population is initialized yet
+     */
+    public Solution getBestSoFar() {
+        Solution best = bestOfSolved;
+        AnytimePopulation population = currentPopulation;
+        Solution current = (population != null ? population.getBestSoFar() : null);
+        if (best == null || (current != null && current.compareTo(best) > 0)) {
+            best = current;
+        }
+        return best;
+    }
+
+    private GenerationCondition newStopCondition() {
+        GenerationCondition stopCondition = new StopCondition(leastGenerationNumber, limitGenerationNumber,
+                leastBestStayGeneration, maxFitnessDifferenceBetweenBestAndWorst);
+        if (wallClockMillis > 0) {
+            stopCondition = stopCondition.or(GenerationCondition.ofWallClock(wallClockMillis));
+        }
+        if (targetQuality >= 0) {
+            stopCondition = stopCondition.or(GenerationCondition.ofTargetQuality(optimalSolution.getDistance(), targetQuality));
+        }
+        if (stagnantMillis > 0) {
+            stopCondition = stopCondition.or(GenerationCondition.ofStagnation(stagnantMillis));
+        }
+        return stopCondition;
+    }
+
     private String reportSolution(Solution solution, int generationNumber) {
+        if (optimalSolution == null) {
+            return String.format("approximate optimal solution: [%.0f], generation number: %d, specific information: %s",
+                    solution.getDistance(), generationNumber, solution);
+        }
         double quality = (solution.getDistance() - optimalSolution.getDistance()) / optimalSolution.getDistance() * 100;
         return String.format("true optimal solution: [%.0f], approximate optimal solution: [%.0f], quality: [%.3f%%], generation number: %d, specific information: %s",
                 optimalSolution.getDistance(), solution.getDistance(), quality, generationNumber, solution);
@@ -302,13 +638,63 @@ public final class TspSolver implements Runnable {
         return report;
     }
 
+    /**
+     * Gets the TSP instance being solved by current thread.
+     *
+     * @return the TSP instance being solved by current thread
+     */
+    public static TspInstance getInstance() {
+        TspInstance instance = instanceLocal.get();
+        if (instance == null) {
+            instance = dataExtractor.getNextTsp();
+            instanceLocal.set(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Binds a TSP instance to current thread, so that a thread helping to solve a TSP could see the same
+     * instance as the solver thread.
+     *
+     * @param instance the TSP instance to bind, or {@code null} to unbind the bound one
+     * @return the TSP instance bound before, or {@code null} if there was none, which is never loaded by this
+     */
+    public static TspInstance bindInstance(TspInstance instance) {
+        TspInstance previous = instanceLocal.get();
+        if (instance != null) {
+            instanceLocal.set(instance);
+        } else {
+            instanceLocal.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Gets the pseudorandom number generator of current thread, which all operators draw from, so that
+     * a thread could run operators with its own random stream.
+     *
+     * @return the pseudorandom number generator of current thread
+     */
+    public static Random getRandom() {
+        return randomLocal.get();
+    }
+
+    /**
+     * Binds a pseudorandom number generator to current thread, which operators running in it draw from.
+     *
+     * @param random the pseudorandom number generator to bind
+     */
+    public static void bindRandom(Random random) {
+        randomLocal.set(random);
+    }
+
     /**
      * Gets the name of the TSP case being solved.
      *
      * @return the name of the TSP being solved
      */
     public static String getTestCaseName() {
-        return (String) tspLocal.get().get(0);
+        return getInstance().getName();
     }
 
     /**
@@ -316,9 +702,8 @@ public final class TspSolver implements Runnable {
      *
      * @return the point list of the TSP being solved by current thread
      */
-    @SuppressWarnings("unchecked")
     public static List<? extends AbstractPoint> getPoints() {
-        return (List<? extends AbstractPoint>) tspLocal.get().get(1);
+        return getInstance().getPoints();
     }
 
     /**
@@ -326,40 +711,47 @@ public final class TspSolver implements Runnable {
      *
      * @return the fitness function adapted to the TSP being solved by current thread
      */
-    @SuppressWarnings("unchecked")
     public static UnaryOperator<Double> getFitnessFunction() {
-        return (UnaryOperator<Double>) tspLocal.get().get(3);
+        return getInstance().getFitnessFunction();
     }
 
     /**
-     * Gets the 2-dimensional distance array of the TSP being solved by current thread.
+     * Gets the distance oracle of the TSP being solved by current thread, which is fully calculated
+     * when it's first needed.
      *
-     * @return the 2-dimensional distance array of the TSP being solved by current thread
+     * @return the distance oracle of the TSP being solved by current thread
      */
-    public static double[][] getDistArray() {
-        return (double[][]) tspLocal.get().get(4);
+    public static DistanceOracle getDistanceOracle() {
+        return getInstance().getDistanceOracle();
     }
 
     /**
-     * Fully calculates the distance array of the TSP being solved by the current thread.
+     * Gets the k-d tree of the TSP being solved by current thread, which is built once when it's first needed.
+     *
+     * @return the k-d tree of the TSP being solved by current thread, or {@code null} if its points are not EUC_2D
      */
-    public static void fullyCalDistArray() {
-        Boolean full = (Boolean) tspLocal.get().get(5);
-        if (!full) {
-            List<? extends AbstractPoint> pList = getPoints();
-            double[][] distArray = getDistArray();
-            int size = pList.size();
-            for (int i = 0; i < size; ++i) {
-                for (int j = 0; j < size; ++j) {
-                    if (i == j) continue;
-                    distArray[i][j] = pList.get(i).distanceTo(pList.get(j));
-                }
-            }
-            List<Object> list = new ArrayList<>(tspLocal.get());
-            list.remove(5);
-            list.add(5, Boolean.TRUE);
-            tspLocal.set(list);
-        }
+    public static KdTree getKdTree() {
+        return getInstance().getKdTree();
+    }
+
+    /**
+     * Gets the K-nearest candidate lists of the TSP being solved by current thread, which are built once
+     * when they're first needed.
+     *
+     * @return the K-nearest candidate lists of the TSP being solved by current thread
+     */
+    public static CandidateLists getCandidateLists() {
+        return getInstance().getCandidateLists();
+    }
+
+    /**
+     * Gets the convex hull layers of the TSP being solved by current thread, which are built once
+     * when they're first needed.
+     *
+     * @return the convex hull layers, each of which is 0-based indices of points in hull order
+     */
+    public static int[][] getConvexHullLayers() {
+        return getInstance().getConvexHullLayers();
     }
 
     private static class SolutionReport implements Comparable<SolutionReport> {
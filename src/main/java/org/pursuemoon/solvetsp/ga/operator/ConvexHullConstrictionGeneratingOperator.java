@@ -3,9 +3,8 @@ package org.pursuemoon.solvetsp.ga.operator;
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
-import org.pursuemoon.solvetsp.util.geometry.Euc2DPoint;
 import org.pursuemoon.solvetsp.ga.Solution;
-import org.pursuemoon.solvetsp.util.geometry.ComputationalGeometryUtils;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,45 +17,36 @@ import java.util.stream.Collectors;
  * aiming to insert a certain point into a certain edge; if a plan causes less distance
  * increment, it is better; randomly picks one to carry out and removes the inserted point
  * from the remaining points' set.
+ *
+ * Points without coordinates, such as those of EXPLICIT instances, start from an approximate
+ * convex hull found by distances only.
  */
 public final class ConvexHullConstrictionGeneratingOperator
         extends WeightedOperator.WeightedGeneratingOperator<Integer, Solution> {
 
     private int k;
-    private Random random;
 
     public ConvexHullConstrictionGeneratingOperator(Integer weight, Integer k) {
         super(weight);
         this.k = k;
-        random = new Random();
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Solution generate() {
         List<? extends AbstractPoint> pList = TspSolver.getPoints();
-        List<? extends AbstractPoint> ch;
-        if (pList.get(0) instanceof Euc2DPoint) {
-            ch = constructConvexHull((List<? extends Euc2DPoint>) pList);
-        } else {
-            ch = constructApproximateConvexHull(pList);
+        /* The outermost precomputed layer, which is an approximate convex hull if points are not EUC_2D. */
+        int[] hull = TspSolver.getConvexHullLayers()[0];
+        List<AbstractPoint> ch = new ArrayList<>(hull.length);
+        for (int idx : hull) {
+            ch.add(pList.get(idx));
         }
         int[] gene = constrict(ch, pList);
-        return new Solution(gene, true);
-    }
-
-    private List<? extends AbstractPoint> constructConvexHull(List<? extends Euc2DPoint> pList) {
-        return ComputationalGeometryUtils.getConvexHull(pList);
-    }
-
-    private List<? extends AbstractPoint> constructApproximateConvexHull(List<? extends AbstractPoint> pList) {
-        return ComputationalGeometryUtils.getApproximateConvexHull(pList);
+        return Solution.wrap(gene);
     }
 
     private int[] constrict(List<? extends AbstractPoint> convexHull, List<? extends AbstractPoint> pList) {
-        /* Accelerates computing distances. */
-        TspSolver.fullyCalDistArray();
-        double[][] distArray = TspSolver.getDistArray();
+        Random random = TspSolver.getRandom();
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
 
         int len = pList.size();
         int[] gene = new int[len];
@@ -80,7 +70,8 @@ public final class ConvexHullConstrictionGeneratingOperator
                 while (fromIter.hasNext()) {
                     int j = fromIter.next();
                     int k = toIter.hasNext() ? toIter.next() : geneList.getFirst();
-                    double distIncrement = distArray[j - 1][i - 1] + distArray[i - 1][k - 1] - distArray[j - 1][k - 1];
+                    double distIncrement = distanceOracle.distance(j - 1, i - 1) + distanceOracle.distance(i - 1, k - 1)
+                            - distanceOracle.distance(j - 1, k - 1);
                     if (Double.compare(distIncrement, bestDistIncrement) < 0) {
                         bestIdx = idx;
                         bestDistIncrement = distIncrement;
@@ -26,33 +26,35 @@ import java.util.List;
 public class ConvexHullDivisionGeneratingOperator
         extends WeightedOperator.WeightedGeneratingOperator<Integer, Solution> {
 
-    private Random random;
-
     public ConvexHullDivisionGeneratingOperator(Integer weight) {
         super(weight);
-        random = new Random();
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public Solution generate() {
+        Random random = TspSolver.getRandom();
         List<? extends AbstractPoint> pList = TspSolver.getPoints();
+        /* Hull layers of all points are precomputed, and those of subsets are computed in recursion. */
+        int[][] layers = TspSolver.getConvexHullLayers();
         List<? extends AbstractPoint> list;
         if (pList.get(0) instanceof Euc2DPoint) {
-            list = constructByConvexHull((List<? extends Euc2DPoint>) pList, pList.get(0), random.nextBoolean());
+            list = constructByConvexHull((List<? extends Euc2DPoint>) pList, pList.get(0), random.nextBoolean(), layers);
         } else {
-            list = constructByApproximateConvexHull(pList, pList.get(0), random.nextBoolean());
+            list = constructByApproximateConvexHull(pList, pList.get(0), random.nextBoolean(), layers);
         }
         int[] gene = new int[pList.size()];
         for (int i = 0; i < gene.length; ++i) {
             gene[i] = list.get(i).getOrder();
         }
-        return new Solution(gene, true);
+        return Solution.wrap(gene);
     }
 
     @SuppressWarnings("unchecked")
-    private List<? extends AbstractPoint> constructByConvexHull(List<? extends Euc2DPoint> originalPoints, AbstractPoint beginPoint, boolean flag) {
-        List<? extends Euc2DPoint> ch = ComputationalGeometryUtils.getConvexHull(originalPoints);
+    private List<? extends AbstractPoint> constructByConvexHull(List<? extends Euc2DPoint> originalPoints, AbstractPoint beginPoint, boolean flag,
+                                                                int[][] layers) {
+        List<? extends Euc2DPoint> ch = (layers != null ? layerOf(layers, 0, originalPoints)
+                : ComputationalGeometryUtils.getConvexHull(originalPoints));
         List<? extends Euc2DPoint> remaining = new ArrayList<>(originalPoints);
         for (Euc2DPoint p : ch) {
             int size = remaining.size();
@@ -75,7 +77,8 @@ public class ConvexHullDivisionGeneratingOperator
             List<AbstractPoint> toInsert = new ArrayList<>();
             int numOfLayers = getNumberOfLayers(originalPoints.size());
             for (int lay = 1; lay < numOfLayers && !remaining.isEmpty(); ++lay) {
-                List<? extends Euc2DPoint> convexHull = ComputationalGeometryUtils.getConvexHull(remaining);
+                List<? extends Euc2DPoint> convexHull = (layers != null && lay < layers.length ? layerOf(layers, lay, originalPoints)
+                        : ComputationalGeometryUtils.getConvexHull(remaining));
                 toInsert.addAll(convexHull);
                 for (Euc2DPoint p : convexHull) {
                     int size = remaining.size();
@@ -116,7 +119,7 @@ public class ConvexHullDivisionGeneratingOperator
 
             /* Gets a permutation recursively. */
             for (List<? extends AbstractPoint> set : setList) {
-                List<? extends AbstractPoint> section = constructByConvexHull((List<? extends Euc2DPoint>) set, set.get(0), !flag);
+                List<? extends AbstractPoint> section = constructByConvexHull((List<? extends Euc2DPoint>) set, set.get(0), !flag, null);
                 beforeArrange.addAll(section);
             }
         }
@@ -149,8 +152,10 @@ public class ConvexHullDivisionGeneratingOperator
     }
 
     @SuppressWarnings("unchecked")
-    private List<? extends AbstractPoint> constructByApproximateConvexHull(List<? extends AbstractPoint> originalPoints, AbstractPoint beginPoint, boolean flag) {
-        List<? extends AbstractPoint> ch = ComputationalGeometryUtils.getApproximateConvexHull(originalPoints);
+    private List<? extends AbstractPoint> constructByApproximateConvexHull(List<? extends AbstractPoint> originalPoints, AbstractPoint beginPoint, boolean flag,
+                                                                           int[][] layers) {
+        List<? extends AbstractPoint> ch = (layers != null ? layerOf(layers, 0, originalPoints)
+                : ComputationalGeometryUtils.getApproximateConvexHull(originalPoints));
         List<? extends AbstractPoint> remaining = new ArrayList<>(originalPoints);
         for (AbstractPoint p : ch) {
             int size = remaining.size();
@@ -173,7 +178,8 @@ public class ConvexHullDivisionGeneratingOperator
             List<AbstractPoint> toInsert = new ArrayList<>();
             int numOfLayers = getNumberOfLayers(originalPoints.size());
             for (int lay = 1; lay < numOfLayers && !remaining.isEmpty(); ++lay) {
-                List<? extends AbstractPoint> convexHull = ComputationalGeometryUtils.getApproximateConvexHull(remaining);
+                List<? extends AbstractPoint> convexHull = (layers != null && lay < layers.length ? layerOf(layers, lay, originalPoints)
+                        : ComputationalGeometryUtils.getApproximateConvexHull(remaining));
                 toInsert.addAll(convexHull);
                 for (AbstractPoint p : convexHull) {
                     int size = remaining.size();
@@ -214,7 +220,7 @@ public class ConvexHullDivisionGeneratingOperator
 
             /* Gets a permutation recursively. */
             for (List<? extends AbstractPoint> set : setList) {
-                List<? extends AbstractPoint> section = constructByApproximateConvexHull(set, set.get(0), !flag);
+                List<? extends AbstractPoint> section = constructByApproximateConvexHull(set, set.get(0), !flag, null);
                 beforeArrange.addAll(section);
             }
         }
@@ -246,6 +252,18 @@ public class ConvexHullDivisionGeneratingOperator
         }
     }
 
+    /**
+     * Gets a precomputed hull layer as a list of points.
+     */
+    private static <T extends AbstractPoint> List<T> layerOf(int[][] layers, int lay, List<T> pList) {
+        int[] layer = layers[lay];
+        List<T> hull = new ArrayList<>(layer.length);
+        for (int idx : layer) {
+            hull.add(pList.get(idx));
+        }
+        return hull;
+    }
+
     private void insertPointsToOuterLayer(List<AbstractPoint> points, List<AbstractPoint> outerLayer) {
         while (!points.isEmpty()) {
             PriorityQueue<PointDistanceIncrement> queue = new PriorityQueue<>();
@@ -265,6 +283,7 @@ public class ConvexHullDivisionGeneratingOperator
     }
 
     private int getNumberOfLayers(int size) {
+        Random random = TspSolver.getRandom();
         if (size <= 50) {
             return 1 + random.nextInt(2);
         } else if (size <= 100) {
@@ -0,0 +1,48 @@
+package org.pursuemoon.solvetsp.ga.operator;
+
+import org.pursuemoon.ai.ga.operator.CrossoverOperator;
+import org.pursuemoon.solvetsp.ga.Solution;
+
+/**
+ * {@code CrossoverOperator} which could also write offspring into buffers given by the caller, such as recycled
+ * ones of a gene pool, instead of allocating them.
+ */
+public interface InPlaceCrossoverOperator extends CrossoverOperator<Solution> {
+
+    /**
+     * Crosses over two genes and writes two offspring into buffers, which may not begin with 1.
+     *
+     * @param gene1 the gene of the first parent, which is not modified
+     * @param gene2 the gene of the second parent, which is not modified
+     * @param offspring1 the buffer of the first offspring, as long as the genes
+     * @param offspring2 the buffer of the second offspring, as long as the genes
+     * @return {@code true} if the offspring were written, or {@code false} if the parents themselves should be
+     *         taken as the offspring, in which case the buffers are left unspecified
+     */
+    default boolean crossover(int[] gene1, int[] gene2, int[] offspring1, int[] offspring2) {
+        return crossover(gene1, 0, gene2, 0, offspring1, 0, offspring2, 0, gene1.length, null);
+    }
+
+    /**
+     * Crosses over two genes, each of which is a range of an array such as the packed genes of a population,
+     * and writes two offspring into ranges of arrays, which may not begin with 1. No range of an offspring may
+     * overlap that of a parent or the other offspring.
+     *
+     * @param genes1 the array of the first parent, which is not modified
+     * @param from1 the offset of the first parent in its array
+     * @param genes2 the array of the second parent, which is not modified
+     * @param from2 the offset of the second parent in its array
+     * @param offspring1 the array of the first offspring
+     * @param to1 the offset of the first offspring in its array
+     * @param offspring2 the array of the second offspring
+     * @param to2 the offset of the second offspring in its array
+     * @param length the length of each gene
+     * @param deltas an array of two, into which the changes of tour length from each parent to its offspring are
+     *               written if the offspring were written, or {@code Double.NaN} if they're unknown, or
+     *               {@code null} if they're not needed
+     * @return {@code true} if the offspring were written, or {@code false} if the parents themselves should be
+     *         taken as the offspring, in which case the ranges of offspring are left unspecified
+     */
+    boolean crossover(int[] genes1, int from1, int[] genes2, int from2,
+                      int[] offspring1, int to1, int[] offspring2, int to2, int length, double[] deltas);
+}
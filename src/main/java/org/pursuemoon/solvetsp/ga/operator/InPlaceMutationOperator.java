@@ -0,0 +1,37 @@
+package org.pursuemoon.solvetsp.ga.operator;
+
+import org.pursuemoon.ai.ga.operator.MutationOperator;
+import org.pursuemoon.solvetsp.ga.Solution;
+
+/**
+ * {@code MutationOperator} which could also write the mutated gene into a buffer given by the caller, such as
+ * a recycled one of a gene pool, instead of allocating it.
+ */
+public interface InPlaceMutationOperator extends MutationOperator<Solution> {
+
+    /**
+     * Mutates a gene and writes the result into a buffer, which may not begin with 1.
+     *
+     * @param gene the gene of the individual, which is not modified
+     * @param offspring the buffer of the mutated gene, as long as the gene
+     * @return the change of tour length from the individual to the mutated gene, or {@code Double.NaN} if it's
+     *         unknown
+     */
+    default double mutate(int[] gene, int[] offspring) {
+        return mutate(gene, 0, offspring, 0, gene.length);
+    }
+
+    /**
+     * Mutates a gene, which is a range of an array such as the packed genes of a population, and writes the
+     * result into a range of an array, which may not begin with 1. The two ranges must not overlap.
+     *
+     * @param genes the array of the individual, which is not modified
+     * @param from the offset of the individual in its array
+     * @param offspring the array of the mutated gene
+     * @param to the offset of the mutated gene in its array
+     * @param length the length of the gene
+     * @return the change of tour length from the individual to the mutated gene, computed from the changed edges
+     *         only, or {@code Double.NaN} if it's unknown and the mutated gene needs to be evaluated in full
+     */
+    double mutate(int[] genes, int from, int[] offspring, int to, int length);
+}
@@ -0,0 +1,45 @@
+package org.pursuemoon.solvetsp.ga.operator;
+
+import org.pursuemoon.ai.ga.operator.SelectionOperator;
+import org.pursuemoon.solvetsp.ga.Solution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code SelectionOperator} which could also select individuals by their fitness alone, such as that of
+ * a packed population, and write the indices of selected ones instead of collecting them.
+ */
+public interface IndexSelectionOperator extends SelectionOperator<Solution> {
+
+    /**
+     * Selects as many as {@code targetSize} individuals of the first {@code count} ones, by their fitness.
+     *
+     * @param fitness the fitness of individuals, which is not modified
+     * @param count the number of individuals
+     * @param targetSize the number of individuals to select
+     * @param selected the array of indices of selected individuals
+     * @param offset the offset from which the indices are written into {@code selected}
+     */
+    void select(double[] fitness, int count, int targetSize, int[] selected, int offset);
+
+    /**
+     * Selects individuals of the {@code originalList} by their fitness, in the same way as
+     * {@link #select(double[], int, int, int[], int)}.
+     */
+    @Override
+    default List<Solution> select(List<Solution> originalList, int targetSize) {
+        int count = originalList.size();
+        double[] fitness = new double[count];
+        for (int i = 0; i < count; ++i) {
+            fitness[i] = originalList.get(i).getFitness();
+        }
+        int[] selected = new int[targetSize];
+        select(fitness, count, targetSize, selected, 0);
+        List<Solution> sList = new ArrayList<>(targetSize);
+        for (int index : selected) {
+            sList.add(originalList.get(index));
+        }
+        return sList;
+    }
+}
@@ -0,0 +1,48 @@
+package org.pursuemoon.solvetsp.ga.operator;
+
+import org.pursuemoon.ai.ga.operator.WeightedOperator;
+import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
+
+import java.util.Random;
+
+/**
+ * Linear-Rank-Selection-Strategy implementation of {@code SelectionOperator}, in which the chance of an
+ * individual is linear in its rank, from about {@code (2 - pressure) / n} of the worst to about
+ * {@code pressure / n} of the best.
+ *
+ * Individuals are not sorted. Instead, each one is selected by a tournament of two individuals drawn uniformly
+ * with replacement, which the better one wins with a chance of {@code pressure / 2}, and whose chance of
+ * selecting an individual is exactly linear in its rank. So each individual is selected in O(1) without
+ * allocating anything. Of individuals of the same fitness, the one of the smaller index is taken as the better.
+ */
+public final class LinearRankSelectionOperator extends WeightedOperator.WeightedSelectionOperator<Integer, Solution>
+        implements IndexSelectionOperator {
+
+    private final double betterChance;
+
+    /**
+     * Constructor.
+     *
+     * @param weight the weight of this operator
+     * @param pressure the expected number of times the best individual is selected per individual, in [1, 2]
+     */
+    public LinearRankSelectionOperator(Integer weight, double pressure) {
+        super(weight);
+        if (!(pressure >= 1 && pressure <= 2)) {
+            String m = String.format("Illegal selection pressure: pressure = %f", pressure);
+            throw new RuntimeException(m);
+        }
+        this.betterChance = pressure / 2;
+    }
+
+    @Override
+    public void select(double[] fitness, int count, int targetSize, int[] selected, int offset) {
+        Random random = TspSolver.getRandom();
+        for (int i = 0; i < targetSize; ++i) {
+            int a = random.nextInt(count), b = random.nextInt(count);
+            boolean aBetter = (fitness[a] > fitness[b] || (fitness[a] == fitness[b] && a < b));
+            selected[offset + i] = (aBetter == random.nextDouble() < betterChance ? a : b);
+        }
+    }
+}
@@ -2,44 +2,67 @@ package org.pursuemoon.solvetsp.ga.operator;
 
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
 
 import java.util.*;
 
 /**
  * Random-Multi-Point-Mutation-Strategy implementation of {@code MutationOperator}.
  */
-public final class MultiPointMutationOperator extends WeightedOperator.WeightedMutationOperator<Integer, Solution> {
+public final class MultiPointMutationOperator extends WeightedOperator.WeightedMutationOperator<Integer, Solution>
+        implements InPlaceMutationOperator {
 
-    private Random random;
     private Integer numberOfLoci;
 
     public MultiPointMutationOperator(Integer weight, Integer numberOfLoci) {
         super(weight);
-        random = new Random();
         this.numberOfLoci = numberOfLoci;
     }
 
     @Override
     public Solution mutate(Solution o) {
-        int[] gene = o.getClonedGene();
-        if (numberOfLoci > gene.length)
-            numberOfLoci = gene.length;
+        int[] parent = o.getClonedGene();
+        int[] gene = parent.clone();
+        double delta = shuffleLoci(parent, 0, gene, 0, gene.length);
+        return Solution.wrap(gene, o, delta);
+    }
+
+    @Override
+    public double mutate(int[] genes, int from, int[] offspring, int to, int length) {
+        System.arraycopy(genes, from, offspring, to, length);
+        return shuffleLoci(genes, from, offspring, to, length);
+    }
+
+    /**
+     * Shuffles the points at several random loci of a copy of a gene in place, each of which is a range of
+     * an array.
+     *
+     * @return the change of tour length from the gene to the copy
+     */
+    private double shuffleLoci(int[] original, int from, int[] gene, int to, int length) {
+        Random random = TspSolver.getRandom();
+        if (numberOfLoci > length)
+            numberOfLoci = length;
         Set<Integer> loci = new HashSet<>();
         Set<Integer> geneSet = new HashSet<>();
         for (int i = 0; i < numberOfLoci; ++i) {
-            int index = random.nextInt(gene.length);
+            int index = random.nextInt(length);
             loci.add(index);
-            geneSet.add(gene[index]);
+            geneSet.add(gene[to + index]);
+        }
+        if (loci.size() < 2) {
+            return 0;
         }
-        if (loci.size() >= 2) {
-            List<Integer> geneList = new ArrayList<>(geneSet);
-            for (Integer locus : loci) {
-                int index = random.nextInt(geneList.size());
-                int toBe = geneList.get(index);
-                geneList.remove(index);
-                gene[locus] = toBe;
-            }
+        List<Integer> geneList = new ArrayList<>(geneSet);
+        int[] changed = new int[loci.size()];
+        int count = 0;
+        for (Integer locus : loci) {
+            int index = random.nextInt(geneList.size());
+            int toBe = geneList.get(index);
+            geneList.remove(index);
+            gene[to + locus] = toBe;
+            changed[count++] = locus;
         }
-        return new Solution(gene, true);
+        return TourDelta.ofLoci(original, from, gene, to, length, changed, count);
     }
 }
@@ -3,6 +3,9 @@ package org.pursuemoon.solvetsp.ga.operator;
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
+import org.pursuemoon.solvetsp.util.geometry.KdTree;
 
 import java.util.*;
 
@@ -12,76 +15,93 @@ import java.util.*;
  * This algorithm randomly chooses a point as start point. And then repeats the following
  * operation until a complete loop is generated: finds at most k nearest neighbor points,
  * and randomly select one of them as the next point to the result path.
+ *
+ * The nearest unvisited neighbors are looked up in the precomputed candidate lists first.
+ * Only when the candidates of a point are used up, a k-d tree search, or a row scan for
+ * points which are not EUC_2D, is needed.
  */
 public final class NearestKNeighborsGreedyGeneratingOperator
         extends WeightedOperator.WeightedGeneratingOperator<Integer, Solution> {
 
     private int k;
 
-    private Random random;
-
     public NearestKNeighborsGreedyGeneratingOperator(Integer weight, Integer k) {
         super(weight);
         this.k = k;
-        random = new Random();
     }
 
     @Override
     public Solution generate() {
-        /* Accelerates computing distances. */
-        TspSolver.fullyCalDistArray();
-        double[][] distArray = TspSolver.getDistArray();
+        Random random = TspSolver.getRandom();
+        CandidateLists candidateLists = TspSolver.getCandidateLists();
+        KdTree kdTree = TspSolver.getKdTree();
 
-        int size = distArray.length;
+        int size = candidateLists.size();
         int[] gene = new int[size];
-        BitSet bitSet = new BitSet(size);
-        int t = 0;
-        do {
-            if (t == 0) {
-                int start = random.nextInt(size) + 1;
-                gene[t] = start;
-                bitSet.set(start);
-            } else {
-                int from = gene[t - 1] - 1;
-                PriorityQueue<Edge> queue = new PriorityQueue<>(Comparator.reverseOrder());
-                for (int to = 0; to < size; ++to) {
-                    if (!bitSet.get(to + 1)) {
-                        double dist = distArray[from][to];
-                        Edge edge = new Edge(to, dist);
-                        if (queue.size() < k) {
-                            queue.offer(edge);
-                        } else {
-                            Edge worst = queue.element();
-                            if (edge.compareTo(worst) < 0) {
-                                queue.remove();
-                                queue.offer(edge);
-                            }
-                        }
-                    }
+        int[] nearest = new int[k];
+        boolean[] visited = new boolean[size];
+        KdTree.Search search = (kdTree != null ? kdTree.newSearch() : null);
+        int[] buffer = (search == null ? new int[size] : null);
+        int start = random.nextInt(size);
+        gene[0] = start + 1;
+        visited[start] = true;
+        if (search != null) search.visit(start);
+        for (int t = 1; t < size; ++t) {
+            int from = gene[t - 1] - 1;
+            int found = nearestUnvisited(from, candidateLists, visited, nearest);
+            if (found < Math.min(k, size - t)) {
+                if (search != null) {
+                    found = search.nearest(from, k, nearest);
+                } else {
+                    found = scanNearestUnvisited(from, visited, nearest, buffer);
                 }
-                List<Edge> list = new ArrayList<>(queue);
-                int idx = random.nextInt(list.size());
-                int toOrder = list.get(idx).to + 1;
-                gene[t] = toOrder;
-                bitSet.set(toOrder);
             }
-        } while (++t < size);
-        return new Solution(gene, true);
+            int to = nearest[random.nextInt(found)];
+            gene[t] = to + 1;
+            visited[to] = true;
+            if (search != null) search.visit(to);
+        }
+        return Solution.wrap(gene);
     }
 
-    private static class Edge implements Comparable<Edge> {
-
-        private int to;
-        private double distance;
-
-        public Edge(int to, double distance) {
-            this.to = to;
-            this.distance = distance;
+    /**
+     * Collects the first k unvisited candidates of a point. Since candidates are sorted by
+     * distance, they are exactly the k nearest unvisited points if as many as k are found.
+     */
+    private int nearestUnvisited(int from, CandidateLists candidateLists, boolean[] visited, int[] nearest) {
+        int found = 0;
+        int size = candidateLists.getK();
+        for (int r = 0; r < size && found < k; ++r) {
+            int c = candidateLists.get(from, r);
+            if (!visited[c]) {
+                nearest[found++] = c;
+            }
         }
+        return found;
+    }
 
-        @Override
-        public int compareTo(Edge o) {
-            return Double.compare(distance, o.distance);
+    /**
+     * Scans the whole row of a point to collect its k nearest unvisited points.
+     */
+    private int scanNearestUnvisited(int from, boolean[] visited, int[] nearest, int[] buffer) {
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
+        int size = distanceOracle.size();
+        int[] row = distanceOracle.row(from, buffer);
+        int[] dists = new int[k];
+        int found = 0;
+        for (int to = 0; to < size; ++to) {
+            if (visited[to]) continue;
+            int d = row[to];
+            if (found == k && d >= dists[k - 1]) continue;
+            int t = (found < k ? found++ : k - 1);
+            while (t > 0 && dists[t - 1] > d) {
+                dists[t] = dists[t - 1];
+                nearest[t] = nearest[t - 1];
+                t--;
+            }
+            dists[t] = d;
+            nearest[t] = to;
         }
+        return found;
     }
 }
@@ -4,6 +4,8 @@ import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.Solution;
 import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.ArrayUtils;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
 
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -13,73 +15,97 @@ import java.util.Random;
 /**
  * Nearest-Neighbor-Strategy implementation of {@code CrossoverOperator}.
  */
-public class NearestNeighborCrossoverOperator extends WeightedOperator.WeightedCrossoverOperator<Integer, Solution> {
-
-    private Random random;
+public class NearestNeighborCrossoverOperator extends WeightedOperator.WeightedCrossoverOperator<Integer, Solution>
+        implements InPlaceCrossoverOperator {
 
     public NearestNeighborCrossoverOperator(Integer weight) {
         super(weight);
-        random = new Random();
     }
 
     @Override
     public List<Solution> crossover(Solution o1, Solution o2) {
-        /* Accelerates computing distances. */
-        TspSolver.fullyCalDistArray();
-        double[][] distArray = TspSolver.getDistArray();
-
-        List<Solution> offspring = new ArrayList<>();
-        int size = distArray.length;
         int[] gene1 = o1.getClonedGene();
         int[] gene2 = o2.getClonedGene();
+        int[] offspring1 = new int[gene1.length];
+        int[] offspring2 = new int[gene2.length];
+        crossover(gene1, gene2, offspring1, offspring2);
+        List<Solution> offspring = new ArrayList<>();
+        offspring.add(Solution.wrap(offspring1));
+        offspring.add(Solution.wrap(offspring2));
+        return offspring;
+    }
+
+    @Override
+    public boolean crossover(int[] genes1, int from1, int[] genes2, int from2,
+                             int[] offspring1, int to1, int[] offspring2, int to2, int length, double[] deltas) {
+        Random random = TspSolver.getRandom();
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
+        CandidateLists candidateLists = TspSolver.getCandidateLists();
+
+        int size = distanceOracle.size();
+        /* The row buffer is only needed when no candidate is unvisited. */
+        int[] buffer = null;
+        BitSet bitSet = new BitSet(size + 1);
         for (int time = 0; time < 2; time++) {
-            int[] gene = new int[size];
-            BitSet bitSet = new BitSet(size);
+            int[] gene = (time == 0 ? offspring1 : offspring2);
+            int to = (time == 0 ? to1 : to2);
+            bitSet.clear();
             int begin = random.nextInt(size) + 1;
-            gene[0] = begin;
+            gene[to] = begin;
             bitSet.set(begin);
             for (int i = 1; i < size; ++i) {
-                int last = gene[i - 1];
-                int idx1 = ArrayUtils.indexOfUnique(gene1, last);
-                int idx2 = ArrayUtils.indexOfUnique(gene2, last);
-                int prev1 = gene1[prev(idx1, size)];
-                int prev2 = gene2[prev(idx2, size)];
-                int next1 = gene1[next(idx1, size)];
-                int next2 = gene2[next(idx2, size)];
+                int last = gene[to + i - 1];
+                int idx1 = ArrayUtils.indexOfUnique(genes1, from1, size, last);
+                int idx2 = ArrayUtils.indexOfUnique(genes2, from2, size, last);
+                int prev1 = genes1[from1 + prev(idx1, size)];
+                int prev2 = genes2[from2 + prev(idx2, size)];
+                int next1 = genes1[from1 + next(idx1, size)];
+                int next2 = genes2[from2 + next(idx2, size)];
                 double dist = Double.MAX_VALUE;
                 int next = -1;
                 if (!bitSet.get(prev1)) {
-                    double d = distArray[last - 1][prev1 - 1];
+                    double d = distanceOracle.distance(last - 1, prev1 - 1);
                     if (d < dist) {
                         next = prev1;
                         dist = d;
                     }
                 }
                 if (!bitSet.get(prev2)) {
-                    double d = distArray[last - 1][prev2 - 1];
+                    double d = distanceOracle.distance(last - 1, prev2 - 1);
                     if (d < dist) {
                         next = prev2;
                         dist = d;
                     }
                 }
                 if (!bitSet.get(next1)) {
-                    double d = distArray[last - 1][next1 - 1];
+                    double d = distanceOracle.distance(last - 1, next1 - 1);
                     if (d < dist) {
                         next = next1;
                         dist = d;
                     }
                 }
                 if (!bitSet.get(next2)) {
-                    double d = distArray[last - 1][next2 - 1];
+                    double d = distanceOracle.distance(last - 1, next2 - 1);
                     if (d < dist) {
                         next = next2;
                         dist = d;
                     }
                 }
+                /* The first unvisited candidate, if any, is the nearest unvisited point. */
+                for (int r = 0; r < candidateLists.getK() && next == -1; ++r) {
+                    int candidate = candidateLists.get(last - 1, r) + 1;
+                    if (!bitSet.get(candidate)) {
+                        next = candidate;
+                    }
+                }
                 if (next == -1) {
+                    if (buffer == null) {
+                        buffer = new int[size];
+                    }
+                    int[] row = distanceOracle.row(last - 1, buffer);
                     for (int nxt = 1; nxt <= size; ++nxt) {
                         if (!bitSet.get(nxt)) {
-                            double d = distArray[last - 1][nxt - 1];
+                            double d = row[nxt - 1];
                             if (d < dist) {
                                 next = nxt;
                                 dist = d;
@@ -87,14 +113,15 @@ public class NearestNeighborCrossoverOperator extends WeightedOperator.WeightedC
                         }
                     }
                 }
-                gene[i] = next;
+                gene[to + i] = next;
                 bitSet.set(next);
             }
-            Solution newOne = new Solution(gene, true);
-            offspring.add(newOne);
         }
-
-        return offspring;
+        /* The offspring are built edge by edge, so they're not changes of their parents. */
+        if (deltas != null) {
+            deltas[0] = deltas[1] = Double.NaN;
+        }
+        return true;
     }
 
     private static int prev(int index, int size) {
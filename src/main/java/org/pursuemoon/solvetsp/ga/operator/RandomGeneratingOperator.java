@@ -13,15 +13,13 @@ import java.util.Random;
  */
 public final class RandomGeneratingOperator extends WeightedOperator.WeightedGeneratingOperator<Integer, Solution> {
 
-    private Random random;
-
     public RandomGeneratingOperator(Integer weight) {
         super(weight);
-        random = new Random();
     }
 
     @Override
     public Solution generate() {
+        Random random = TspSolver.getRandom();
         List<? extends AbstractPoint> pList = TspSolver.getPoints();
         int len = pList.size();
         int[] gene = new int[len];
@@ -33,6 +31,6 @@ public final class RandomGeneratingOperator extends WeightedOperator.WeightedGen
             gene[pos] = gene[t];
             gene[t] = temp;
         }
-        return new Solution(gene, true);
+        return Solution.wrap(gene);
     }
 }
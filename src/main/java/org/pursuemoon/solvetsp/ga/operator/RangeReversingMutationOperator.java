@@ -2,32 +2,50 @@ package org.pursuemoon.solvetsp.ga.operator;
 
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
 
 import java.util.Random;
 
 /**
  * Range-Reversing-Mutation-Strategy implementation of {@code MutationOperator}.
  */
-public class RangeReversingMutationOperator extends WeightedOperator.WeightedMutationOperator<Integer, Solution> {
+public class RangeReversingMutationOperator extends WeightedOperator.WeightedMutationOperator<Integer, Solution>
+        implements InPlaceMutationOperator {
 
-    private Random random;
     private Integer rangeWidth;
 
     public RangeReversingMutationOperator(Integer weight, Integer rangeWidth) {
         super(weight);
         this.rangeWidth = rangeWidth;
-        random = new Random();
     }
 
     @Override
     public Solution mutate(Solution o) {
         int[] gene = o.getClonedGene();
-        if (rangeWidth > gene.length)
-            rangeWidth = gene.length;
+        double delta = reverseRange(gene, 0, gene.length);
+        return Solution.wrap(gene, o, delta);
+    }
+
+    @Override
+    public double mutate(int[] genes, int from, int[] offspring, int to, int length) {
+        System.arraycopy(genes, from, offspring, to, length);
+        return reverseRange(offspring, to, length);
+    }
+
+    /**
+     * Reverses a random range of a gene in place, which is a range of an array.
+     *
+     * @return the change of tour length
+     */
+    private double reverseRange(int[] gene, int from, int length) {
+        Random random = TspSolver.getRandom();
+        if (rangeWidth > length)
+            rangeWidth = length;
         /* Both left and right are included. */
-        int left = random.nextInt(gene.length);
-        int right = random.nextInt(Math.min(gene.length - left, rangeWidth)) + left;
-        int i = left, j = right;
+        int left = random.nextInt(length);
+        int right = random.nextInt(Math.min(length - left, rangeWidth)) + left;
+        double delta = TourDelta.ofReversal(gene, from, length, left, right);
+        int i = from + left, j = from + right;
         while (i < j) {
             int tmp = gene[i];
             gene[i] = gene[j];
@@ -35,6 +53,6 @@ public class RangeReversingMutationOperator extends WeightedOperator.WeightedMut
             i++;
             j--;
         }
-        return new Solution(gene, true);
+        return delta;
     }
 }
@@ -2,46 +2,30 @@ package org.pursuemoon.solvetsp.ga.operator;
 
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
+import org.pursuemoon.solvetsp.util.AliasTable;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
  * Roulette-Selection-Strategy implementation of {@code SelectionOperator}.
+ *
+ * The roulette is an alias table of the fitness, which is built in O(n) once per call, after which each
+ * individual is selected in O(1).
  */
-public final class RouletteSelectionOperator extends WeightedOperator.WeightedSelectionOperator<Integer, Solution> {
-
-    private Random random;
+public final class RouletteSelectionOperator extends WeightedOperator.WeightedSelectionOperator<Integer, Solution>
+        implements IndexSelectionOperator {
 
     public RouletteSelectionOperator(Integer weight) {
         super(weight);
-        random = new Random();
     }
 
     @Override
-    public List<Solution> select(List<Solution> originalList, int targetSize) {
-        List<Solution> sList = new ArrayList<>();
-        double sum = originalList.stream().mapToDouble(Solution::getFitness).sum();
-        double[] chances = originalList.stream().mapToDouble(solution -> solution.getFitness() / sum).toArray();
+    public void select(double[] fitness, int count, int targetSize, int[] selected, int offset) {
+        Random random = TspSolver.getRandom();
+        AliasTable roulette = new AliasTable(fitness, count);
         for (int i = 0; i < targetSize; ++i) {
-            double p = random.nextDouble();
-            boolean flag = false;
-            for (int j = 0; j < chances.length; ++j) {
-                if (p >= chances[j])
-                    p -= chances[j];
-                else {
-                    sList.add(originalList.get(j));
-                    flag = true;
-                    break;
-                }
-            }
-            // Guarantees that there is always a solution to be selected.
-            if (!flag) {
-                int index = random.nextInt(chances.length);
-                sList.add(originalList.get(index));
-            }
+            selected[offset + i] = roulette.sample(random);
         }
-        return sList;
     }
 }
@@ -2,6 +2,7 @@ package org.pursuemoon.solvetsp.ga.operator;
 
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.ArrayUtils;
 
 import java.util.ArrayList;
@@ -11,13 +12,11 @@ import java.util.Random;
 /**
  * Section-Strategy implementation of {@code CrossoverOperator}.
  */
-public final class SectionCrossoverOperator extends WeightedOperator.WeightedCrossoverOperator<Integer, Solution> {
-
-    private Random random;
+public final class SectionCrossoverOperator extends WeightedOperator.WeightedCrossoverOperator<Integer, Solution>
+        implements InPlaceCrossoverOperator {
 
     public SectionCrossoverOperator(Integer weight) {
         super(weight);
-        random = new Random();
     }
 
     @Override
@@ -25,20 +24,42 @@ public final class SectionCrossoverOperator extends WeightedOperator.WeightedCro
         List<Solution> offspring = new ArrayList<>();
         int[] gene1 = o1.getClonedGene();
         int[] gene2 = o2.getClonedGene();
-        int begin = random.nextInt(gene1.length);
-        for (int i = begin; i < gene1.length; ++i) {
-            int idx1 = ArrayUtils.indexOfUnique(gene1, gene2[i]);
-            int idx2 = ArrayUtils.indexOfUnique(gene2, gene1[i]);
+        exchange(gene1, 0, gene2, 0, gene1.length);
+        offspring.add(Solution.wrap(gene1));
+        offspring.add(Solution.wrap(gene2));
+        return offspring;
+    }
+
+    @Override
+    public boolean crossover(int[] genes1, int from1, int[] genes2, int from2,
+                             int[] offspring1, int to1, int[] offspring2, int to2, int length, double[] deltas) {
+        System.arraycopy(genes1, from1, offspring1, to1, length);
+        System.arraycopy(genes2, from2, offspring2, to2, length);
+        exchange(offspring1, to1, offspring2, to2, length);
+        /* A whole section is exchanged, so the offspring are evaluated in full. */
+        if (deltas != null) {
+            deltas[0] = deltas[1] = Double.NaN;
+        }
+        return true;
+    }
+
+    /**
+     * Exchanges the sections of two genes from a random locus to the end in place, each of which is a range
+     * of an array.
+     */
+    private static void exchange(int[] gene1, int from1, int[] gene2, int from2, int length) {
+        Random random = TspSolver.getRandom();
+        int begin = random.nextInt(length);
+        for (int i = begin; i < length; ++i) {
+            int idx1 = ArrayUtils.indexOfUnique(gene1, from1, length, gene2[from2 + i]);
+            int idx2 = ArrayUtils.indexOfUnique(gene2, from2, length, gene1[from1 + i]);
             int temp;
-            temp = gene1[i];
-            gene1[i] = gene2[i];
-            gene2[i] = temp;
-            temp = gene1[idx1];
-            gene1[idx1] = gene2[idx2];
-            gene2[idx2] = temp;
+            temp = gene1[from1 + i];
+            gene1[from1 + i] = gene2[from2 + i];
+            gene2[from2 + i] = temp;
+            temp = gene1[from1 + idx1];
+            gene1[from1 + idx1] = gene2[from2 + idx2];
+            gene2[from2 + idx2] = temp;
         }
-        offspring.add(new Solution(gene1, true));
-        offspring.add(new Solution(gene2, true));
-        return offspring;
     }
 }
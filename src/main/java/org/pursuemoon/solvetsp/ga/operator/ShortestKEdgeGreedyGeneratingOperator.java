@@ -3,6 +3,7 @@ package org.pursuemoon.solvetsp.ga.operator;
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
 
 import java.util.*;
 
@@ -17,21 +18,17 @@ public final class ShortestKEdgeGreedyGeneratingOperator
 
     private int k;
 
-    private Random random;
-
     public ShortestKEdgeGreedyGeneratingOperator(Integer weight, Integer k) {
         super(weight);
         this.k = k;
-        random = new Random();
     }
 
     @Override
     public Solution generate() {
-        /* Accelerates computing distances. */
-        TspSolver.fullyCalDistArray();
-        double[][] distArray = TspSolver.getDistArray();
+        Random random = TspSolver.getRandom();
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
 
-        int size = distArray.length;
+        int size = distanceOracle.size();
         int[] gene = new int[size];
         int[] next = new int[size];
         BitSet fromSet = new BitSet(size);
@@ -44,7 +41,7 @@ public final class ShortestKEdgeGreedyGeneratingOperator
                     if (i == j) continue;
                     if (fromSet.get(i) || toSet.get(j)) continue;
                     if (time != size - 1 && pathSet.isInSameSet(i, j)) continue;
-                    double d = distArray[i][j];
+                    double d = distanceOracle.distance(i, j);
                     Edge edge = new Edge(i, j, d);
                     if (queue.size() < k)
                         queue.offer(edge);
@@ -72,7 +69,7 @@ public final class ShortestKEdgeGreedyGeneratingOperator
             p = next[p];
             t++;
         }
-        return new Solution(gene, true);
+        return Solution.wrap(gene);
     }
 
     private static class Edge implements Comparable<Edge> {
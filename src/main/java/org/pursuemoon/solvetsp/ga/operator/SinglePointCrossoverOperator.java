@@ -2,6 +2,7 @@ package org.pursuemoon.solvetsp.ga.operator;
 
 import org.pursuemoon.ai.ga.operator.WeightedOperator;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.ArrayUtils;
 
 import java.util.ArrayList;
@@ -11,9 +12,9 @@ import java.util.Random;
 /**
  * Random-Single-Point-Strategy implementation of {@code CrossoverOperator}.
  */
-public final class SinglePointCrossoverOperator extends WeightedOperator.WeightedCrossoverOperator<Integer, Solution> {
+public final class SinglePointCrossoverOperator extends WeightedOperator.WeightedCrossoverOperator<Integer, Solution>
+        implements InPlaceCrossoverOperator {
 
-    private Random random;
     private Integer numberOfLoci;
 
     /**
@@ -24,7 +25,6 @@ public final class SinglePointCrossoverOperator extends WeightedOperator.Weighte
      */
     public SinglePointCrossoverOperator(Integer weight, Integer numberOfLoci) {
         super(weight);
-        random = new Random();
         this.numberOfLoci = numberOfLoci;
     }
 
@@ -42,34 +42,73 @@ public final class SinglePointCrossoverOperator extends WeightedOperator.Weighte
             String m = String.format("Sizes of gene between two solutions is different: %d != %d", gene1.length, gene2.length);
             throw new RuntimeException(m);
         }
-        if (numberOfLoci > gene1.length)
-            numberOfLoci = gene1.length;
-        int idx1, idx2, temp;
+        int[] offspring1 = new int[gene1.length];
+        int[] offspring2 = new int[gene2.length];
+        double[] deltas = new double[2];
+        crossover(gene1, 0, gene2, 0, offspring1, 0, offspring2, 0, gene1.length, deltas);
+        offspring.add(Solution.wrap(offspring1, o1, deltas[0]));
+        offspring.add(Solution.wrap(offspring2, o2, deltas[1]));
+        return offspring;
+    }
+
+    @Override
+    public boolean crossover(int[] genes1, int from1, int[] genes2, int from2,
+                             int[] offspring1, int to1, int[] offspring2, int to2, int length, double[] deltas) {
+        int i = 0;
+        while (i < length && genes1[from1 + i] == genes2[from2 + i]) {
+            i++;
+        }
+        if (i == length) {
+            return false;
+        }
+        System.arraycopy(genes1, from1, offspring1, to1, length);
+        System.arraycopy(genes2, from2, offspring2, to2, length);
+        int[] loci = new int[Math.min(numberOfLoci, length) + 1];
+        int count = exchange(offspring1, to1, offspring2, to2, length, loci);
+        if (deltas != null) {
+            deltas[0] = TourDelta.ofLoci(genes1, from1, offspring1, to1, length, loci, count);
+            deltas[1] = TourDelta.ofLoci(genes2, from2, offspring2, to2, length, loci, count);
+        }
+        return true;
+    }
+
+    /**
+     * Exchanges loci of two different genes in place, each of which is a range of an array.
+     *
+     * @param loci the array into which the loci changed in either gene are written
+     * @return the number of loci written
+     */
+    private int exchange(int[] gene1, int from1, int[] gene2, int from2, int length, int[] loci) {
+        Random random = TspSolver.getRandom();
+        if (numberOfLoci > length)
+            numberOfLoci = length;
+        int idx1, idx2, temp, count = 0;
         do {
-            idx1 = random.nextInt(gene1.length);
-        } while (gene1[idx1] == gene2[idx1]);
-        idx2 = ArrayUtils.indexOfUnique(gene2, gene1[idx1]);
+            idx1 = random.nextInt(length);
+        } while (gene1[from1 + idx1] == gene2[from2 + idx1]);
+        idx2 = ArrayUtils.indexOfUnique(gene2, from2, length, gene1[from1 + idx1]);
         for (int i = 1; i <= numberOfLoci; ++i) {
             if (i == numberOfLoci) {
-                temp = gene1[idx1];
-                gene1[idx1] = gene2[idx2];
-                gene2[idx2] = temp;
+                temp = gene1[from1 + idx1];
+                gene1[from1 + idx1] = gene2[from2 + idx2];
+                gene2[from2 + idx2] = temp;
+                loci[count++] = idx1;
+                loci[count++] = idx2;
                 break;
             }
-            temp = gene1[idx1];
-            gene1[idx1] = gene2[idx1];
-            gene2[idx1] = temp;
+            temp = gene1[from1 + idx1];
+            gene1[from1 + idx1] = gene2[from2 + idx1];
+            gene2[from2 + idx1] = temp;
+            loci[count++] = idx1;
             if (idx1 == idx2) break;
-            for (int f = 0; f < gene1.length; ++f) {
+            for (int f = 0; f < length; ++f) {
                 if (f == idx1) continue;
-                if (gene1[f] == gene1[idx1]) {
+                if (gene1[from1 + f] == gene1[from1 + idx1]) {
                     idx1 = f;
                     break;
                 }
             }
         }
-        offspring.add(new Solution(gene1, true));
-        offspring.add(new Solution(gene2, true));
-        return offspring;
+        return count;
     }
 }
@@ -0,0 +1,75 @@
+package org.pursuemoon.solvetsp.ga.operator;
+
+import org.pursuemoon.solvetsp.ga.TspSolver;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+
+import java.util.Arrays;
+
+/**
+ * Changes of tour length made by operators, computed from the edges they change only, instead of all edges of
+ * the tour. Distances are integers, so the length of a tour got by adding a change to that of its parent is
+ * exactly the same as the sum of its edges.
+ *
+ * Edge {@code e} of a gene is the one between its loci {@code e} and {@code e + 1}, and the last edge closes the
+ * cycle. Genes are ranges of arrays, as in-place operators see them.
+ */
+final class TourDelta {
+
+    private TourDelta() {}
+
+    /**
+     * Gets the change of tour length from a gene to another one which differs from it at the specified loci only.
+     * Loci may be repeated, or be the same in both genes, each edge being counted once.
+     *
+     * @param gene the array of the original gene
+     * @param from the offset of the original gene
+     * @param offspring the array of the changed gene
+     * @param to the offset of the changed gene
+     * @param length the length of each gene
+     * @param loci the loci at which the genes may differ
+     * @param count the number of loci
+     * @return the change of tour length
+     */
+    static double ofLoci(int[] gene, int from, int[] offspring, int to, int length, int[] loci, int count) {
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
+        int[] edges = new int[2 * count];
+        for (int i = 0; i < count; ++i) {
+            edges[2 * i] = (loci[i] == 0 ? length - 1 : loci[i] - 1);
+            edges[2 * i + 1] = loci[i];
+        }
+        Arrays.sort(edges);
+        long delta = 0;
+        for (int i = 0; i < edges.length; ++i) {
+            if (i > 0 && edges[i] == edges[i - 1])
+                continue;
+            int e = edges[i], f = (e + 1 == length ? 0 : e + 1);
+            delta += distanceOracle.distance(offspring[to + e] - 1, offspring[to + f] - 1);
+            delta -= distanceOracle.distance(gene[from + e] - 1, gene[from + f] - 1);
+        }
+        return delta;
+    }
+
+    /**
+     * Gets the change of tour length made by reversing the loci from {@code left} to {@code right} of a gene,
+     * which is a 2-opt move replacing the two edges around the range.
+     *
+     * @param gene the array of the gene before the reversal
+     * @param from the offset of the gene
+     * @param length the length of the gene
+     * @param left the first locus of the range
+     * @param right the last locus of the range, which is not less than {@code left}
+     * @return the change of tour length
+     */
+    static double ofReversal(int[] gene, int from, int length, int left, int right) {
+        /* Reversing all loci, or all but one, gives the same cycle. */
+        if (right - left + 1 >= length - 1)
+            return 0;
+        DistanceOracle distanceOracle = TspSolver.getDistanceOracle();
+        int prev = gene[from + (left == 0 ? length - 1 : left - 1)] - 1;
+        int next = gene[from + (right == length - 1 ? 0 : right + 1)] - 1;
+        int first = gene[from + left] - 1, last = gene[from + right] - 1;
+        long delta = (long) distanceOracle.distance(prev, last) + distanceOracle.distance(first, next)
+                - distanceOracle.distance(prev, first) - distanceOracle.distance(last, next);
+        return delta;
+    }
+}
@@ -0,0 +1,50 @@
+package org.pursuemoon.solvetsp.ga.operator;
+
+import org.pursuemoon.ai.ga.operator.WeightedOperator;
+import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
+
+import java.util.Random;
+
+/**
+ * Tournament-Selection-Strategy implementation of {@code SelectionOperator}, which selects the best of
+ * {@code tournamentSize} individuals drawn uniformly with replacement.
+ *
+ * Each individual is selected in O(tournamentSize) without allocating anything, and the selection pressure only
+ * depends on the ranks of individuals, so it's not lost when the fitness of all individuals gets close.
+ */
+public final class TournamentSelectionOperator extends WeightedOperator.WeightedSelectionOperator<Integer, Solution>
+        implements IndexSelectionOperator {
+
+    private final int tournamentSize;
+
+    /**
+     * Constructor.
+     *
+     * @param weight the weight of this operator
+     * @param tournamentSize the number of individuals of each tournament, which is at least 1
+     */
+    public TournamentSelectionOperator(Integer weight, int tournamentSize) {
+        super(weight);
+        if (tournamentSize < 1) {
+            String m = String.format("Illegal tournament size: tournamentSize = %d", tournamentSize);
+            throw new RuntimeException(m);
+        }
+        this.tournamentSize = tournamentSize;
+    }
+
+    @Override
+    public void select(double[] fitness, int count, int targetSize, int[] selected, int offset) {
+        Random random = TspSolver.getRandom();
+        for (int i = 0; i < targetSize; ++i) {
+            int winner = random.nextInt(count);
+            for (int j = 1; j < tournamentSize; ++j) {
+                int rival = random.nextInt(count);
+                if (fitness[rival] > fitness[winner]) {
+                    winner = rival;
+                }
+            }
+            selected[offset + i] = winner;
+        }
+    }
+}
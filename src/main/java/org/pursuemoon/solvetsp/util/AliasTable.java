@@ -0,0 +1,95 @@
+package org.pursuemoon.solvetsp.util;
+
+import java.util.Random;
+
+/**
+ * Alias table of a discrete distribution, by which an index is sampled in O(1) with its chance proportional to
+ * its weight, after the table is built in O(n) by Vose's method.
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Constructor.
+     *
+     * @param weights the non-negative weights of indices, whose sum is positive
+     */
+    public AliasTable(double[] weights) {
+        this(weights, weights.length);
+    }
+
+    /**
+     * Constructor of the alias table of the first {@code n} weights.
+     *
+     * @param weights the non-negative weights of indices, whose sum of the first {@code n} ones is positive
+     * @param n the number of indices
+     */
+    public AliasTable(double[] weights, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; ++i) {
+            double weight = weights[i];
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                String m = String.format("Illegal weight of alias table: %f", weight);
+                throw new RuntimeException(m);
+            }
+            sum += weight;
+        }
+        if (n <= 0 || sum <= 0) {
+            String m = String.format("Illegal alias table: size = %d, sum of weights = %f", n, sum);
+            throw new RuntimeException(m);
+        }
+        probability = new double[n];
+        alias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; ++i) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount], l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            if (scaled[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        /* Whichever are left are of probability 1, up to rounding errors. */
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            probability[l] = 1;
+            alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            probability[s] = 1;
+            alias[s] = s;
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * Samples an index.
+     *
+     * @param random the random stream
+     * @return the index sampled
+     */
+    public int sample(Random random) {
+        int i = random.nextInt(probability.length);
+        return (random.nextDouble() < probability[i] ? i : alias[i]);
+    }
+}
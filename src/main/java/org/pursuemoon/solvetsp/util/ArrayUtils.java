@@ -6,9 +6,22 @@ package org.pursuemoon.solvetsp.util;
 public final class ArrayUtils {
 
     public static int indexOfUnique(int[] gene, int uniqueElement) {
+        return indexOfUnique(gene, 0, gene.length, uniqueElement);
+    }
+
+    /**
+     * Gets the index of an element in a range of an array, relative to the start of the range.
+     *
+     * @param array the array
+     * @param from the start of the range
+     * @param length the length of the range
+     * @param uniqueElement the element which appears once in the range
+     * @return the index relative to {@code from}
+     */
+    public static int indexOfUnique(int[] array, int from, int length, int uniqueElement) {
         int ret = -1;
-        for (int f = 0; f < gene.length; ++f) {
-            if (gene[f] == uniqueElement) {
+        for (int f = 0; f < length; ++f) {
+            if (array[from + f] == uniqueElement) {
                 ret = f;
                 break;
             }
@@ -0,0 +1,497 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.apache.log4j.Logger;
+import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspInstance;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.distance.MappedDistanceMatrix;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary cache of a TSP instance, which is opened with {@code FileChannel.map}.
+ *
+ * Besides the coordinates as read from the TSPLIB file, it keeps the fitness constant, the optimal tour,
+ * the K-nearest candidate lists, the convex hull layers and the compact distance matrix, so that a repeat
+ * solve needs neither parsing nor any precomputation. The distance matrix is not copied into the heap but
+ * read from the mapped file directly. A matrix which was parsed into a mapped file, such as the edge weights
+ * of a huge EXPLICIT instance, is not copied either but kept in a file next to the cache file, named by
+ * {@link #matrixFileOf(File)}.
+ *
+ * The file begins with a magic number written in the byte order of the writer, followed by the format
+ * version and the stamp of the source files, which is the length and modification time of the TSPLIB file and
+ * of its optimal tour file; a file whose version or stamp doesn't match is ignored. All arrays are aligned to
+ * 8 bytes.
+ */
+public final class BinaryInstanceFile {
+
+    private static Logger log = Logger.getLogger(BinaryInstanceFile.class);
+
+    /** The magic number, which is "GTSP" in ASCII. */
+    private static final int MAGIC = 0x47545350;
+
+    /** The version of the format, which must be increased whenever the format changes. */
+    public static final int VERSION = 3;
+
+    private static final int ALIGNMENT = 8;
+
+    private static final int TYPE_EUC_2D = 0;
+    private static final int TYPE_GEO = 1;
+    private static final int TYPE_EXPLICIT = 2;
+
+    private static final int NO_MATRIX = -1;
+    private static final int EXTERNAL_MATRIX = -2;
+
+    private static final String MATRIX_FILE_SUFFIX = ".matrix";
+
+    private BinaryInstanceFile() {}
+
+    /**
+     * Gets the file in which the distance matrix of a cache file is kept if it's not inside the cache file.
+     *
+     * @param file the cache file
+     * @return the matrix file
+     */
+    public static File matrixFileOf(File file) {
+        return new File(file.getPath() + MATRIX_FILE_SUFFIX);
+    }
+
+    /** The number of longs of the stamp of source files. */
+    public static final int STAMP_LENGTH = 4;
+
+    /**
+     * Reads an instance from a binary cache file.
+     *
+     * @param file the cache file
+     * @param stamp the length and modification time of the TSPLIB file and of the optimal tour file, in order,
+     *              which are -1 for a file which doesn't exist
+     * @return the instance, or {@code null} if the file doesn't exist, is of another version or is stale
+     * @throws IOException if the file could not be read
+     */
+    public static TspInstance read(File file, long[] stamp) throws IOException {
+        checkStamp(stamp);
+        if (!file.isFile()) {
+            return null;
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < 32) {
+                return null;
+            }
+            /* The mapping stays valid after the channel is closed. */
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Input in = new Input(mapped);
+        if (in.order == null) {
+            log.warn(String.format("Binary cache [%s] is broken and will be ignored.", file));
+            return null;
+        }
+        boolean upToDate = (in.getInt() == VERSION);
+        for (int i = 0; i < STAMP_LENGTH && upToDate; ++i) {
+            upToDate = (in.getLong() == stamp[i]);
+        }
+        if (!upToDate) {
+            log.info(String.format("Binary cache [%s] is out of date and will be ignored.", file));
+            return null;
+        }
+        String name = in.getString();
+        int type = in.getInt();
+        int size = in.getInt();
+        double fitnessConstant = in.getDouble();
+
+        int[] ids = in.getInts(size);
+        double[] first = in.getDoubles(size);
+        double[] second = in.getDoubles(size);
+        int[] tour = in.getInts(in.getInt());
+        int k = in.getInt();
+        int[] candidates = in.getInts(size * k);
+        int[][] layers = new int[in.getInt()][];
+        for (int l = 0; l < layers.length; ++l) {
+            layers[l] = in.getInts(in.getInt());
+        }
+        int layout = in.getInt();
+        DistanceOracle distanceOracle;
+        if (layout == NO_MATRIX) {
+            distanceOracle = null;
+        } else if (layout == EXTERNAL_MATRIX) {
+            MappedDistanceMatrix.Layout l = MappedDistanceMatrix.Layout.values()[in.getInt()];
+            File matrixFile = matrixFileOf(file);
+            if (matrixFile.length() != 4 * MappedDistanceMatrix.lengthOf(size, l)) {
+                log.warn(String.format("Matrix file [%s] of binary cache [%s] is broken, so it will be ignored.", matrixFile, file));
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(matrixFile.toPath(), StandardOpenOption.READ)) {
+                distanceOracle = MappedDistanceMatrix.map(channel, 0, size, l, FileChannel.MapMode.READ_ONLY, in.order);
+            }
+        } else {
+            MappedDistanceMatrix.Layout l = MappedDistanceMatrix.Layout.values()[layout];
+            long length = MappedDistanceMatrix.lengthOf(size, l);
+            distanceOracle = new MappedDistanceMatrix(size, l, in.getIntBuffer((int) length));
+        }
+        if (in.getInt() != MAGIC) {
+            log.warn(String.format("Binary cache [%s] is truncated and will be ignored.", file));
+            return null;
+        }
+
+        if (type == TYPE_EXPLICIT && distanceOracle == null) {
+            log.warn(String.format("Binary cache [%s] of an EXPLICIT TSP has no matrix, so it will be ignored.", file));
+            return null;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("NAME", name);
+        headers.put("EDGE_WEIGHT_TYPE", (type == TYPE_EXPLICIT ? "EXPLICIT" : type == TYPE_GEO ? "GEO" : "EUC_2D"));
+        DistanceStore edgeWeights = (type == TYPE_EXPLICIT ? (DistanceStore) distanceOracle : null);
+        List<AbstractPoint> pList = new TspLibFile(headers, size, ids, first, second, null, edgeWeights).toPoints();
+        if (distanceOracle == null) {
+            distanceOracle = DistanceOracle.of(PointArrays.of(pList));
+        }
+        Solution solution = (tour.length == 0 ? null : new Solution(tour, true));
+        CandidateLists candidateLists = CandidateLists.ofArray(size, k, candidates);
+        return new TspInstance(name, pList, solution, DataExtractor.fitnessFunctionOf(fitnessConstant),
+                distanceOracle, candidateLists, layers);
+    }
+
+    /**
+     * Writes an instance to a binary cache file, building all its precomputed structures if they're not built.
+     * The file is written to a temporary file first and then moved, so that readers never see a partial file.
+     * If the distance oracle of the instance is a matrix created in a file, that file is moved to
+     * {@link #matrixFileOf(File)} instead of being copied.
+     *
+     * @param file the cache file
+     * @param stamp the length and modification time of the TSPLIB file and of the optimal tour file, in order
+     * @param problem the parsed TSPLIB problem file of the instance
+     * @param instance the instance
+     * @param fitnessConstant the constant C of the fitness function of the instance
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File file, long[] stamp,
+                             TspLibFile problem, TspInstance instance, double fitnessConstant) throws IOException {
+        checkStamp(stamp);
+        int size = instance.size();
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            String m = String.format("Directory [%s] could not be created.", dir);
+            throw new IOException(m);
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (Output out = new Output(FileChannel.open(temp.toPath(), StandardOpenOption.WRITE))) {
+                out.putInt(MAGIC);
+                out.putInt(VERSION);
+                for (long v : stamp) {
+                    out.putLong(v);
+                }
+                out.putString(instance.getName());
+                out.putInt(typeOf(instance.getPointArrays().getType()));
+                out.putInt(size);
+                out.putDouble(fitnessConstant);
+
+                /* EXPLICIT points may have no coordinates, in which case they're kept as 0. */
+                boolean coordinates = (problem.getNodeCount() == size);
+                int[] ids = new int[size];
+                double[] first = new double[size];
+                double[] second = new double[size];
+                for (int i = 0; i < size; ++i) {
+                    ids[i] = instance.getPoints().get(i).getOrder();
+                    if (coordinates) {
+                        first[i] = problem.getFirst(i);
+                        second[i] = problem.getSecond(i);
+                    }
+                }
+                out.putIntArray(ids);
+                out.putDoubles(first);
+                out.putDoubles(second);
+
+                Solution optimal = instance.getOptimalSolution();
+                int[] tour = (optimal == null ? new int[0] : optimal.getClonedGene());
+                out.putInt(tour.length);
+                out.putIntArray(tour);
+
+                CandidateLists candidateLists = instance.getCandidateLists();
+                int k = candidateLists.getK();
+                int[] candidates = new int[size * k];
+                for (int i = 0; i < size; ++i) {
+                    for (int r = 0; r < k; ++r) {
+                        candidates[i * k + r] = candidateLists.get(i, r);
+                    }
+                }
+                out.putInt(k);
+                out.putIntArray(candidates);
+
+                int[][] layers = instance.getConvexHullLayers();
+                out.putInt(layers.length);
+                for (int[] layer : layers) {
+                    out.putInt(layer.length);
+                    out.putIntArray(layer);
+                }
+
+                DistanceOracle distanceOracle = instance.getDistanceOracle();
+                MappedDistanceMatrix.Layout layout = (distanceOracle instanceof DistanceStore
+                        ? MappedDistanceMatrix.layoutOf((DistanceStore) distanceOracle) : null);
+                File matrixFile = (distanceOracle instanceof MappedDistanceMatrix
+                        ? ((MappedDistanceMatrix) distanceOracle).getFile() : null);
+                if (matrixFile != null) {
+                    ((MappedDistanceMatrix) distanceOracle).force();
+                    File target = matrixFileOf(file);
+                    if (!matrixFile.getAbsoluteFile().equals(target.getAbsoluteFile())) {
+                        Files.move(matrixFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    out.putInt(EXTERNAL_MATRIX);
+                    out.putInt(layout.ordinal());
+                } else if (layout == null) {
+                    out.putInt(NO_MATRIX);
+                } else {
+                    out.putInt(layout.ordinal());
+                    out.align();
+                    int[] buffer = new int[size];
+                    for (int i = 0; i < size; ++i) {
+                        int[] row = distanceOracle.row(i, buffer);
+                        if (layout == MappedDistanceMatrix.Layout.FULL) {
+                            out.putInts(row, 0, size);
+                        } else {
+                            out.putInts(row, i + 1, size - i - 1);
+                        }
+                    }
+                }
+                out.putInt(MAGIC);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static void checkStamp(long[] stamp) {
+        if (stamp.length != STAMP_LENGTH) {
+            String m = String.format("Illegal stamp of binary cache: length = %d", stamp.length);
+            throw new RuntimeException(m);
+        }
+    }
+
+    private static int typeOf(PointArrays.Type type) {
+        switch (type) {
+            case GEO:
+                return TYPE_GEO;
+            case EXPLICIT:
+                return TYPE_EXPLICIT;
+            default:
+                return TYPE_EUC_2D;
+        }
+    }
+
+    /**
+     * Sequential reader of a mapped file.
+     */
+    private static final class Input {
+
+        private final ByteBuffer buffer;
+        private final ByteOrder order;
+        private int pos;
+
+        Input(MappedByteBuffer mapped) {
+            int magic = mapped.order(ByteOrder.BIG_ENDIAN).getInt(0);
+            if (magic == MAGIC) {
+                order = ByteOrder.BIG_ENDIAN;
+            } else if (magic == Integer.reverseBytes(MAGIC)) {
+                order = ByteOrder.LITTLE_ENDIAN;
+            } else {
+                order = null;
+            }
+            buffer = mapped.order(order == null ? ByteOrder.BIG_ENDIAN : order);
+            pos = 4;
+        }
+
+        private void check(long bytes) throws IOException {
+            if (pos + bytes > buffer.limit()) {
+                throw new IOException("Unexpected end of binary cache.");
+            }
+        }
+
+        int getInt() throws IOException {
+            check(4);
+            int v = buffer.getInt(pos);
+            pos += 4;
+            return v;
+        }
+
+        long getLong() throws IOException {
+            check(8);
+            long v = buffer.getLong(pos);
+            pos += 8;
+            return v;
+        }
+
+        double getDouble() throws IOException {
+            check(8);
+            double v = buffer.getDouble(pos);
+            pos += 8;
+            return v;
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            check(length);
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; ++i) {
+                bytes[i] = buffer.get(pos + i);
+            }
+            pos += length;
+            align();
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        IntBuffer getIntBuffer(int length) throws IOException {
+            align();
+            check(4L * length);
+            ByteBuffer view = buffer.duplicate();
+            view.position(pos);
+            view.limit(pos + 4 * length);
+            pos += 4 * length;
+            return view.slice().order(order).asIntBuffer();
+        }
+
+        int[] getInts(int length) throws IOException {
+            int[] a = new int[length];
+            getIntBuffer(length).get(a);
+            return a;
+        }
+
+        double[] getDoubles(int length) throws IOException {
+            align();
+            check(8L * length);
+            ByteBuffer view = buffer.duplicate();
+            view.position(pos);
+            view.limit(pos + 8 * length);
+            pos += 8 * length;
+            double[] a = new double[length];
+            view.slice().order(order).asDoubleBuffer().get(a);
+            return a;
+        }
+
+        private void align() {
+            pos = (pos + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        }
+    }
+
+    /**
+     * Sequential writer through a direct buffer in native byte order.
+     */
+    private static final class Output implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.nativeOrder());
+        private long written;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            buffer.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(8);
+            buffer.putLong(v);
+        }
+
+        void putDouble(double v) throws IOException {
+            ensure(8);
+            buffer.putDouble(v);
+        }
+
+        void putString(String s) throws IOException {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (byte b : bytes) {
+                ensure(1);
+                buffer.put(b);
+            }
+            align();
+        }
+
+        void putIntArray(int[] a) throws IOException {
+            align();
+            putInts(a, 0, a.length);
+        }
+
+        void putInts(int[] a, int from, int length) throws IOException {
+            int end = from + length;
+            while (from < end) {
+                ensure(4);
+                int n = Math.min(end - from, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(a, from, n);
+                buffer.position(buffer.position() + 4 * n);
+                from += n;
+            }
+        }
+
+        void putDoubles(double[] a) throws IOException {
+            align();
+            int from = 0;
+            while (from < a.length) {
+                ensure(8);
+                int n = Math.min(a.length - from, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(a, from, n);
+                buffer.position(buffer.position() + 8 * n);
+                from += n;
+            }
+        }
+
+        void align() throws IOException {
+            while ((written + buffer.position()) % ALIGNMENT != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package org.pursuemoon.solvetsp.util;
 
 import org.apache.log4j.Logger;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.distance.MappedDistanceMatrix;
 import org.pursuemoon.solvetsp.util.geometry.Euc2DPoint;
 import org.pursuemoon.solvetsp.util.geometry.GeoPoint;
 import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspInstance;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
 import java.util.*;
 import java.util.function.UnaryOperator;
 import java.util.jar.JarEntry;
@@ -25,6 +32,11 @@ public final class DataExtractor {
     private static final String TSP_TEST_DIR = "tsp_test/";
     private static final String TSP_TEST_EUC_2D_DIR = "tsp_test/test_EUC_2D/";
     private static final String TSP_TEST_GEO_DIR = "tsp_test/test_GEO/";
+    private static final String TSP_TEST_EXPLICIT_DIR = "tsp_test/test_EXPLICIT/";
+
+    /** The directory for binary caches of TSPs whose TSPLIB files are not in a writable directory. */
+    private static final String BINARY_CACHE_DIR = "cache";
+    private static final String BINARY_CACHE_SUFFIX = ".tsp.bin";
 
     /** List of names of test directories. */
     private List<String> testDirList;
@@ -32,7 +44,11 @@ public final class DataExtractor {
     /** Index of test directory being processed now. */
     private int idx;
 
-    private static Random random = new Random();
+    /** The cache of loaded TSP instances, shared by all solver threads. */
+    private TspInstanceCache instanceCache = new TspInstanceCache(TspInstanceCache.DEFAULT_CAPACITY);
+
+    /** If binary caches of TSPs are read and written. */
+    private volatile boolean binaryCacheEnabled = true;
 
     /**
      * Constructor of {@code DataExtractor} which initializes {@code testDirList}.
@@ -60,7 +76,7 @@ public final class DataExtractor {
             File[] types = file.listFiles(File::isDirectory);
             for (File type : Objects.requireNonNull(types)) {
                 String typeName = type.getName();
-                if (typeName.equals("test_EUC_2D") || typeName.equals("test_GEO")) {
+                if (typeName.equals("test_EUC_2D") || typeName.equals("test_GEO") || typeName.equals("test_EXPLICIT")) {
                     File[] dirs = type.listFiles(File::isDirectory);
                     for (File dir : Objects.requireNonNull(dirs)) {
                         String dirName = dir.getName();
@@ -87,7 +103,9 @@ public final class DataExtractor {
         String entryName = jarEntry.getName();
         return (jarEntry.isDirectory() &&
                 !entryName.equals(TSP_TEST_EUC_2D_DIR) && !entryName.equals(TSP_TEST_GEO_DIR) &&
-                (entryName.startsWith(TSP_TEST_EUC_2D_DIR) || entryName.startsWith(TSP_TEST_GEO_DIR)));
+                !entryName.equals(TSP_TEST_EXPLICIT_DIR) &&
+                (entryName.startsWith(TSP_TEST_EUC_2D_DIR) || entryName.startsWith(TSP_TEST_GEO_DIR) ||
+                        entryName.startsWith(TSP_TEST_EXPLICIT_DIR)));
     }
 
     /**
@@ -100,43 +118,34 @@ public final class DataExtractor {
     }
 
     /**
-     * Gets the next TSP.
+     * Gets the cache of loaded TSP instances.
      *
-     * The first element is its name.
-     * The second element is its points.
-     * The third element is its optimal solution if it exists, or {@code null} if not.
-     * The forth element is a fitness function which is adapted to this TSP.
-     *      Specifically, the fitness function is: fitness(distance) = 1 / (C * distance + 1e-5), and C depends on
-     *      the TSP being solved.
-     * The fifth element is a two-dimensional array representing distances between each two points.
-     *      This array is filled with -1, which means no distance has been calculated.
-     * The sixth element is a Boolean object which representing if the distance array fully calculated.
-     *      Its default value is {@code false}. If it is fully calculated, it's {@code true}.
+     * @return the instance cache
+     */
+    public TspInstanceCache getInstanceCache() {
+        return instanceCache;
+    }
+
+    /**
+     * Gets the next TSP.
      *
-     * @return the list that represents a TSP
+     * @return the next TSP instance
      */
-    public List<Object> getNextTsp() {
+    public TspInstance getNextTsp() {
         return getTspByIndex(idx++);
     }
 
     /**
      * Gets a TSP by index.
      *
-     * The first element is its name.
-     * The second element is its points.
-     * The third element is its optimal solution if it exists, or {@code null} if not.
-     * The forth element is a fitness function which is adapted to this TSP.
-     *      Specifically, the fitness function is: fitness(distance) = 1 / (C * distance + 1e-5), and C depends on
-     *      the TSP being solved.
-     * The fifth element is a two-dimensional array representing distances between each two points.
-     *      This array is filled with -1, which means no distance has been calculated.
-     * The sixth element is a Boolean object which representing if the distance array fully calculated.
-     *      Its default value is {@code false}. If it is fully calculated, it's {@code true}.
+     * The instance is shared with other callers of the same case through {@code instanceCache}. Its fitness
+     * function is adapted to the TSP; specifically, it is: fitness(distance) = 1 / (C * distance + 1e-5),
+     * and C depends on the TSP being solved.
      *
      * @param index index of a TSP in {@code testDirList}
-     * @return the list that represents a TSP
+     * @return the TSP instance
      */
-    public List<Object> getTspByIndex(int index) {
+    public TspInstance getTspByIndex(int index) {
         if (index >= testDirList.size() || index < 0) {
             String m = String.format("Illegal index: size = %d, index = %d", testDirList.size(), index);
             log.error(m);
@@ -145,29 +154,140 @@ public final class DataExtractor {
         String nextDir = testDirList.get(index);
         String testDir = nextDir.substring(0, nextDir.length() - 1);
         String dirName = testDir.substring(testDir.lastIndexOf("/") + 1);
-        List<AbstractPoint> pList = extractPointsByResource(String.format("%s/%s.tsp", testDir, dirName));
-        Solution solution = extractSolutionByResource(String.format("%s/%s.opt.tour", testDir, dirName), true);
-        UnaryOperator<Double> fitnessFunction = calFitnessFunction(pList);
-        @SuppressWarnings("all")
-        double[][] distArray = new double[pList.size()][pList.size()];
-        for (double[] doubles : distArray) {
-            Arrays.fill(doubles, -1);
+        return instanceCache.get(dirName, () -> loadTsp(testDir, dirName));
+    }
+
+    /**
+     * Loads a TSP from its binary cache if it's up to date, or from its TSPLIB files otherwise, in which case
+     * the binary cache is written for the next time.
+     */
+    private TspInstance loadTsp(String testDir, String dirName) {
+        String tspResource = String.format("%s/%s.tsp", testDir, dirName);
+        URL url = DataExtractor.class.getClassLoader().getResource(tspResource);
+        if (url == null) {
+            String m = String.format("Extraction of file [%s] failed.", tspResource);
+            log.error(m);
+            throw new RuntimeException(m);
+        }
+        String tourResource = String.format("%s/%s.opt.tour", testDir, dirName);
+        long[] stamp = null;
+        File cacheFile = null;
+        if (binaryCacheEnabled) {
+            try {
+                /* The optimal tour is cached too, so the cache is stale once either file is changed. */
+                long[] tspStamp = stampOf(url);
+                long[] tourStamp = stampOf(DataExtractor.class.getClassLoader().getResource(tourResource));
+                stamp = new long[] {tspStamp[0], tspStamp[1], tourStamp[0], tourStamp[1]};
+                cacheFile = getBinaryCacheFile(dirName);
+                TspInstance cached = BinaryInstanceFile.read(cacheFile, stamp);
+                if (cached != null) {
+                    log.debug(String.format("TSP [%s] was loaded from binary cache [%s].", dirName, cacheFile));
+                    return cached;
+                }
+            } catch (Exception e) {
+                log.warn(String.format("Binary cache of TSP [%s] could not be read.", dirName), e);
+            }
+        }
+
+        List<AbstractPoint> pList;
+        TspLibFile problem;
+        File matrixDir = (cacheFile == null ? null : cacheFile.getAbsoluteFile().getParentFile());
+        try {
+            problem = TspLibParser.parseResource(tspResource, size -> createEdgeWeightStore(size, dirName, matrixDir));
+            pList = Objects.requireNonNull(problem).toPoints();
+        } catch (Exception e) {
+            String m = String.format("Extraction of file [%s] failed.", tspResource);
+            log.error(m, e);
+            throw new RuntimeException(e);
+        }
+        Solution solution = extractSolutionByResource(tourResource, true);
+        double fitnessConstant = calFitnessConstant(pList);
+        TspInstance instance = TspInstance.of(dirName, pList, solution, fitnessFunctionOf(fitnessConstant));
+
+        if (cacheFile != null) {
+            try {
+                BinaryInstanceFile.write(cacheFile, stamp, problem, instance, fitnessConstant);
+                log.debug(String.format("Binary cache [%s] of TSP [%s] was written.", cacheFile, dirName));
+            } catch (Exception e) {
+                log.warn(String.format("Binary cache of TSP [%s] could not be written.", dirName), e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a store of explicit edge weights. The weights of a TSP too large for a heap matrix are written
+     * into a mapped file in the directory of its binary cache, if there is one, which is moved next to the
+     * cache file when that's written.
+     */
+    private static DistanceStore createEdgeWeightStore(int size, String dirName, File matrixDir) {
+        if (size <= DistanceOracle.MAX_TRIANGULAR_MATRIX_SIZE || matrixDir == null) {
+            return DistanceStore.ofSize(size);
+        }
+        try {
+            if (!matrixDir.isDirectory() && !matrixDir.mkdirs()) {
+                String m = String.format("Directory [%s] could not be created.", matrixDir);
+                throw new IOException(m);
+            }
+            File matrixFile = File.createTempFile(dirName, ".matrix.tmp", matrixDir);
+            matrixFile.deleteOnExit();
+            log.debug(String.format("Edge weights of TSP [%s] will be written into [%s].", dirName, matrixFile));
+            return MappedDistanceMatrix.create(matrixFile, size, MappedDistanceMatrix.Layout.TRIANGULAR);
+        } catch (IOException e) {
+            String m = String.format("Mapped edge weights of TSP [%s] could not be created.", dirName);
+            log.error(m, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gets the binary cache file of a TSP, which is in {@code BINARY_CACHE_DIR} of the working directory, so that
+     * no cache is ever written among the resources, such as into the source tree.
+     */
+    private static File getBinaryCacheFile(String dirName) {
+        return new File(BINARY_CACHE_DIR, dirName + BINARY_CACHE_SUFFIX);
+    }
+
+    /**
+     * Gets the length and the modification time of a resource, by which its binary cache is checked.
+     *
+     * @param url the URL of the resource, or {@code null} if it doesn't exist
+     * @return the length and the modification time, which are both -1 if the resource doesn't exist
+     */
+    private static long[] stampOf(URL url) throws IOException, URISyntaxException {
+        if (url == null) {
+            return new long[] {-1, -1};
         }
-        return Arrays.asList(dirName, pList, solution, fitnessFunction, distArray, Boolean.FALSE);
+        if (url.getProtocol().equals("file")) {
+            File source = new File(url.toURI());
+            return new long[] {source.length(), source.lastModified()};
+        }
+        URLConnection connection = url.openConnection();
+        return new long[] {connection.getContentLengthLong(), connection.getLastModified()};
+    }
+
+    /**
+     * Sets if binary caches of TSPs are read and written, which is enabled by default.
+     *
+     * @param binaryCacheEnabled true if binary caches should be used
+     */
+    public void setBinaryCacheEnabled(boolean binaryCacheEnabled) {
+        this.binaryCacheEnabled = binaryCacheEnabled;
     }
 
     /**
-     * Gets a fitness function which is adapted to the specific TSP.
+     * Gets the constant C of a fitness function which is adapted to the specific TSP.
      * The fitness function conforms the following form:
      *      fitness(distance) = 1 / (C * distance + 1e-5).
      *      And C here is the reciprocal of the magnitude of the random distance
      *
      * @param pList the list of points of the specified tsp
-     * @return the fitness function adapted to the tsp
+     * @return the constant C of the fitness function adapted to the tsp
      */
-    private static UnaryOperator<Double> calFitnessFunction(List<AbstractPoint> pList) {
-        /* Gets a genotype randomly. */
+    private static double calFitnessConstant(List<AbstractPoint> pList) {
+        /* Gets a genotype randomly, from a stream of its own so that the constant is the same for the same TSP. */
         int size = pList.size();
+        Random random = new RandomStream(size);
         int[] gene = new int[size];
         for (int i = 0; i < size; ++i)
             gene[i] = i + 1;
@@ -193,7 +313,17 @@ public final class DataExtractor {
                 l = mid + 1;
             }
         }
-        final double C = Math.pow(10, -ans);
+        return Math.pow(10, -ans);
+    }
+
+    /**
+     * Gets the fitness function with the specified constant C, which is:
+     *      fitness(distance) = 1 / (C * distance + 1e-5).
+     *
+     * @param C the constant C
+     * @return the fitness function
+     */
+    static UnaryOperator<Double> fitnessFunctionOf(double C) {
         return t -> 1 / (C * t + 1e-5);
     }
 
@@ -204,36 +334,14 @@ public final class DataExtractor {
      * @return the list of points
      */
     public static List<AbstractPoint> extractPointsByResource(String resourceDir) {
-        List<AbstractPoint> pList = new ArrayList<>();
-        try (InputStream stream = DataExtractor.class.getClassLoader().getResourceAsStream(resourceDir);
-             InputStreamReader inputStreamReader = new InputStreamReader(Objects.requireNonNull(stream));
-             BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-            String str;
-            int cnt = 0, typeOfPoint = 0;
-            while ((str = bufferedReader.readLine()) != null) {
-                if (++cnt <= 4 || cnt == 6 || typeOfPoint == 2 && cnt == 7)
-                    continue;
-                if (cnt == 5) {
-                    if (str.trim().endsWith("EUC_2D"))
-                        typeOfPoint = 1;
-                    else if (str.trim().endsWith("GEO"))
-                        typeOfPoint = 2;
-                    continue;
-                }
-                if (str.trim().equals("EOF")) break;
-                String[] strings = str.split("\\s+", 0);
-                int order = Integer.parseInt(!strings[0].isEmpty() ? strings[0] : strings[1]);
-                double d1 = Double.parseDouble(!strings[0].isEmpty() ? strings[1] : strings[2]);
-                double d2 = Double.parseDouble(!strings[0].isEmpty() ? strings[2] : strings[3]);
-                AbstractPoint point = (typeOfPoint == 1 ? new Euc2DPoint(order, d1, d2) : new GeoPoint(order, d1, d2));
-                pList.add(point);
-            }
+        try {
+            TspLibFile file = Objects.requireNonNull(TspLibParser.parseResource(resourceDir));
+            return file.toPoints();
         } catch (Exception e) {
             String m = String.format("Extraction of file [%s] failed.", resourceDir);
             log.error(m, e);
             throw new RuntimeException(e);
         }
-        return pList;
     }
 
     /**
@@ -243,34 +351,13 @@ public final class DataExtractor {
      * @return the list of points
      */
     public static List<AbstractPoint> extractPoints(String fileDir) {
-        List<AbstractPoint> pList = new ArrayList<>();
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(fileDir))) {
-            String str;
-            int cnt = 0, typeOfPoint = 0;
-            while ((str = bufferedReader.readLine()) != null) {
-                if (++cnt <= 4 || cnt == 6 || typeOfPoint == 2 && cnt == 7)
-                    continue;
-                if (cnt == 5) {
-                    if (str.trim().endsWith("EUC_2D"))
-                        typeOfPoint = 1;
-                    else if (str.trim().endsWith("GEO"))
-                        typeOfPoint = 2;
-                    continue;
-                }
-                if (str.trim().equals("EOF")) break;
-                String[] strings = str.split("\\s+", 0);
-                int order = Integer.parseInt(!strings[0].isEmpty() ? strings[0] : strings[1]);
-                double d1 = Double.parseDouble(!strings[0].isEmpty() ? strings[1] : strings[2]);
-                double d2 = Double.parseDouble(!strings[0].isEmpty() ? strings[2] : strings[3]);
-                AbstractPoint point = (typeOfPoint == 1 ? new Euc2DPoint(order, d1, d2) : new GeoPoint(order, d1, d2));
-                pList.add(point);
-            }
+        try {
+            return TspLibParser.parseFile(fileDir).toPoints();
         } catch (Exception e) {
             String m = String.format("Extraction of file [%s] failed.", fileDir);
             log.error(m, e);
             throw new RuntimeException(e);
         }
-        return pList;
     }
 
     /**
@@ -282,38 +369,20 @@ public final class DataExtractor {
      * @return the optimal solution if the solution path exists, or {@code null} if not
      */
     public static Solution extractSolutionByResource(String resourceDir, boolean beginWith1) {
-        Solution solution;
-        try (InputStream stream = DataExtractor.class.getClassLoader().getResourceAsStream(resourceDir);
-             InputStreamReader inputStreamReader = new InputStreamReader(Objects.requireNonNull(stream));
-             BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-            ArrayList<Integer> integers = new ArrayList<>();
-            String str;
-            boolean reached = false;
-            while ((str = bufferedReader.readLine()) != null) {
-                if (str.trim().equals("-1"))
-                    break;
-                if (reached) {
-                    String[] strings = str.split("\\s+");
-                    for (String s : strings) {
-                        if (s.isEmpty())
-                            continue;
-                        integers.add(Integer.parseInt(s));
-                    }
-                }
-                if (str.trim().equals("TOUR_SECTION"))
-                    reached = true;
-            }
-            solution = new Solution(integers.toArray(new Integer[0]), beginWith1);
-        } catch (FileNotFoundException fnfe) {
-            String m = String.format("File [%s] was not found, so null will be returned.", resourceDir);
-            log.warn(m);
-            return null;
+        TspLibFile file;
+        try {
+            file = TspLibParser.parseResource(resourceDir);
         } catch (IOException e) {
             String m = String.format("Extraction of file [%s] failed.", resourceDir);
             log.error(m, e);
             throw new RuntimeException(e);
         }
-        return solution;
+        if (file == null) {
+            String m = String.format("File [%s] was not found, so null will be returned.", resourceDir);
+            log.warn(m);
+            return null;
+        }
+        return toSolution(file, resourceDir, beginWith1);
     }
 
     /**
@@ -325,26 +394,9 @@ public final class DataExtractor {
      * @return the optimal solution if the solution path exists, or {@code null} if not
      */
     public static Solution extractSolution(String fileDir, boolean beginWith1) {
-        Solution solution;
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(fileDir))) {
-            ArrayList<Integer> integers = new ArrayList<>();
-            String str;
-            boolean reached = false;
-            while ((str = bufferedReader.readLine()) != null) {
-                if (str.trim().equals("-1"))
-                    break;
-                if (reached) {
-                    String[] strings = str.split("\\s+");
-                    for (String s : strings) {
-                        if (s.isEmpty())
-                            continue;
-                        integers.add(Integer.parseInt(s));
-                    }
-                }
-                if (str.trim().equals("TOUR_SECTION"))
-                    reached = true;
-            }
-            solution = new Solution(integers.toArray(new Integer[0]), beginWith1);
+        TspLibFile file;
+        try {
+            file = TspLibParser.parseFile(fileDir);
         } catch (FileNotFoundException fnfe) {
             String m = String.format("File [%s] was not found, so null will be returned.", fileDir);
             log.warn(m);
@@ -354,6 +406,16 @@ public final class DataExtractor {
             log.error(m, e);
             throw new RuntimeException(e);
         }
-        return solution;
+        return toSolution(file, fileDir, beginWith1);
+    }
+
+    private static Solution toSolution(TspLibFile file, String dir, boolean beginWith1) {
+        int[] tour = file.getTour();
+        if (tour == null) {
+            String m = String.format("No TOUR_SECTION was found in file [%s].", dir);
+            log.error(m);
+            throw new RuntimeException(m);
+        }
+        return new Solution(tour, beginWith1);
     }
 }
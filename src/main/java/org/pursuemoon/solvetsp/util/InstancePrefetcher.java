@@ -0,0 +1,256 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.apache.log4j.Logger;
+import org.pursuemoon.solvetsp.ga.TspInstance;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.distance.MappedDistanceMatrix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Loading stage which prepares TSP instances in the background and hands ready ones to solver threads.
+ *
+ * Cases are loaded in order by {@code loaderThreads} daemon threads, and {@link #ofAll} uses one for each slot of
+ * the lookahead. Each instance is fully prepared, that is, its distances are filled and its candidate lists and
+ * convex hull layers are built, before it's handed out. Solvers take whichever instance is ready first, so a large
+ * case being loaded doesn't hold back small ones when there're several loader threads.
+ * At most {@code lookahead} instances are loading or waiting to be taken at any time, and no more loading
+ * starts while the estimated heap size of instances waiting to be taken, plus that of the largest instance
+ * so far for each one loading, reaches {@code memoryBudget}. Before any instance is loaded their sizes are
+ * unknown, so only one case is loaded at first. The next case is always loaded if nothing is in flight,
+ * so that a case larger than the budget still runs.
+ */
+public final class InstancePrefetcher {
+
+    private static Logger log = Logger.getLogger(InstancePrefetcher.class);
+
+    /** The default max number of instances loading or waiting to be taken. */
+    public static final int DEFAULT_LOOKAHEAD = 2;
+
+    /** The default max estimated heap size of instances waiting to be taken, in bytes. */
+    public static final long DEFAULT_MEMORY_BUDGET = 512L << 20;
+
+    private static AtomicInteger threadCount = new AtomicInteger(0);
+
+    private final IntFunction<TspInstance> loader;
+    private final List<Integer> indices;
+    private final int lookahead;
+    private final long memoryBudget;
+    private final ExecutorService loaders;
+
+    /* All the following fields are guarded by this object. */
+
+    /** The position in {@code indices} of the next case to load. */
+    private int next;
+
+    /** The number of cases being loaded. */
+    private int loading;
+
+    /** The number of cases handed out. */
+    private int taken;
+
+    /** Loaded instances, or failures, waiting to be taken in the order they were ready. */
+    private final Deque<Entry> ready = new ArrayDeque<>();
+
+    /** The estimated heap size of instances in {@code ready}, in bytes. */
+    private long readyBytes;
+
+    /** The largest estimated heap size of all loaded instances, in bytes, or 0 if none is loaded. */
+    private long largestBytes;
+
+    /**
+     * Constructor which starts loading the first cases at once.
+     *
+     * @param dataExtractor the data extractor to load cases by index
+     * @param indices the indices of cases to load, in loading order
+     * @param lookahead the max number of instances loading or waiting to be taken
+     * @param memoryBudget the max estimated heap size of instances waiting to be taken, in bytes
+     * @param loaderThreads the number of loader threads
+     */
+    public InstancePrefetcher(DataExtractor dataExtractor, List<Integer> indices,
+                              int lookahead, long memoryBudget, int loaderThreads) {
+        this(dataExtractor::getTspByIndex, indices, lookahead, memoryBudget, loaderThreads);
+    }
+
+    /**
+     * Constructor of a prefetcher which loads cases by a function, such as one of tests.
+     *
+     * @param loader the function to load a case by index
+     * @param indices the indices of cases to load, in loading order
+     * @param lookahead the max number of instances loading or waiting to be taken
+     * @param memoryBudget the max estimated heap size of instances waiting to be taken, in bytes
+     * @param loaderThreads the number of loader threads
+     */
+    InstancePrefetcher(IntFunction<TspInstance> loader, List<Integer> indices,
+                       int lookahead, long memoryBudget, int loaderThreads) {
+        if (lookahead <= 0 || memoryBudget <= 0 || loaderThreads <= 0) {
+            String m = String.format("Illegal prefetch parameters: lookahead = %d, memoryBudget = %d, loaderThreads = %d",
+                    lookahead, memoryBudget, loaderThreads);
+            throw new RuntimeException(m);
+        }
+        this.loader = loader;
+        this.indices = new ArrayList<>(indices);
+        this.lookahead = lookahead;
+        this.memoryBudget = memoryBudget;
+        this.loaders = Executors.newFixedThreadPool(loaderThreads, r -> {
+            Thread thread = new Thread(r, "tsp-loader-" + threadCount.getAndAdd(1));
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (this) {
+            scheduleMore();
+        }
+    }
+
+    /**
+     * Gets an instance prefetcher of all cases found by the data extractor, which has as many loader threads as
+     * the lookahead, so that any case allowed to load is loaded at once.
+     *
+     * @param dataExtractor the data extractor
+     * @param lookahead the max number of instances loading or waiting to be taken
+     * @param memoryBudget the max estimated heap size of instances waiting to be taken, in bytes
+     * @return the instance prefetcher
+     */
+    public static InstancePrefetcher ofAll(DataExtractor dataExtractor, int lookahead, long memoryBudget) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < dataExtractor.getTestDirList().size(); ++i) {
+            indices.add(i);
+        }
+        return new InstancePrefetcher(dataExtractor, indices, lookahead, memoryBudget, lookahead);
+    }
+
+    /**
+     * Takes the next ready instance, waiting for one if none is ready.
+     *
+     * @return a prepared instance, or {@code null} if all cases have been taken
+     * @throws RuntimeException if the case of the next ready entry failed to load, or the thread is interrupted
+     */
+    public TspInstance take() {
+        Entry entry;
+        synchronized (this) {
+            if (taken == indices.size()) {
+                return null;
+            }
+            while (ready.isEmpty()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            entry = ready.poll();
+            readyBytes -= entry.bytes;
+            taken++;
+            scheduleMore();
+            if (taken == indices.size()) {
+                loaders.shutdown();
+            }
+        }
+        if (entry.failure != null) {
+            String m = String.format("Prefetch of case [%d] failed.", entry.index);
+            throw new RuntimeException(m, entry.failure);
+        }
+        return entry.instance;
+    }
+
+    /**
+     * Gets the number of instances loading or waiting to be taken, which is at most {@code lookahead}.
+     *
+     * @return the number of instances in flight
+     */
+    public synchronized int getInFlight() {
+        return loading + ready.size();
+    }
+
+    /** Starts loading as many next cases as the lookahead and the memory budget allow. */
+    private void scheduleMore() {
+        while (next < indices.size() && loading + ready.size() < lookahead && withinBudget()) {
+            int index = indices.get(next++);
+            loading++;
+            loaders.execute(() -> load(index));
+        }
+    }
+
+    private boolean withinBudget() {
+        if (loading + ready.size() == 0) {
+            return true;
+        }
+        if (loading > 0 && largestBytes == 0) {
+            return false;
+        }
+        return readyBytes + loading * largestBytes < memoryBudget;
+    }
+
+    private void load(int index) {
+        Entry entry = new Entry(index);
+        try {
+            long start = System.currentTimeMillis();
+            TspInstance instance = loader.apply(index);
+            prepare(instance);
+            entry.instance = instance;
+            entry.bytes = estimateHeapBytes(instance);
+            log.debug(String.format("%s was prefetched in %dms.", instance, System.currentTimeMillis() - start));
+        } catch (Throwable e) {
+            log.error(String.format("Prefetch of case [%d] failed.", index), e);
+            entry.failure = e;
+        }
+        synchronized (this) {
+            loading--;
+            ready.add(entry);
+            readyBytes += entry.bytes;
+            largestBytes = Math.max(largestBytes, entry.bytes);
+            scheduleMore();
+            notifyAll();
+        }
+    }
+
+    /** Builds all lazily built structures which solvers need, so that they're not built by a solver thread. */
+    private static void prepare(TspInstance instance) {
+        instance.getDistanceOracle();
+        instance.getKdTree();
+        instance.getCandidateLists();
+        instance.getConvexHullLayers();
+    }
+
+    /**
+     * Estimates the heap size of an instance, which is dominated by its distance matrix if it's on the heap.
+     * Mapped matrices are not counted, since their pages are not on the heap and can be evicted.
+     */
+    static long estimateHeapBytes(TspInstance instance) {
+        long size = instance.size();
+        /* Point objects and their two coordinate arrays, candidate lists and hull layers. */
+        long bytes = size * (48 + 16 + 4 * 16 + 4);
+        DistanceOracle distanceOracle = instance.getDistanceOracle();
+        if (distanceOracle instanceof DistanceStore && !(distanceOracle instanceof MappedDistanceMatrix)) {
+            MappedDistanceMatrix.Layout layout = MappedDistanceMatrix.layoutOf((DistanceStore) distanceOracle);
+            if (layout != null) {
+                bytes += 4 * MappedDistanceMatrix.lengthOf(instance.size(), layout);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * A loaded instance, or the failure to load it.
+     */
+    private static final class Entry {
+
+        private final int index;
+        private TspInstance instance;
+        private Throwable failure;
+        private long bytes;
+
+        Entry(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.pursuemoon.solvetsp.util;
+
+import java.util.Random;
+
+/**
+ * Splittable stream of pseudorandom numbers, which draws the same numbers as {@code SplittableRandom} of the same
+ * seed, but is a {@code Random}, so it's taken wherever a {@code Random} is.
+ *
+ * Unlike {@code Random}, a draw is a plain update of a field instead of a CAS on an {@code AtomicLong}, so a
+ * stream must be used by one thread at a time. A task which runs in another thread gets a stream of its own by
+ * {@link #split()}, which is statistically independent of its parent, and a tree of streams split from a root of
+ * a given seed in the same order draws the same numbers however its tasks are scheduled. Its state is kept in
+ * fields of its own instead of a {@code SplittableRandom}, so that it could be serialized, such as to a checkpoint.
+ */
+public final class RandomStream extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The increment of the seed of a stream of a given seed, which is the golden ratio in 64 bits. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    /* Both are set by setSeed(), which is called by the constructor of Random, so they have no initializers. */
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * Constructor of a stream of a seed which is very likely to be different from that of any other stream.
+     */
+    public RandomStream() {
+        super();
+    }
+
+    /**
+     * Constructor of a stream of a given seed.
+     *
+     * @param seed the seed
+     */
+    public RandomStream(long seed) {
+        super(seed);
+    }
+
+    private RandomStream(long seed, long gamma) {
+        super(0);
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Gets a new stream split from this one, which is used by another task, such as one running in another thread.
+     *
+     * @return the new stream
+     */
+    public RandomStream split() {
+        return new RandomStream(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Restarts this stream from a seed, as if it were constructed with it.
+     *
+     * @param seed the seed
+     */
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            String m = String.format("Bound of random number is not positive: bound=%d", bound);
+            throw new IllegalArgumentException(m);
+        }
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m;
+        } else {
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1)
+                ;
+        }
+        return r;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return mix32(nextSeed()) < 0;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /** Gets the increment of a split stream, which is odd and has enough transitions of bits. */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
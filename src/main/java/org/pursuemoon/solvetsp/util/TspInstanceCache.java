@@ -0,0 +1,91 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.pursuemoon.solvetsp.ga.TspInstance;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of TSP instances keyed by case name, so that concurrent runs of the same case share one copy.
+ *
+ * An instance is loaded only once even if several threads ask for it at the same time: the first one loads it
+ * and the others wait for the result. When the cache is full, the least recently used instance is evicted;
+ * solvers that still hold it are not affected.
+ */
+public final class TspInstanceCache {
+
+    /** The default max number of cached instances. */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private final int capacity;
+
+    private final Map<String, CompletableFuture<TspInstance>> cache;
+
+    public TspInstanceCache(int capacity) {
+        if (capacity <= 0) {
+            String m = String.format("Illegal capacity of instance cache: %d", capacity);
+            throw new RuntimeException(m);
+        }
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<String, CompletableFuture<TspInstance>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<TspInstance>> eldest) {
+                return size() > TspInstanceCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached instance of a case, or loads it if it's not cached.
+     *
+     * @param name the name of the case
+     * @param loader the function to load the instance
+     * @return the instance of the case
+     */
+    public TspInstance get(String name, Supplier<TspInstance> loader) {
+        CompletableFuture<TspInstance> future;
+        boolean loading = false;
+        synchronized (cache) {
+            future = cache.get(name);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                cache.put(name, future);
+                loading = true;
+            }
+        }
+        if (loading) {
+            try {
+                future.complete(loader.get());
+            } catch (RuntimeException e) {
+                /* Doesn't keep the failure, so that the next call could try again. */
+                synchronized (cache) {
+                    cache.remove(name, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Removes all cached instances.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,150 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.Euc2DPoint;
+import org.pursuemoon.solvetsp.util.geometry.ExplicitPoint;
+import org.pursuemoon.solvetsp.util.geometry.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The content of a TSPLIB file parsed by {@code TspLibParser}, which may be a problem file or a tour file.
+ *
+ * Node coordinates are kept as read, in primitive arrays; GEO coordinates are still in TSPLIB DDD.MM form.
+ * Explicit edge weights are kept in the compact store they were parsed into, in which the i-th node is the
+ * one of order i + 1.
+ */
+public final class TspLibFile {
+
+    private final Map<String, String> headers;
+    private final int dimension;
+    private final int[] ids;
+    private final double[] first;
+    private final double[] second;
+    private final int[] tour;
+    private final DistanceStore edgeWeights;
+
+    TspLibFile(Map<String, String> headers, int dimension, int[] ids, double[] first, double[] second, int[] tour,
+               DistanceStore edgeWeights) {
+        this.headers = Collections.unmodifiableMap(headers);
+        this.dimension = dimension;
+        this.ids = ids;
+        this.first = first;
+        this.second = second;
+        this.tour = tour;
+        this.edgeWeights = edgeWeights;
+    }
+
+    /**
+     * Gets the value of a header keyword, such as NAME, TYPE or EDGE_WEIGHT_TYPE.
+     *
+     * @param keyword the keyword
+     * @return the trimmed value, or {@code null} if the keyword doesn't appear
+     */
+    public String getHeader(String keyword) {
+        return headers.get(keyword);
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getName() {
+        return headers.get("NAME");
+    }
+
+    public String getEdgeWeightType() {
+        return headers.get("EDGE_WEIGHT_TYPE");
+    }
+
+    public String getEdgeWeightFormat() {
+        return headers.get("EDGE_WEIGHT_FORMAT");
+    }
+
+    /**
+     * Gets the DIMENSION of the file.
+     *
+     * @return the dimension, or -1 if it's not given
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Gets the number of nodes read from NODE_COORD_SECTION.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return (ids == null ? 0 : ids.length);
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public double getFirst(int i) {
+        return first[i];
+    }
+
+    public double getSecond(int i) {
+        return second[i];
+    }
+
+    /**
+     * Gets the tour read from TOUR_SECTION.
+     *
+     * @return the 1-based city orders of the tour, or {@code null} if there's no tour
+     */
+    public int[] getTour() {
+        return tour;
+    }
+
+    /**
+     * Gets the edge weights read from EDGE_WEIGHT_SECTION.
+     *
+     * @return the store of edge weights, or {@code null} if there's no such section
+     */
+    public DistanceStore getEdgeWeights() {
+        return edgeWeights;
+    }
+
+    /**
+     * Gets the list of points of the nodes, according to EDGE_WEIGHT_TYPE.
+     *
+     * @return the list of points
+     */
+    public List<AbstractPoint> toPoints() {
+        String type = getEdgeWeightType();
+        boolean geo;
+        if ("EXPLICIT".equals(type)) {
+            if (edgeWeights == null) {
+                String m = String.format("No EDGE_WEIGHT_SECTION was found in EXPLICIT TSP [%s].", getName());
+                throw new RuntimeException(m);
+            }
+            int size = edgeWeights.size();
+            List<AbstractPoint> pList = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                pList.add(new ExplicitPoint(i + 1, edgeWeights));
+            }
+            return pList;
+        } else if ("EUC_2D".equals(type)) {
+            geo = false;
+        } else if ("GEO".equals(type)) {
+            geo = true;
+        } else {
+            String m = String.format("Unsupported EDGE_WEIGHT_TYPE [%s] of TSP [%s].", type, getName());
+            throw new RuntimeException(m);
+        }
+        int size = getNodeCount();
+        List<AbstractPoint> pList = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            pList.add(geo ? new GeoPoint(ids[i], first[i], second[i]) : new Euc2DPoint(ids[i], first[i], second[i]));
+        }
+        return pList;
+    }
+}
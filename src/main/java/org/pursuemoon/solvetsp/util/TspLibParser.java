@@ -0,0 +1,486 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Streaming parser of TSPLIB problem and tour files.
+ *
+ * The input is read into a byte buffer chunk by chunk. Header lines are recognized by their keywords
+ * wherever they are, with or without spaces around the colon. Coordinate arrays are preallocated from
+ * DIMENSION, and numbers are parsed from the buffer without creating Strings: a decimal whose mantissa
+ * is less than 2^53 and whose power of ten is at most 22 is exactly representable as a product or a
+ * quotient of two doubles, so one correctly rounded operation gives the same value as
+ * {@link Double#parseDouble(String)}; the rare others are handed to it.
+ *
+ * Explicit edge weights of FULL_MATRIX, UPPER_ROW, UPPER_DIAG_ROW, LOWER_ROW and LOWER_DIAG_ROW formats are
+ * written straight into a {@code DistanceStore} of DIMENSION points as they're read, which may be a mapped
+ * file so that a huge matrix never lives on the heap. Only symmetric TSPs are supported, so only the upper
+ * triangle of a FULL_MATRIX is kept.
+ */
+public final class TspLibParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The least number of bytes kept in the buffer before a number is parsed, so that it's never split. */
+    private static final int MAX_NUMBER_LENGTH = 256;
+
+    /** Exact powers of ten representable as doubles. */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private int dimension = -1;
+    private int nodeCount;
+    private int[] ids;
+    private double[] first;
+    private double[] second;
+    private int[] tour;
+
+    private final IntFunction<DistanceStore> storeFactory;
+    private DistanceStore edgeWeights;
+
+    private TspLibParser(InputStream in, IntFunction<DistanceStore> storeFactory) {
+        this.in = in;
+        this.storeFactory = storeFactory;
+    }
+
+    /**
+     * Parses a TSPLIB file from a stream, which is not closed by this method.
+     *
+     * @param in the stream of the file
+     * @return the parsed file
+     * @throws IOException if the stream could not be read
+     */
+    public static TspLibFile parse(InputStream in) throws IOException {
+        return parse(in, DistanceStore::ofSize);
+    }
+
+    /**
+     * Parses a TSPLIB file from a stream, which is not closed by this method, keeping explicit edge weights
+     * in a store of the specified factory.
+     *
+     * @param in the stream of the file
+     * @param storeFactory the factory of an empty store of edge weights by the number of points
+     * @return the parsed file
+     * @throws IOException if the stream could not be read
+     */
+    public static TspLibFile parse(InputStream in, IntFunction<DistanceStore> storeFactory) throws IOException {
+        return new TspLibParser(in, storeFactory).parse();
+    }
+
+    /**
+     * Parses a TSPLIB file from a relative resource path.
+     *
+     * @param resourceDir the relative resource path
+     * @return the parsed file, or {@code null} if the resource doesn't exist
+     * @throws IOException if the resource could not be read
+     */
+    public static TspLibFile parseResource(String resourceDir) throws IOException {
+        return parseResource(resourceDir, DistanceStore::ofSize);
+    }
+
+    /**
+     * Parses a TSPLIB file from a relative resource path, keeping explicit edge weights in a store of the
+     * specified factory.
+     *
+     * @param resourceDir the relative resource path
+     * @param storeFactory the factory of an empty store of edge weights by the number of points
+     * @return the parsed file, or {@code null} if the resource doesn't exist
+     * @throws IOException if the resource could not be read
+     */
+    public static TspLibFile parseResource(String resourceDir, IntFunction<DistanceStore> storeFactory) throws IOException {
+        InputStream stream = TspLibParser.class.getClassLoader().getResourceAsStream(resourceDir);
+        if (stream == null) {
+            return null;
+        }
+        try (InputStream in = stream) {
+            return parse(in, storeFactory);
+        }
+    }
+
+    /**
+     * Parses a TSPLIB file from an absolute file path.
+     *
+     * @param fileDir the absolute file path
+     * @return the parsed file
+     * @throws IOException if the file doesn't exist or could not be read
+     */
+    public static TspLibFile parseFile(String fileDir) throws IOException {
+        try (InputStream in = new FileInputStream(fileDir)) {
+            return parse(in);
+        }
+    }
+
+    private TspLibFile parse() throws IOException {
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0) {
+                break;
+            }
+            if (c == ':' || isNumberStart(c)) {
+                /* A stray colon or number out of any section. */
+                skipLine();
+                continue;
+            }
+            String keyword = readKeyword();
+            if (keyword.equals("EOF")) {
+                break;
+            } else if (keyword.equals("NODE_COORD_SECTION")) {
+                readNodeCoordSection();
+            } else if (keyword.equals("TOUR_SECTION")) {
+                readTourSection();
+            } else if (keyword.equals("EDGE_WEIGHT_SECTION")) {
+                readEdgeWeightSection();
+            } else if (keyword.endsWith("_SECTION")) {
+                skipSection();
+            } else {
+                readHeader(keyword);
+            }
+        }
+        if (ids != null && nodeCount != ids.length) {
+            ids = Arrays.copyOf(ids, nodeCount);
+            first = Arrays.copyOf(first, nodeCount);
+            second = Arrays.copyOf(second, nodeCount);
+        }
+        return new TspLibFile(headers, dimension, ids, first, second, tour, edgeWeights);
+    }
+
+    private void readHeader(String keyword) throws IOException {
+        skipBlanks();
+        if (peek() == ':') {
+            pos++;
+        }
+        String value = readLine().trim();
+        headers.put(keyword, value);
+        if (keyword.equals("DIMENSION")) {
+            try {
+                dimension = Integer.parseInt(value);
+            } catch (NumberFormatException nfe) {
+                String m = String.format("Illegal DIMENSION: %s", value);
+                throw new RuntimeException(m);
+            }
+        }
+    }
+
+    private void readNodeCoordSection() throws IOException {
+        int capacity = Math.max(dimension, 16);
+        ids = new int[capacity];
+        first = new double[capacity];
+        second = new double[capacity];
+        nodeCount = 0;
+        while (true) {
+            skipWhitespace();
+            if (!isNumberStart(peek())) {
+                return;
+            }
+            if (nodeCount == ids.length) {
+                capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            ids[nodeCount] = readInt();
+            first[nodeCount] = readDouble();
+            second[nodeCount] = readDouble();
+            nodeCount++;
+            /* Ignores anything else in the line. */
+            skipLine();
+        }
+    }
+
+    private void readTourSection() throws IOException {
+        int[] orders = new int[Math.max(dimension, 16)];
+        int count = 0;
+        while (true) {
+            skipWhitespace();
+            if (!isNumberStart(peek())) {
+                break;
+            }
+            int order = readInt();
+            if (order == -1) {
+                break;
+            }
+            if (count == orders.length) {
+                orders = Arrays.copyOf(orders, count * 2);
+            }
+            orders[count++] = order;
+        }
+        tour = (count == orders.length ? orders : Arrays.copyOf(orders, count));
+    }
+
+    private void readEdgeWeightSection() throws IOException {
+        String format = headers.get("EDGE_WEIGHT_FORMAT");
+        if (dimension < 0) {
+            throw new RuntimeException("DIMENSION must be given before EDGE_WEIGHT_SECTION.");
+        }
+        int n = dimension;
+        DistanceStore store = storeFactory.apply(n);
+        if ("FULL_MATRIX".equals(format)) {
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < n; ++j) {
+                    int w = readInt();
+                    if (i < j) {
+                        store.set(i, j, w);
+                    }
+                }
+            }
+        } else if ("UPPER_ROW".equals(format) || "UPPER_DIAG_ROW".equals(format)) {
+            int diagonal = ("UPPER_ROW".equals(format) ? 1 : 0);
+            for (int i = 0; i < n; ++i) {
+                for (int j = i + diagonal; j < n; ++j) {
+                    setWeight(store, i, j, readInt());
+                }
+            }
+        } else if ("LOWER_ROW".equals(format) || "LOWER_DIAG_ROW".equals(format)) {
+            int diagonal = ("LOWER_ROW".equals(format) ? 0 : 1);
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < i + diagonal; ++j) {
+                    setWeight(store, i, j, readInt());
+                }
+            }
+        } else {
+            String m = String.format("Unsupported EDGE_WEIGHT_FORMAT: %s", format);
+            throw new RuntimeException(m);
+        }
+        edgeWeights = store;
+    }
+
+    /** Sets a weight unless it's on the diagonal, which may be anything in TSPLIB files but is always 0 here. */
+    private static void setWeight(DistanceStore store, int i, int j, int w) {
+        if (i != j) {
+            store.set(i, j, w);
+        }
+    }
+
+    /**
+     * Skips a section which is not needed, such as DISPLAY_DATA_SECTION, until the next keyword.
+     */
+    private void skipSection() throws IOException {
+        while (true) {
+            skipWhitespace();
+            if (!isNumberStart(peek())) {
+                return;
+            }
+            skipLine();
+        }
+    }
+
+    /* Low level reading of the buffer. */
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xff;
+    }
+
+    /**
+     * Reads more bytes into the buffer, moving the unread ones to its beginning.
+     *
+     * @return true if any unread byte is in the buffer
+     */
+    private boolean fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (!eof && limit < buf.length) {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else if (n == 0) {
+                break;
+            } else {
+                limit += n;
+                if (limit - pos >= MAX_NUMBER_LENGTH) {
+                    break;
+                }
+            }
+        }
+        return pos < limit;
+    }
+
+    /** Makes sure that a whole number, if not longer than {@code MAX_NUMBER_LENGTH}, is in the buffer. */
+    private void ensureNumber() throws IOException {
+        if (limit - pos < MAX_NUMBER_LENGTH && !eof) {
+            fill();
+        }
+    }
+
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isWhitespace(int c) {
+        return isBlank(c) || c == '\n';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberStart(int c) {
+        return isDigit(c) || c == '-' || c == '+' || c == '.';
+    }
+
+    private void skipBlanks() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && isBlank(c)) {
+            pos++;
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && isWhitespace(c)) {
+            pos++;
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = peek()) >= 0) {
+            pos++;
+            if (c == '\n') {
+                return;
+            }
+        }
+    }
+
+    private String readKeyword() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = peek()) >= 0 && !isWhitespace(c) && c != ':') {
+            sb.append((char) c);
+            pos++;
+        }
+        return sb.toString();
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = peek()) >= 0 && c != '\n') {
+            sb.append((char) c);
+            pos++;
+        }
+        return sb.toString();
+    }
+
+    private int readInt() throws IOException {
+        skipWhitespace();
+        ensureNumber();
+        int start = pos;
+        boolean negative = false;
+        if (pos < limit && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = (buf[pos] == '-');
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (pos < limit && isDigit(buf[pos])) {
+            value = value * 10 + (buf[pos++] - '0');
+            if (++digits > 10) {
+                break;
+            }
+        }
+        if (digits == 0 || digits > 10 || value > Integer.MAX_VALUE + (negative ? 1L : 0L)) {
+            String m = String.format("Illegal integer: %s", token(start));
+            throw new RuntimeException(m);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private double readDouble() throws IOException {
+        skipWhitespace();
+        ensureNumber();
+        int start = pos;
+        boolean negative = false;
+        if (pos < limit && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = (buf[pos] == '-');
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean exact = true;
+        while (pos < limit && isDigit(buf[pos])) {
+            int d = buf[pos++] - '0';
+            if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + d;
+            } else {
+                exact = false;
+            }
+            digits++;
+        }
+        if (pos < limit && buf[pos] == '.') {
+            pos++;
+            while (pos < limit && isDigit(buf[pos])) {
+                int d = buf[pos++] - '0';
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + d;
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            String m = String.format("Illegal number: %s", token(start));
+            throw new RuntimeException(m);
+        }
+        if (pos < limit && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < limit && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExponent = (buf[pos] == '-');
+                pos++;
+            }
+            int e = 0, eDigits = 0;
+            while (pos < limit && isDigit(buf[pos])) {
+                e = Math.min(e * 10 + (buf[pos++] - '0'), 10000);
+                eDigits++;
+            }
+            if (eDigits == 0) {
+                String m = String.format("Illegal number: %s", token(start));
+                throw new RuntimeException(m);
+            }
+            exponent += (negativeExponent ? -e : e);
+        }
+        if (!exact || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+        }
+        double value = (exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent]);
+        return (negative ? -value : value);
+    }
+
+    /** Gets the text of the token beginning at a position, for error messages. */
+    private String token(int start) {
+        int end = start;
+        while (end < limit && !isWhitespace(buf[end])) {
+            end++;
+        }
+        return new String(buf, start, end - start, StandardCharsets.US_ASCII);
+    }
+}
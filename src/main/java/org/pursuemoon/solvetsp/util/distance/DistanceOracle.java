@@ -0,0 +1,66 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+/**
+ * The interface of a provider of distances between each two points of a TSP.
+ *
+ * Points are addressed by their 0-based index, which is their order minus 1. An oracle does not
+ * have to keep all distances in memory, so consumers should not assume an n * n matrix exists.
+ */
+public interface DistanceOracle {
+
+    /** The max number of points of which a {@code TriangularDistanceMatrix} will be chosen by {@link #of(PointArrays)}. */
+    int MAX_TRIANGULAR_MATRIX_SIZE = 8192;
+
+    /**
+     * Gets the number of points.
+     *
+     * @return the number of points
+     */
+    int size();
+
+    /**
+     * Gets the distance between the i-th point and the j-th point.
+     *
+     * @param i 0-based index of the first point
+     * @param j 0-based index of the second point
+     * @return the distance between the two points
+     */
+    int distance(int i, int j);
+
+    /**
+     * Gets the distances from the i-th point to all points.
+     *
+     * The result is either {@code buffer} filled with the distances, or an internal array owned by
+     * this oracle. In both cases the caller must not modify the returned array.
+     *
+     * @param i 0-based index of the point
+     * @param buffer an array whose length is at least {@link #size()}
+     * @return an array whose j-th element is the distance between the i-th point and the j-th point
+     */
+    default int[] row(int i, int[] buffer) {
+        int size = size();
+        for (int j = 0; j < size; ++j) {
+            buffer[j] = distance(i, j);
+        }
+        return buffer;
+    }
+
+    /**
+     * Gets an oracle adapted to the number of points. Instances small enough get a matrix, which
+     * needs to be filled by {@link DistanceStore#fill(DistanceStore, PointArrays)} before use,
+     * while larger ones get an oracle calculating distances on the fly.
+     *
+     * @param points the points of the TSP
+     * @return a distance oracle
+     */
+    static DistanceOracle of(PointArrays points) {
+        int size = points.size();
+        if (size <= MAX_TRIANGULAR_MATRIX_SIZE) {
+            return DistanceStore.ofSize(size);
+        } else {
+            return new OnTheFlyDistanceOracle(points);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The interface of a compact store of distances between each two points of a TSP.
+ *
+ * Every distance of TSPLIB EUC_2D and GEO instances is a rounded integer, so distances are
+ * kept as {@code int} values.
+ */
+public interface DistanceStore extends DistanceOracle {
+
+    /** The max number of points of which a {@code FullDistanceMatrix} will be chosen by {@link #ofSize(int)}. */
+    int MAX_FULL_MATRIX_SIZE = 2048;
+
+    /** The min number of points of which the filling of a store will be split across threads. */
+    int MIN_PARALLEL_FILL_SIZE = 256;
+
+    /**
+     * Sets the distance between the i-th point and the j-th point, in both directions.
+     *
+     * @param i 0-based index of the first point
+     * @param j 0-based index of the second point
+     * @param distance the distance between the two points
+     */
+    void set(int i, int j, int distance);
+
+    /**
+     * Gets a store adapted to the number of points. Small instances use a row-major full matrix
+     * which makes row scans cache-friendly, and larger ones use an upper-triangular matrix which
+     * needs about half of the memory.
+     *
+     * @param size the number of points
+     * @return an empty distance store
+     */
+    static DistanceStore ofSize(int size) {
+        if (size <= MAX_FULL_MATRIX_SIZE) {
+            return new FullDistanceMatrix(size);
+        } else {
+            return new TriangularDistanceMatrix(size);
+        }
+    }
+
+    /**
+     * Fills the store with distances between each two points. Only the upper triangle is calculated
+     * and mirrored by {@link #set(int, int, int)}, and the rows are split across the common fork-join
+     * pool if the store is large enough.
+     *
+     * @param store the store to be filled
+     * @param points the points of the TSP
+     */
+    static void fill(DistanceStore store, PointArrays points) {
+        fill(store, points, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Fills the store with distances between each two points, splitting the rows across the specified pool.
+     * All distances are visible to the calling thread when this method returns.
+     *
+     * @param store the store to be filled
+     * @param points the points of the TSP
+     * @param pool the pool to run the filling tasks
+     */
+    static void fill(DistanceStore store, PointArrays points, ForkJoinPool pool) {
+        int size = points.size();
+        if (store.size() != size) {
+            String m = String.format("Size of store [%d] doesn't match the number of points [%d].", store.size(), size);
+            throw new RuntimeException(m);
+        }
+        ParallelFillTask task = new ParallelFillTask(store, points, 0, ParallelFillTask.pairsOf(size));
+        if (size < MIN_PARALLEL_FILL_SIZE || pool.getParallelism() <= 1) {
+            /* Not worth forking; runs the whole task in the calling thread. */
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }
+}
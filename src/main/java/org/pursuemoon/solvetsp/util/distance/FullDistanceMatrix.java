@@ -0,0 +1,43 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+/**
+ * Implementation of {@code DistanceStore} which keeps all n * n distances in one contiguous
+ * {@code int} array in row-major order.
+ */
+public final class FullDistanceMatrix implements DistanceStore {
+
+    private final int size;
+    private final int[] matrix;
+
+    public FullDistanceMatrix(int size) {
+        long length = (long) size * size;
+        if (length > Integer.MAX_VALUE - 8) {
+            String m = String.format("Too many points for a full distance matrix: size = %d", size);
+            throw new RuntimeException(m);
+        }
+        this.size = size;
+        this.matrix = new int[(int) length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        return matrix[i * size + j];
+    }
+
+    @Override
+    public void set(int i, int j, int distance) {
+        matrix[i * size + j] = distance;
+        matrix[j * size + i] = distance;
+    }
+
+    @Override
+    public int[] row(int i, int[] buffer) {
+        System.arraycopy(matrix, i * size, buffer, 0, size);
+        return buffer;
+    }
+}
@@ -0,0 +1,261 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@code DistanceStore} over distances kept outside the heap, usually in a memory-mapped
+ * file, in the same layout as {@code FullDistanceMatrix} or {@code TriangularDistanceMatrix}.
+ *
+ * Distances are addressed by {@code long} offsets into chunks of at most {@code CHUNK_LENGTH} values, since
+ * one mapping can't exceed 2GB, so that matrices of any size can be mapped. Only absolute reads and writes
+ * of the buffers are used, so an object of this class can be shared by threads once it's filled. It is
+ * read-only if its buffers are.
+ */
+public final class MappedDistanceMatrix implements DistanceStore {
+
+    /** Layout of distances in the buffer. */
+    public enum Layout {
+        /** Row-major n * n matrix. */
+        FULL,
+        /** Strict upper triangle, row by row. */
+        TRIANGULAR
+    }
+
+    private static final int CHUNK_SHIFT = 28;
+
+    /** The number of distances in each chunk but the last one, which is 1GB of them. */
+    private static final int CHUNK_LENGTH = 1 << CHUNK_SHIFT;
+
+    private static final long CHUNK_MASK = CHUNK_LENGTH - 1;
+
+    private final int size;
+    private final Layout layout;
+    private final IntBuffer[] chunks;
+
+    /** The mapped buffers which the chunks are views of, kept to be forced to the file. */
+    private final List<MappedByteBuffer> mappedBuffers;
+
+    /** The file this matrix was created in by {@link #create(File, int, Layout)}, or {@code null}. */
+    private File file;
+
+    /** The offset of each row of a triangular matrix, shifted so that (i, j) lies at rowOffset[i] + j. */
+    private final long[] rowOffset;
+
+    public MappedDistanceMatrix(int size, Layout layout, IntBuffer matrix) {
+        this(size, layout, split(matrix), new ArrayList<>());
+        long expected = lengthOf(size, layout);
+        if (matrix.remaining() != expected) {
+            String m = String.format("Length of buffer [%d] doesn't match a %s matrix of size %d.", matrix.remaining(), layout, size);
+            throw new RuntimeException(m);
+        }
+    }
+
+    private MappedDistanceMatrix(int size, Layout layout, IntBuffer[] chunks, List<MappedByteBuffer> mappedBuffers) {
+        this.size = size;
+        this.layout = layout;
+        this.chunks = chunks;
+        this.mappedBuffers = mappedBuffers;
+        if (layout == Layout.TRIANGULAR) {
+            rowOffset = new long[size];
+            long offset = 0;
+            for (int i = 0; i < size; ++i) {
+                rowOffset[i] = offset - i - 1;
+                offset += size - i - 1;
+            }
+        } else {
+            rowOffset = null;
+        }
+    }
+
+    /** Splits a buffer into views of {@code CHUNK_LENGTH} values. */
+    private static IntBuffer[] split(IntBuffer matrix) {
+        int count = Math.max((matrix.remaining() + CHUNK_LENGTH - 1) >>> CHUNK_SHIFT, 1);
+        IntBuffer[] chunks = new IntBuffer[count];
+        for (int c = 0; c < count; ++c) {
+            IntBuffer view = matrix.duplicate();
+            view.position(matrix.position() + c * CHUNK_LENGTH);
+            view.limit(Math.min(view.position() + CHUNK_LENGTH, matrix.limit()));
+            chunks[c] = view.slice();
+        }
+        return chunks;
+    }
+
+    /**
+     * Maps the distances kept in a file region, chunk by chunk. The mapping stays valid after the channel is closed.
+     *
+     * @param channel the channel of the file
+     * @param position the position of the first distance in the file, in bytes
+     * @param size the number of points
+     * @param layout the layout of distances
+     * @param mode {@code READ_ONLY} or {@code READ_WRITE}
+     * @param order the byte order of the distances
+     * @return the mapped matrix
+     * @throws IOException if the file region could not be mapped
+     */
+    public static MappedDistanceMatrix map(FileChannel channel, long position, int size, Layout layout,
+                                           FileChannel.MapMode mode, ByteOrder order) throws IOException {
+        long length = lengthOf(size, layout);
+        if (channel.size() < position + 4 * length) {
+            String m = String.format("File of %d bytes is too short for a %s matrix of size %d at %d.",
+                    channel.size(), layout, size, position);
+            throw new IOException(m);
+        }
+        int count = (int) Math.max((length + CHUNK_LENGTH - 1) >>> CHUNK_SHIFT, 1);
+        IntBuffer[] chunks = new IntBuffer[count];
+        List<MappedByteBuffer> mappedBuffers = new ArrayList<>(count);
+        for (int c = 0; c < count; ++c) {
+            long from = (long) c * CHUNK_LENGTH;
+            long n = Math.min(length - from, CHUNK_LENGTH);
+            MappedByteBuffer mapped = channel.map(mode, position + 4 * from, 4 * n);
+            mappedBuffers.add(mapped);
+            chunks[c] = mapped.order(order).asIntBuffer();
+        }
+        return new MappedDistanceMatrix(size, layout, chunks, mappedBuffers);
+    }
+
+    /**
+     * Creates a file of the size of a matrix and maps it to be written in native byte order. Any existing
+     * file is overwritten, and the distances are all 0 until they're set.
+     *
+     * @param file the file to keep the distances
+     * @param size the number of points
+     * @param layout the layout of distances
+     * @return the writable mapped matrix
+     * @throws IOException if the file could not be created or mapped
+     */
+    public static MappedDistanceMatrix create(File file, int size, Layout layout) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(4 * lengthOf(size, layout));
+            MappedDistanceMatrix matrix = map(raf.getChannel(), 0, size, layout,
+                    FileChannel.MapMode.READ_WRITE, ByteOrder.nativeOrder());
+            matrix.file = file;
+            return matrix;
+        }
+    }
+
+    /**
+     * Gets the number of distances kept in the specified layout.
+     *
+     * @param size the number of points
+     * @param layout the layout of distances
+     * @return the number of {@code int} values
+     */
+    public static long lengthOf(int size, Layout layout) {
+        return (layout == Layout.FULL ? (long) size * size : (long) size * (size - 1) / 2);
+    }
+
+    /**
+     * Gets the layout in which the distances of a store would be kept by {@link #lengthOf(int, Layout)}.
+     *
+     * @param store the distance store
+     * @return the layout, or {@code null} if the store is of other type
+     */
+    public static Layout layoutOf(DistanceStore store) {
+        if (store instanceof FullDistanceMatrix) {
+            return Layout.FULL;
+        } else if (store instanceof TriangularDistanceMatrix) {
+            return Layout.TRIANGULAR;
+        } else if (store instanceof MappedDistanceMatrix) {
+            return ((MappedDistanceMatrix) store).layout;
+        } else {
+            return null;
+        }
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the file this matrix was created in by {@link #create(File, int, Layout)}, whose distances are in
+     * native byte order with nothing before them.
+     *
+     * @return the file, or {@code null} if this matrix was not created by that method
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the distances set so far through to the mapped file, if this matrix is mapped from one.
+     */
+    public void force() {
+        for (MappedByteBuffer mapped : mappedBuffers) {
+            mapped.force();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private long offsetOf(int i, int j) {
+        if (layout == Layout.FULL) {
+            return (long) i * size + j;
+        }
+        return (i < j ? rowOffset[i] + j : rowOffset[j] + i);
+    }
+
+    private int get(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].get((int) (offset & CHUNK_MASK));
+    }
+
+    private void put(long offset, int distance) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].put((int) (offset & CHUNK_MASK), distance);
+    }
+
+    /** Copies a run of distances, which may cross a chunk boundary, into an array. */
+    private void get(long offset, int[] out, int from, int length) {
+        while (length > 0) {
+            IntBuffer view = chunks[(int) (offset >>> CHUNK_SHIFT)].duplicate();
+            view.position((int) (offset & CHUNK_MASK));
+            int n = Math.min(length, view.remaining());
+            view.get(out, from, n);
+            offset += n;
+            from += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        if (i == j && layout == Layout.TRIANGULAR) {
+            return 0;
+        }
+        return get(offsetOf(i, j));
+    }
+
+    @Override
+    public int[] row(int i, int[] buffer) {
+        if (layout == Layout.FULL) {
+            get((long) i * size, buffer, 0, size);
+            return buffer;
+        }
+        for (int j = 0; j < i; ++j) {
+            buffer[j] = get(rowOffset[j] + i);
+        }
+        buffer[i] = 0;
+        get(rowOffset[i] + i + 1, buffer, i + 1, size - i - 1);
+        return buffer;
+    }
+
+    @Override
+    public void set(int i, int j, int distance) {
+        if (layout == Layout.FULL) {
+            put((long) i * size + j, distance);
+            put((long) j * size + i, distance);
+        } else if (i != j) {
+            put(offsetOf(i, j), distance);
+        }
+    }
+}
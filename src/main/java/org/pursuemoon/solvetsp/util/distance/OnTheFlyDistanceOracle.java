@@ -0,0 +1,89 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Implementation of {@code DistanceOracle} which keeps no matrix at all.
+ *
+ * Single distances are calculated from the structure-of-arrays coordinates every time, and
+ * whole rows, which are usually scanned again and again by greedy strategies, are kept in a
+ * bounded cache which evicts the least recently used row. A row is only cached when it's
+ * missed the second time, so a full sweep over all rows doesn't evict the hot ones.
+ */
+public final class OnTheFlyDistanceOracle implements DistanceOracle {
+
+    /** The default memory limit of cached rows in bytes. */
+    private static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+    /** The least number of cached rows. */
+    private static final int MIN_CACHED_ROWS = 16;
+
+    private final PointArrays points;
+
+    /** Cache of rows in access order, guarded by itself. */
+    private final Map<Integer, int[]> rowCache;
+
+    /** Indices of rows recently missed once but not cached, in access order, guarded by {@code rowCache}. */
+    private final Map<Integer, Boolean> missedRows;
+
+    public OnTheFlyDistanceOracle(PointArrays points) {
+        this(points, (int) Math.max(MIN_CACHED_ROWS, DEFAULT_CACHE_BYTES / (4L * Math.max(points.size(), 1))));
+    }
+
+    public OnTheFlyDistanceOracle(PointArrays points, int maxCachedRows) {
+        this.points = points;
+        this.rowCache = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > maxCachedRows;
+            }
+        };
+        this.missedRows = new LinkedHashMap<Integer, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > maxCachedRows;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return points.size();
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        return (i == j ? 0 : points.distance(i, j));
+    }
+
+    /**
+     * Gets the cached row of the i-th point, or calculates it into the buffer if it's missing.
+     * A missing row is cached as well if it was missed recently.
+     */
+    @Override
+    public int[] row(int i, int[] buffer) {
+        boolean admitted;
+        synchronized (rowCache) {
+            int[] row = rowCache.get(i);
+            if (row != null) {
+                return row;
+            }
+            admitted = (missedRows.remove(i) != null);
+            if (!admitted) {
+                missedRows.put(i, Boolean.TRUE);
+            }
+        }
+        points.row(i, buffer);
+        if (admitted) {
+            int[] row = new int[points.size()];
+            System.arraycopy(buffer, 0, row, 0, row.length);
+            synchronized (rowCache) {
+                rowCache.put(i, row);
+            }
+        }
+        return buffer;
+    }
+}
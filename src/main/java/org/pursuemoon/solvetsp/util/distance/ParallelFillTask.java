@@ -0,0 +1,78 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The fork-join task filling the upper triangle of a {@code DistanceStore}.
+ *
+ * Row i of the upper triangle has (size - i - 1) cells, so rows are taken in pairs (p, size - 1 - p),
+ * which makes every pair cost the same. Each task splits its range of pairs in halves until it's
+ * small enough to fill rows directly. Tasks write disjoint cells, and all their writes are visible
+ * to the thread which joins the root task.
+ */
+final class ParallelFillTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The max number of cells filled directly by one task. */
+    private static final int CELLS_PER_TASK = 1 << 16;
+
+    private final DistanceStore store;
+    private final PointArrays points;
+    private final int lo;
+    private final int hi;
+
+    /**
+     * Constructor of a task filling the row pairs in [lo, hi).
+     *
+     * @param store the store to be filled
+     * @param points the points of the TSP
+     * @param lo the first pair, inclusive
+     * @param hi the last pair, exclusive
+     */
+    ParallelFillTask(DistanceStore store, PointArrays points, int lo, int hi) {
+        this.store = store;
+        this.points = points;
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    /**
+     * Gets the number of row pairs of a store.
+     *
+     * @param size the number of points
+     * @return the number of row pairs
+     */
+    static int pairsOf(int size) {
+        return (size + 1) / 2;
+    }
+
+    @Override
+    protected void compute() {
+        int size = points.size();
+        /* Each pair has (size - 1) cells, except the middle row of an odd size, which is counted as a pair. */
+        if ((long) (hi - lo) * size <= CELLS_PER_TASK || hi - lo == 1) {
+            int[] buffer = new int[size];
+            for (int p = lo; p < hi; ++p) {
+                fillRow(p, buffer);
+                int q = size - 1 - p;
+                if (q != p) {
+                    fillRow(q, buffer);
+                }
+            }
+        } else {
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ParallelFillTask(store, points, lo, mid), new ParallelFillTask(store, points, mid, hi));
+        }
+    }
+
+    private void fillRow(int i, int[] buffer) {
+        int size = points.size();
+        points.distances(i, i + 1, size, buffer);
+        for (int j = i + 1; j < size; ++j) {
+            store.set(i, j, buffer[j]);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.pursuemoon.solvetsp.util.distance;
+
+/**
+ * Implementation of {@code DistanceStore} for symmetric distances, which keeps only the strict
+ * upper triangle, row by row, in one contiguous {@code int} array.
+ *
+ * The diagonal is not stored since the distance from a point to itself is always 0.
+ */
+public final class TriangularDistanceMatrix implements DistanceStore {
+
+    private final int size;
+    private final int[] matrix;
+
+    /** The offset of each row in {@code matrix}, shifted so that (i, j) lies at rowOffset[i] + j. */
+    private final int[] rowOffset;
+
+    public TriangularDistanceMatrix(int size) {
+        long length = (long) size * (size - 1) / 2;
+        if (length > Integer.MAX_VALUE - 8) {
+            String m = String.format("Too many points for a triangular distance matrix: size = %d", size);
+            throw new RuntimeException(m);
+        }
+        this.size = size;
+        this.matrix = new int[(int) Math.max(length, 0)];
+        this.rowOffset = new int[size];
+        long offset = 0;
+        for (int i = 0; i < size; ++i) {
+            /* Row i holds (i, i + 1) ... (i, size - 1). */
+            rowOffset[i] = (int) (offset - i - 1);
+            offset += size - i - 1;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int distance(int i, int j) {
+        if (i < j) {
+            return matrix[rowOffset[i] + j];
+        } else if (i > j) {
+            return matrix[rowOffset[j] + i];
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public int[] row(int i, int[] buffer) {
+        for (int j = 0; j < i; ++j) {
+            buffer[j] = matrix[rowOffset[j] + i];
+        }
+        buffer[i] = 0;
+        System.arraycopy(matrix, rowOffset[i] + i + 1, buffer, i + 1, size - i - 1);
+        return buffer;
+    }
+
+    @Override
+    public void set(int i, int j, int distance) {
+        if (i < j) {
+            matrix[rowOffset[i] + j] = distance;
+        } else if (i > j) {
+            matrix[rowOffset[j] + i] = distance;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.pursuemoon.solvetsp.util.geometry;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+
+/**
+ * Precomputed K-nearest candidate lists of all points of a TSP.
+ *
+ * The candidates of the i-th point are kept in ascending order of distance at positions
+ * [i * K, (i + 1) * K) of one primitive array. The lists are immutable and can be shared by threads.
+ */
+public final class CandidateLists {
+
+    /** The default number of candidates of each point. */
+    public static final int DEFAULT_SIZE = 10;
+
+    private final int size;
+    private final int k;
+    private final int[] candidates;
+
+    CandidateLists(int size, int k, int[] candidates) {
+        this.size = size;
+        this.k = k;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Gets the candidate lists kept in an array, for example loaded from a binary cache.
+     *
+     * @param size the number of points
+     * @param k the number of candidates of each point
+     * @param candidates the candidates of the i-th point at positions [i * k, (i + 1) * k), which must not be modified later
+     * @return the candidate lists
+     */
+    public static CandidateLists ofArray(int size, int k, int[] candidates) {
+        if (candidates.length != (long) size * k) {
+            String m = String.format("Length of candidates [%d] doesn't match %d points with %d candidates each.", candidates.length, size, k);
+            throw new RuntimeException(m);
+        }
+        return new CandidateLists(size, k, candidates);
+    }
+
+    /**
+     * Gets the candidate lists of points by scanning the rows of a distance oracle, which is
+     * used when no k-d tree could be built, for example for GEO points.
+     *
+     * @param distanceOracle the distance oracle of the TSP
+     * @param k the number of candidates of each point
+     * @return the candidate lists
+     */
+    public static CandidateLists of(DistanceOracle distanceOracle, int k) {
+        int size = distanceOracle.size();
+        k = Math.max(0, Math.min(k, size - 1));
+        int[] candidates = new int[size * k];
+        int[] dists = new int[k];
+        int[] buffer = new int[size];
+        for (int i = 0; i < size; ++i) {
+            int[] row = distanceOracle.row(i, buffer);
+            int base = i * k, count = 0;
+            for (int j = 0; j < size; ++j) {
+                if (j == i) continue;
+                int d = row[j];
+                if (count == k && d >= dists[k - 1]) continue;
+                /* Insertion into the sorted prefix, dropping the farthest one if it's full. */
+                int t = (count < k ? count++ : k - 1);
+                while (t > 0 && dists[t - 1] > d) {
+                    dists[t] = dists[t - 1];
+                    candidates[base + t] = candidates[base + t - 1];
+                    t--;
+                }
+                dists[t] = d;
+                candidates[base + t] = j;
+            }
+        }
+        return new CandidateLists(size, k, candidates);
+    }
+
+    /**
+     * Gets the number of points.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of candidates of each point.
+     *
+     * @return the number of candidates of each point
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Gets the r-th nearest candidate of the i-th point.
+     *
+     * @param i 0-based index of the point
+     * @param r 0-based rank of the candidate, which must be less than {@link #getK()}
+     * @return 0-based index of the candidate
+     */
+    public int get(int i, int r) {
+        return candidates[i * k + r];
+    }
+}
@@ -1,8 +1,13 @@
 package org.pursuemoon.solvetsp.util.geometry;
 
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A utility class for computational geometry.
@@ -123,4 +128,110 @@ public final class ComputationalGeometryUtils {
             }
         }
     }
+
+    /**
+     * Gets the convex hull layers of points collected in {@code pList} by peeling hulls one by one:
+     * the first layer is the convex hull of all points, and each next one is that of the points
+     * remaining. Exact convex hulls are used for {@code Euc2DPoint}, and approximate ones for others.
+     * This algorithm will not change the original list.
+     *
+     * @param pList scattered points
+     * @param maxLayers the max number of layers
+     * @param <T> type of points
+     * @return the list of layers, each of which is a convex hull
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends AbstractPoint> List<List<T>> getConvexHullLayers(List<T> pList, int maxLayers) {
+        if (pList.isEmpty()) {
+            throw new RuntimeException("The original point list is empty.");
+        }
+        boolean exact = (pList.get(0) instanceof Euc2DPoint);
+        List<List<T>> layers = new ArrayList<>();
+        List<T> remaining = new ArrayList<>(pList);
+        while (!remaining.isEmpty() && layers.size() < maxLayers) {
+            List<T> hull = (exact ? (List<T>) getConvexHull((List<? extends Euc2DPoint>) remaining)
+                    : getApproximateConvexHull(remaining));
+            layers.add(hull);
+            Set<T> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removed.addAll(hull);
+            remaining.removeIf(removed::contains);
+        }
+        return layers;
+    }
+
+    /**
+     * Gets the approximate convex hull layers of all points of a TSP by the same algorithm as
+     * {@link #getConvexHullLayers(List, int)} for points which are not {@code Euc2DPoint}, but looks
+     * distances up in a distance oracle instead of calculating them.
+     *
+     * @param distanceOracle the distance oracle of the TSP
+     * @param maxLayers the max number of layers
+     * @return the list of layers, each of which is 0-based indices of points in hull order
+     */
+    public static int[][] getApproximateConvexHullLayers(DistanceOracle distanceOracle, int maxLayers) {
+        int size = distanceOracle.size();
+        if (size == 0) {
+            throw new RuntimeException("The original point list is empty.");
+        }
+        /* Indices of remaining points in the original order. */
+        int[] remaining = new int[size];
+        for (int i = 0; i < size; ++i) {
+            remaining[i] = i;
+        }
+        int count = size;
+        int[] buffer = new int[size];
+        List<int[]> layers = new ArrayList<>();
+        while (count > 0 && layers.size() < maxLayers) {
+            int[] hull;
+            if (count < 2) {
+                hull = new int[]{remaining[0]};
+            } else {
+                int iOrder = 0, jOrder = 0;
+                double maxDistance = -1;
+                for (int i = 0; i < count; ++i) {
+                    int[] row = distanceOracle.row(remaining[i], buffer);
+                    for (int j = 0; j < count; ++j) {
+                        if (i == j) continue;
+                        double d = row[remaining[j]];
+                        if (d > maxDistance) {
+                            iOrder = i;
+                            jOrder = j;
+                            maxDistance = d;
+                        }
+                    }
+                }
+                int pi = remaining[iOrder], pj = remaining[jOrder];
+                if (count <= 2) {
+                    hull = new int[]{pi, pj};
+                } else {
+                    int kOrder = 0;
+                    double maxDistSum = -1;
+                    for (int i = 0; i < count; ++i) {
+                        if (i == iOrder || i == jOrder) continue;
+                        int pk = remaining[i];
+                        double d = (double) distanceOracle.distance(pi, pk) + distanceOracle.distance(pk, pj);
+                        if (d > maxDistSum) {
+                            kOrder = i;
+                            maxDistSum = d;
+                        }
+                    }
+                    hull = new int[]{pi, pj, remaining[kOrder]};
+                }
+            }
+            layers.add(hull);
+            int kept = 0;
+            for (int t = 0; t < count; ++t) {
+                int p = remaining[t];
+                boolean removed = false;
+                for (int h : hull) {
+                    removed |= (h == p);
+                }
+                if (!removed) {
+                    remaining[kept++] = p;
+                }
+            }
+            count = kept;
+        }
+        return layers.toArray(new int[0][]);
+    }
 }
@@ -0,0 +1,53 @@
+package org.pursuemoon.solvetsp.util.geometry;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+
+/**
+ * Representation of a point of a TSP whose distances are given explicitly, such as by a TSPLIB
+ * EDGE_WEIGHT_SECTION, instead of being calculated from coordinates.
+ *
+ * Such a point has no position; it's only its order, and its distances are looked up in the
+ * distance oracle shared by all points of the TSP.
+ */
+public class ExplicitPoint extends AbstractPoint {
+
+    private final DistanceOracle distanceOracle;
+
+    public ExplicitPoint(int order, DistanceOracle distanceOracle) {
+        if (order < 1 || order > distanceOracle.size()) {
+            String m = String.format("Order [%d] is out of a distance oracle of size %d.", order, distanceOracle.size());
+            throw new RuntimeException(m);
+        }
+        this.order = order;
+        this.distanceOracle = distanceOracle;
+    }
+
+    public DistanceOracle getDistanceOracle() {
+        return distanceOracle;
+    }
+
+    @Override
+    public double distanceTo(AbstractPoint o) {
+        if (!(o instanceof ExplicitPoint) || ((ExplicitPoint) o).distanceOracle != distanceOracle)
+            throw new RuntimeException("Points of different TSPs are being calculated their distance.");
+        return distanceOracle.distance(order - 1, o.order - 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ExplicitPoint))
+            return false;
+        ExplicitPoint p = (ExplicitPoint) o;
+        return (order == p.order && distanceOracle == p.distanceOracle);
+    }
+
+    @Override
+    public int hashCode() {
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExplicitPoint [%d]", order);
+    }
+}
@@ -0,0 +1,334 @@
+package org.pursuemoon.solvetsp.util.geometry;
+
+/**
+ * A static 2-d tree over the points of an EUC_2D instance.
+ *
+ * The tree is implicit: {@code perm} is a permutation of point indices, and the node covering
+ * a range [lo, hi) of it is the point at the middle position (lo + hi) / 2, which splits the
+ * range by the coordinate with the wider spread. The tree is immutable after construction and
+ * can be shared by threads; a {@link Search} holds the mutable state of one construction that
+ * removes visited points one by one.
+ */
+public final class KdTree {
+
+    private final double[] xs;
+    private final double[] ys;
+
+    /** Point indices arranged as an implicit balanced tree. */
+    private final int[] perm;
+
+    /** The position of each point in {@code perm}. */
+    private final int[] pos;
+
+    /** The splitting dimension of the node at each position: 0 for x and 1 for y. */
+    private final byte[] dim;
+
+    public KdTree(PointArrays points) {
+        if (points.getType() != PointArrays.Type.EUC_2D) {
+            throw new RuntimeException("A k-d tree could only be built on EUC_2D points.");
+        }
+        int size = points.size();
+        xs = new double[size];
+        ys = new double[size];
+        for (int i = 0; i < size; ++i) {
+            xs[i] = points.getFirst(i);
+            ys[i] = points.getSecond(i);
+        }
+        perm = new int[size];
+        pos = new int[size];
+        dim = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            perm[i] = i;
+        }
+        build(0, size);
+        for (int p = 0; p < size; ++p) {
+            pos[perm[p]] = p;
+        }
+    }
+
+    public int size() {
+        return perm.length;
+    }
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int p = lo; p < hi; ++p) {
+            int i = perm[p];
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        int mid = (lo + hi) >>> 1;
+        byte d = (byte) (maxX - minX >= maxY - minY ? 0 : 1);
+        dim[mid] = d;
+        select(lo, hi - 1, mid, d == 0 ? xs : ys);
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    /**
+     * Rearranges perm[lo..hi] so that the point at position k has the k-th smallest coordinate,
+     * those before it are not greater and those after it are not less.
+     */
+    private void select(int lo, int hi, int k, double[] c) {
+        while (lo < hi) {
+            double pivot = c[perm[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (c[perm[i]] < pivot) i++;
+                while (c[perm[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = perm[i];
+                    perm[i] = perm[j];
+                    perm[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds at most k nearest points of the i-th point, excluding itself.
+     *
+     * @param i 0-based index of the point
+     * @param k the number of points to find
+     * @param out the array to which indices of found points are written in ascending order of distance
+     * @return the number of found points
+     */
+    public int nearest(int i, int k, int[] out) {
+        return new Search(false).nearest(i, k, out);
+    }
+
+    /**
+     * Gets the precomputed K-nearest candidate lists of all points.
+     *
+     * @param k the number of candidates of each point
+     * @return the candidate lists
+     */
+    public CandidateLists candidateLists(int k) {
+        int size = size();
+        k = Math.max(0, Math.min(k, size - 1));
+        int[] candidates = new int[size * k];
+        int[] out = new int[k];
+        Search search = new Search(false);
+        for (int i = 0; i < size; ++i) {
+            search.nearest(i, k, out);
+            System.arraycopy(out, 0, candidates, i * k, k);
+        }
+        return new CandidateLists(size, k, candidates);
+    }
+
+    /**
+     * Starts a new search in which all points are unvisited.
+     *
+     * @return a new search
+     */
+    public Search newSearch() {
+        return new Search(true);
+    }
+
+    private static double squaredDistance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * The mutable state of a search over the tree, which answers "next unvisited nearest"
+     * queries. An object of this class must not be shared by threads.
+     */
+    public final class Search {
+
+        /** The number of unvisited points in the subtree of the node at each position, or null if nothing is removed. */
+        private final int[] alive;
+
+        /** If each point is visited, or null if nothing is removed. */
+        private final boolean[] visited;
+
+        /* The bounded max-heap of the query being run, ordered by distance. */
+
+        private int k;
+        private int count;
+        private int[] heapIdx;
+        private double[] heapDist;
+
+        private final int[] single = new int[1];
+
+        private Search(boolean removable) {
+            if (removable) {
+                int size = size();
+                alive = new int[size];
+                visited = new boolean[size];
+                initAlive(0, size);
+            } else {
+                alive = null;
+                visited = null;
+            }
+            heapIdx = new int[0];
+            heapDist = new double[0];
+        }
+
+        private void initAlive(int lo, int hi) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            alive[mid] = hi - lo;
+            initAlive(lo, mid);
+            initAlive(mid + 1, hi);
+        }
+
+        /**
+         * Marks the i-th point as visited, so that it will never be found again.
+         *
+         * @param i 0-based index of the point
+         */
+        public void visit(int i) {
+            if (visited == null) {
+                throw new UnsupportedOperationException("Points could not be removed from this search.");
+            }
+            if (visited[i]) {
+                return;
+            }
+            visited[i] = true;
+            int p = pos[i];
+            int lo = 0, hi = perm.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                alive[mid]--;
+                if (p == mid) {
+                    break;
+                } else if (p < mid) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+        }
+
+        /**
+         * Tests if the i-th point is unvisited.
+         *
+         * @param i 0-based index of the point
+         * @return true if the point is unvisited
+         */
+        public boolean isUnvisited(int i) {
+            return (visited == null || !visited[i]);
+        }
+
+        /**
+         * Finds the nearest unvisited point of the i-th point, excluding itself.
+         *
+         * @param i 0-based index of the point
+         * @return 0-based index of the nearest unvisited point, or -1 if there isn't any
+         */
+        public int nearestUnvisited(int i) {
+            return (nearest(i, 1, single) == 1 ? single[0] : -1);
+        }
+
+        /**
+         * Finds at most k nearest unvisited points of the i-th point, excluding itself.
+         *
+         * @param i 0-based index of the point
+         * @param k the number of points to find
+         * @param out the array to which indices of found points are written in ascending order of distance
+         * @return the number of found points
+         */
+        public int nearest(int i, int k, int[] out) {
+            if (heapIdx.length < k) {
+                heapIdx = new int[k];
+                heapDist = new double[k];
+            }
+            this.k = k;
+            this.count = 0;
+            if (k > 0) {
+                search(0, perm.length, i, xs[i], ys[i]);
+            }
+            /* Pops the max-heap from the back, so that the result is in ascending order. */
+            int found = count;
+            for (int t = found - 1; t >= 0; --t) {
+                out[t] = heapIdx[0];
+                pop();
+            }
+            return found;
+        }
+
+        private void search(int lo, int hi, int self, double qx, double qy) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (alive != null && alive[mid] == 0) {
+                return;
+            }
+            int p = perm[mid];
+            if (p != self && isUnvisited(p)) {
+                offer(p, squaredDistance(qx, qy, xs[p], ys[p]));
+            }
+            double diff = (dim[mid] == 0 ? qx - xs[p] : qy - ys[p]);
+            if (diff < 0) {
+                search(lo, mid, self, qx, qy);
+                if (count < k || diff * diff < heapDist[0]) {
+                    search(mid + 1, hi, self, qx, qy);
+                }
+            } else {
+                search(mid + 1, hi, self, qx, qy);
+                if (count < k || diff * diff < heapDist[0]) {
+                    search(lo, mid, self, qx, qy);
+                }
+            }
+        }
+
+        private void offer(int idx, double dist) {
+            if (count < k) {
+                int c = count++;
+                while (c > 0) {
+                    int parent = (c - 1) >>> 1;
+                    if (heapDist[parent] >= dist) break;
+                    heapIdx[c] = heapIdx[parent];
+                    heapDist[c] = heapDist[parent];
+                    c = parent;
+                }
+                heapIdx[c] = idx;
+                heapDist[c] = dist;
+            } else if (dist < heapDist[0]) {
+                siftDown(idx, dist);
+            }
+        }
+
+        private void pop() {
+            count--;
+            if (count > 0) {
+                siftDown(heapIdx[count], heapDist[count]);
+            }
+        }
+
+        private void siftDown(int idx, double dist) {
+            int c = 0;
+            while (true) {
+                int child = 2 * c + 1;
+                if (child >= count) break;
+                if (child + 1 < count && heapDist[child + 1] > heapDist[child]) child++;
+                if (heapDist[child] <= dist) break;
+                heapIdx[c] = heapIdx[child];
+                heapDist[c] = heapDist[child];
+                c = child;
+            }
+            heapIdx[c] = idx;
+            heapDist[c] = dist;
+        }
+    }
+}
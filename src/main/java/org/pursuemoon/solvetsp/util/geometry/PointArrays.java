@@ -0,0 +1,251 @@
+package org.pursuemoon.solvetsp.util.geometry;
+
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+
+import java.util.List;
+
+/**
+ * Structure-of-arrays representation of the points of a TSP.
+ *
+ * Instead of a list of point objects, the two coordinates of all points are kept in two
+ * primitive arrays, so that distances can be calculated without virtual calls or type checks.
+ * For EUC_2D points the coordinates are x and y, and for GEO points they are latitude and
+ * longitude in radians.
+ *
+ * For GEO points, the sines and cosines of both coordinates are precomputed, so that the batch
+ * kernels {@link #distances(int, int, int, int[])} and {@link #row(int, int[])} only need one
+ * {@code acos} for each pair. By the identities cos(a - b) = cos(a)cos(b) + sin(a)sin(b) and
+ * cos(a + b) = cos(a)cos(b) - sin(a)sin(b), the TSPLIB terms are rebuilt with an error of a few
+ * ulps, which moves the distance before truncation by less than 1e-8 km unless the two points are
+ * nearly the same or antipodal. Whenever the result may be affected, that is, the points are that
+ * close or the value lies within {@code TRUNCATION_GUARD} of an integer, the exact formula is used,
+ * so that the kernels stay bit-exact with {@code GeoPoint}.
+ *
+ * EXPLICIT points have no coordinates; their distances are looked up in the distance oracle of
+ * their {@code ExplicitPoint}s, and both coordinate arrays are all 0.
+ */
+public final class PointArrays {
+
+    /** Type of points, which decides the distance formula. */
+    public enum Type {
+        EUC_2D, GEO, EXPLICIT
+    }
+
+    /** The radius of the earth TSPLIB uses, which is the same as {@code GeoPoint}. */
+    private static final double R_EARTH = 6378.388;
+
+    /** The max distance to an integer, within which a distance from precomputed terms is recalculated exactly. */
+    private static final double TRUNCATION_GUARD = 1e-6;
+
+    /** The max absolute value of acos argument, out of which the error of precomputed terms is not bounded well. */
+    private static final double ACOS_ARGUMENT_GUARD = 1 - 1e-6;
+
+    private final Type type;
+    private final double[] first;
+    private final double[] second;
+
+    /* Precomputed terms of GEO points, or null for EUC_2D points. */
+
+    private final double[] cosFirst;
+    private final double[] sinFirst;
+    private final double[] cosSecond;
+    private final double[] sinSecond;
+
+    /* The given distances and the index of each point in them for EXPLICIT points, or null for others. */
+
+    private final DistanceOracle weights;
+    private final int[] weightIndices;
+
+    public PointArrays(Type type, double[] first, double[] second) {
+        this(type, first, second, null, null);
+    }
+
+    private PointArrays(Type type, double[] first, double[] second, DistanceOracle weights, int[] weightIndices) {
+        if (first.length != second.length) {
+            String m = String.format("Sizes of coordinate arrays are different: %d != %d", first.length, second.length);
+            throw new RuntimeException(m);
+        }
+        this.type = type;
+        this.first = first;
+        this.second = second;
+        this.weights = weights;
+        this.weightIndices = weightIndices;
+        if (type == Type.EXPLICIT && weights == null) {
+            throw new RuntimeException("EXPLICIT points must be collected from ExplicitPoint objects.");
+        }
+        if (type == Type.GEO) {
+            int size = first.length;
+            cosFirst = new double[size];
+            sinFirst = new double[size];
+            cosSecond = new double[size];
+            sinSecond = new double[size];
+            for (int i = 0; i < size; ++i) {
+                cosFirst[i] = Math.cos(first[i]);
+                sinFirst[i] = Math.sin(first[i]);
+                cosSecond[i] = Math.cos(second[i]);
+                sinSecond[i] = Math.sin(second[i]);
+            }
+        } else {
+            cosFirst = sinFirst = cosSecond = sinSecond = null;
+        }
+    }
+
+    /**
+     * Gets the structure-of-arrays representation of a list of points, which must be all
+     * {@code Euc2DPoint}, all {@code GeoPoint} or all {@code ExplicitPoint} of the same TSP.
+     *
+     * @param pList the list of points
+     * @return the structure-of-arrays representation
+     */
+    public static PointArrays of(List<? extends AbstractPoint> pList) {
+        int size = pList.size();
+        double[] first = new double[size];
+        double[] second = new double[size];
+        if (size > 0 && pList.get(0) instanceof ExplicitPoint) {
+            DistanceOracle weights = ((ExplicitPoint) pList.get(0)).getDistanceOracle();
+            int[] weightIndices = new int[size];
+            for (int i = 0; i < size; ++i) {
+                AbstractPoint p = pList.get(i);
+                if (!(p instanceof ExplicitPoint) || ((ExplicitPoint) p).getDistanceOracle() != weights) {
+                    throw new RuntimeException("Different type points are being collected together.");
+                }
+                weightIndices[i] = p.getOrder() - 1;
+            }
+            return new PointArrays(Type.EXPLICIT, first, second, weights, weightIndices);
+        }
+        Type type = (size > 0 && pList.get(0) instanceof GeoPoint ? Type.GEO : Type.EUC_2D);
+        for (int i = 0; i < size; ++i) {
+            AbstractPoint p = pList.get(i);
+            if (type == Type.EUC_2D && p instanceof Euc2DPoint) {
+                first[i] = ((Euc2DPoint) p).x;
+                second[i] = ((Euc2DPoint) p).y;
+            } else if (type == Type.GEO && p instanceof GeoPoint) {
+                first[i] = ((GeoPoint) p).latitude;
+                second[i] = ((GeoPoint) p).longitude;
+            } else {
+                throw new RuntimeException("Different type points are being collected together.");
+            }
+        }
+        return new PointArrays(type, first, second);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int size() {
+        return first.length;
+    }
+
+    /**
+     * Gets the distances given for EXPLICIT points, in which the i-th point is the one of order i + 1.
+     *
+     * @return the distance oracle of the {@code ExplicitPoint}s, or {@code null} if the points are of other type
+     */
+    public DistanceOracle getWeights() {
+        return weights;
+    }
+
+    /**
+     * Gets the first coordinate of the i-th point, which is x or latitude.
+     *
+     * @param i 0-based index of the point
+     * @return the first coordinate
+     */
+    public double getFirst(int i) {
+        return first[i];
+    }
+
+    /**
+     * Gets the second coordinate of the i-th point, which is y or longitude.
+     *
+     * @param i 0-based index of the point
+     * @return the second coordinate
+     */
+    public double getSecond(int i) {
+        return second[i];
+    }
+
+    /**
+     * Calculates the distance between the i-th point and the j-th point, by the same formula
+     * as {@code Euc2DPoint} or {@code GeoPoint} does, or looks it up for EXPLICIT points.
+     *
+     * @param i 0-based index of the first point
+     * @param j 0-based index of the second point
+     * @return the distance between the two points
+     */
+    public int distance(int i, int j) {
+        if (type == Type.EUC_2D) {
+            double dx = first[i] - first[j];
+            double dy = second[i] - second[j];
+            return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+        } else if (type == Type.GEO) {
+            return exactGeoDistance(i, j);
+        } else {
+            return weights.distance(weightIndices[i], weightIndices[j]);
+        }
+    }
+
+    /**
+     * Calculates the distances from the i-th point to all points, and the distance to itself is 0.
+     *
+     * @param i 0-based index of the point
+     * @param out the array to which the distance to the j-th point is written at position j
+     */
+    public void row(int i, int[] out) {
+        distances(i, 0, first.length, out);
+    }
+
+    /**
+     * Calculates the distances from the i-th point to the points in [from, to), and the distance to
+     * itself is 0. Results are bit-exact with {@link #distance(int, int)}.
+     *
+     * @param i 0-based index of the point
+     * @param from 0-based index of the first target point, inclusive
+     * @param to 0-based index of the last target point, exclusive
+     * @param out the array to which the distance to the j-th point is written at position j
+     */
+    public void distances(int i, int from, int to, int[] out) {
+        if (type == Type.EUC_2D) {
+            double x = first[i], y = second[i];
+            for (int j = from; j < to; ++j) {
+                double dx = x - first[j];
+                double dy = y - second[j];
+                out[j] = (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+            }
+        } else if (type == Type.EXPLICIT) {
+            int wi = weightIndices[i];
+            for (int j = from; j < to; ++j) {
+                out[j] = weights.distance(wi, weightIndices[j]);
+            }
+        } else {
+            double cf = cosFirst[i], sf = sinFirst[i], cs = cosSecond[i], ss = sinSecond[i];
+            for (int j = from; j < to; ++j) {
+                double q1 = cs * cosSecond[j] + ss * sinSecond[j];
+                double cc = cf * cosFirst[j];
+                double sn = sf * sinFirst[j];
+                double q2 = cc + sn;
+                double q3 = cc - sn;
+                double x = 0.5 * ((1 + q1) * q2 - (1 - q1) * q3);
+                double v = R_EARTH * Math.acos(x) + 1;
+                int d = (int) v;
+                if (x > ACOS_ARGUMENT_GUARD || x < -ACOS_ARGUMENT_GUARD
+                        || v - d < TRUNCATION_GUARD || v - d > 1 - TRUNCATION_GUARD) {
+                    d = exactGeoDistance(i, j);
+                }
+                out[j] = d;
+            }
+        }
+        if (from <= i && i < to) {
+            out[i] = 0;
+        }
+    }
+
+    /** The TSPLIB formula, the same as {@code GeoPoint} uses. */
+    private int exactGeoDistance(int i, int j) {
+        double q1 = Math.cos(second[i] - second[j]);
+        double q2 = Math.cos(first[i] - first[j]);
+        double q3 = Math.cos(first[i] + first[j]);
+        return (int) (R_EARTH * Math.acos(0.5 * ((1 + q1) * q2 - (1 - q1) * q3)) + 1);
+    }
+}
@@ -0,0 +1,68 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.ai.ga.Condition;
+
+public class TestGenerationCondition {
+
+    @Test
+    public void testLimits() {
+        GenerationStatistics statistics = new GenerationStatistics(10, 3, 105, 0.5, true, 2000, 500);
+        Assert.assertTrue(GenerationCondition.ofWallClock(2000).isMet(statistics));
+        Assert.assertFalse(GenerationCondition.ofWallClock(2001).isMet(statistics));
+        Assert.assertTrue(GenerationCondition.ofTargetQuality(100, 5).isMet(statistics));
+        Assert.assertFalse(GenerationCondition.ofTargetQuality(100, 4.9).isMet(statistics));
+        Assert.assertTrue(GenerationCondition.ofStagnation(500).isMet(statistics));
+        Assert.assertFalse(GenerationCondition.ofStagnation(501).isMet(statistics));
+    }
+
+    @Test
+    public void testCombinators() {
+        GenerationStatistics statistics = new GenerationStatistics(10, 3, 105, 0.5, true, 2000, 500);
+        GenerationCondition met = GenerationCondition.ofWallClock(1000);
+        GenerationCondition notMet = GenerationCondition.ofStagnation(1000);
+        Assert.assertTrue(met.and(met).isMet(statistics));
+        Assert.assertFalse(met.and(notMet).isMet(statistics));
+        Assert.assertTrue(notMet.or(met).isMet(statistics));
+        Assert.assertFalse(notMet.or(notMet).isMet(statistics));
+        Assert.assertTrue(notMet.or(met.and(met)).isMet(statistics));
+    }
+
+    @Test
+    public void testConditionsOfFramework() {
+        GenerationStatistics notFull = new GenerationStatistics(10, 3, 105, 0.5, false, 0, 0);
+        GenerationStatistics full = new GenerationStatistics(10, 3, 105, 0.5, true, 0, 0);
+        Assert.assertTrue(GenerationCondition.of(Condition.ofMinGenerationCondition(10)).isMet(full));
+        Assert.assertFalse(GenerationCondition.of(Condition.ofMinGenerationCondition(11)).isMet(full));
+        Assert.assertTrue(GenerationCondition.of(Condition.ofBestStayGenerationCondition(3)).isMet(full));
+        /* The difference counts only if the best queue is full. */
+        Assert.assertFalse(GenerationCondition.of(Condition.ofBestWorstDifferenceCondition(1)).isMet(notFull));
+        Assert.assertTrue(GenerationCondition.of(Condition.ofBestWorstDifferenceCondition(1)).isMet(full));
+
+        StopCondition stopCondition = new StopCondition(5, 20, 3, 1);
+        Assert.assertSame(stopCondition, GenerationCondition.of(stopCondition));
+        Assert.assertTrue(stopCondition.isMet(notFull));
+        Assert.assertFalse(stopCondition.isMet(new GenerationStatistics(4, 3, 105, 0.5, true, 0, 0)));
+    }
+
+    @Test
+    public void testEvolve() {
+        SolutionGroup solutionGroup = TestSolutionGroup.newSolutionGroup(3, null);
+        solutionGroup.initialize();
+        double initialDistance = solutionGroup.getBest().getDistance();
+
+        /* Stops at the first generation which is good enough. */
+        solutionGroup.evolve(GenerationCondition.ofTargetQuality(initialDistance, 0)
+                .or(GenerationCondition.ofWallClock(60000)));
+        Assert.assertEquals(1, solutionGroup.getGen());
+
+        solutionGroup.evolve(GenerationCondition.ofWallClock(0)
+                .and(GenerationCondition.of(Condition.ofMinGenerationCondition(5))));
+        Assert.assertEquals(5, solutionGroup.getGen());
+        GenerationStatistics statistics = solutionGroup.getStatistics();
+        Assert.assertEquals(5, statistics.getGeneration());
+        Assert.assertEquals(solutionGroup.getBest().getDistance(), statistics.getBestDistance(), 0);
+        Assert.assertTrue(statistics.getStagnantMillis() <= statistics.getElapsedMillis());
+    }
+}
@@ -0,0 +1,72 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.ai.ga.Condition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestIslandModel {
+
+    @Test
+    public void testEvolve() {
+        for (IslandModel.Topology topology : IslandModel.Topology.values()) {
+            List<SolutionGroup> solutionGroups = new ArrayList<>();
+            IslandModel.Builder builder = IslandModel.Builder.ofNew()
+                    .withMigrationInterval(10)
+                    .withMigrationSize(2)
+                    .withTopology(topology);
+            for (int i = 0; i < 3; ++i) {
+                SolutionGroup solutionGroup = TestSolutionGroup.newSolutionGroup(i, null);
+                solutionGroups.add(solutionGroup);
+                builder.withIsland(solutionGroup);
+            }
+            IslandModel islandModel = builder.build();
+            islandModel.initialize();
+            islandModel.evolve(Condition.ofMinGenerationCondition(45));
+
+            /* Every island stops at the generation when the stop condition is met, not at a migration. */
+            Assert.assertEquals(45, islandModel.getGen());
+            Solution best = islandModel.getBest();
+            for (SolutionGroup solutionGroup : solutionGroups) {
+                Assert.assertEquals(45, solutionGroup.getGen());
+                Assert.assertTrue(best.compareTo(solutionGroup.getBest()) >= 0);
+            }
+            Assert.assertEquals(TspSolver.getPoints().size(), best.getClonedGene().length);
+        }
+    }
+
+    @Test
+    public void testCancellation() {
+        IslandModel.Builder builder = IslandModel.Builder.ofNew().withMigrationInterval(10);
+        for (int i = 0; i < 3; ++i) {
+            builder.withIsland(TestSolutionGroup.newSolutionGroup(i, null));
+        }
+        IslandModel islandModel = builder.build();
+        Assert.assertNull(islandModel.getBestSoFar());
+        islandModel.initialize();
+        CancellationToken cancellationToken = new CancellationToken();
+        islandModel.setCancellationToken(cancellationToken);
+        islandModel.addGenerationListener(statistics -> {
+            if (statistics.getGeneration() >= 25) {
+                cancellationToken.cancel();
+            }
+        });
+        islandModel.evolve(Condition.ofMinGenerationCondition(Integer.MAX_VALUE));
+
+        /* Every island stops soon after the first one reaches the generation. */
+        Assert.assertTrue(islandModel.getGen() >= 25);
+        Assert.assertTrue(islandModel.getBestSoFar().compareTo(islandModel.getBest()) >= 0);
+    }
+
+    @Test
+    public void testIllegalIslandModel() {
+        try {
+            IslandModel.Builder.ofNew().withMigrationInterval(10).build();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal island model"));
+        }
+    }
+}
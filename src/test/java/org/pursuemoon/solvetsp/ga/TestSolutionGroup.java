@@ -0,0 +1,561 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.ai.ga.Condition;
+import org.pursuemoon.ai.ga.operator.WeightedOperator;
+import org.pursuemoon.solvetsp.ga.operator.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestSolutionGroup {
+
+    @Test
+    public void testParallelSameAsSequential() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            for (long seed = 1; seed <= 3; ++seed) {
+                SolutionGroup sequential = newSolutionGroup(seed, null);
+                SolutionGroup parallel = newSolutionGroup(seed, forkJoinPool);
+                sequential.initialize();
+                parallel.initialize();
+                Assert.assertEquals(sequential.getBest(), parallel.getBest());
+
+                sequential.evolve(Condition.ofMinGenerationCondition(30));
+                parallel.evolve(Condition.ofMinGenerationCondition(30));
+                Assert.assertEquals(sequential.getGen(), parallel.getGen());
+                Assert.assertEquals(sequential.getBest(), parallel.getBest());
+                Assert.assertEquals(sequential.getBest().getDistance(), parallel.getBest().getDistance(), 0);
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPooledThreadsUnbound() throws Exception {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+        try {
+            SolutionGroup parallel = newSolutionGroup(1, forkJoinPool);
+            parallel.initialize();
+            parallel.evolve(Condition.ofMinGenerationCondition(3));
+            /* No pooled thread keeps the instance it helped to solve. */
+            for (int i = 0; i < 8; ++i) {
+                Assert.assertNull(forkJoinPool.submit(() -> TspSolver.bindInstance(null)).get());
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testImmigrate() {
+        SolutionGroup solutionGroup = newSolutionGroup(7, null);
+        solutionGroup.initialize();
+        solutionGroup.evolve(Condition.ofMinGenerationCondition(5));
+        List<Solution> before = solutionGroup.getBest(20);
+        Solution worst = before.stream().min(Comparator.naturalOrder()).get();
+
+        /* The immigrant replaces the worst solution, and becomes the best one if it's better. */
+        SolutionGroup other = newSolutionGroup(8, null);
+        other.initialize();
+        other.evolve(Condition.ofMinGenerationCondition(5));
+        Solution immigrant = other.getBest();
+        Solution expectedBest = (immigrant.compareTo(solutionGroup.getBest()) > 0 ? immigrant : solutionGroup.getBest());
+        solutionGroup.immigrate(Collections.singletonList(immigrant));
+        List<Solution> after = solutionGroup.getBest(20);
+        Assert.assertEquals(20, after.size());
+        Assert.assertTrue(after.contains(immigrant));
+        Assert.assertSame(expectedBest, solutionGroup.getBest());
+        Assert.assertEquals(before.size() - 1, after.stream().filter(s -> s != immigrant).count());
+        Assert.assertTrue(after.stream().filter(s -> s != immigrant).allMatch(s -> s.compareTo(worst) >= 0));
+    }
+
+    @Test
+    public void testRecycledGenesNotInUse() {
+        for (ForkJoinPool forkJoinPool : Arrays.asList(null, new ForkJoinPool(3))) {
+            SolutionGroup solutionGroup = newSolutionGroup(9, forkJoinPool);
+            solutionGroup.initialize();
+            for (int time = 0; time < 10; ++time) {
+                solutionGroup.evolve(Condition.ofMinGenerationCondition(Integer.MAX_VALUE), 10);
+                /* A live solution whose gene was recycled would have been overwritten by other offspring. */
+                for (Solution solution : solutionGroup.getBest(20)) {
+                    Solution copy = new Solution(solution.getClonedGene(), false);
+                    Assert.assertEquals(copy.getDistance(), solution.getDistance(), 0);
+                }
+            }
+            if (forkJoinPool != null) {
+                forkJoinPool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testPackedSameAsList() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            for (long seed = 1; seed <= 3; ++seed) {
+                SolutionGroup list = newSolutionGroup(seed, null, false);
+                SolutionGroup packed = newSolutionGroup(seed, (seed == 2 ? forkJoinPool : null), true);
+                list.initialize();
+                packed.initialize();
+                Assert.assertEquals(list.getBest(), packed.getBest());
+
+                list.evolve(Condition.ofMinGenerationCondition(30));
+                packed.evolve(Condition.ofMinGenerationCondition(30));
+                Assert.assertEquals(list.getGen(), packed.getGen());
+                Assert.assertEquals(list.getBest(), packed.getBest());
+                Assert.assertEquals(list.getBest().getDistance(), packed.getBest().getDistance(), 0);
+                Assert.assertEquals(list.getBest(20), packed.getBest(20));
+
+                /* Immigrants are taken in the same way. */
+                SolutionGroup other = newSolutionGroup(seed + 10, null, false);
+                other.initialize();
+                List<Solution> immigrants = other.getBest(3);
+                list.immigrate(immigrants);
+                packed.immigrate(immigrants);
+                Assert.assertEquals(list.getBest(20), packed.getBest(20));
+                Assert.assertEquals(list.getBest(), packed.getBest());
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPackedPopulation() {
+        PackedPopulation packed = new PackedPopulation(TspSolver.getPoints().size(), 3);
+        SolutionGroup solutionGroup = newSolutionGroup(4, null);
+        solutionGroup.initialize();
+        Solution solution = solutionGroup.getBest();
+
+        /* A gene written by an operator is rotated to begin with 1 and evaluated like a solution. */
+        int[] gene = solution.getClonedGene();
+        int[] rotated = new int[gene.length];
+        System.arraycopy(gene, 3, rotated, 0, gene.length - 3);
+        System.arraycopy(gene, 0, rotated, gene.length - 3, 3);
+        System.arraycopy(rotated, 0, packed.genes(), packed.offsetOf(2), gene.length);
+        packed.evaluate(2);
+        Assert.assertTrue(packed.geneEquals(2, solution));
+        Assert.assertEquals(solution.getDistance(), packed.getDistance(2), 0);
+        Assert.assertEquals(solution.getFitness(), packed.getFitness(2), 0);
+
+        packed.set(0, solution);
+        packed.copy(0, 1);
+        Solution copy = packed.get(1);
+        Assert.assertEquals(solution, copy);
+        Assert.assertFalse(solution.gene() == copy.gene());
+        Assert.assertEquals(solution.getDistance(), copy.getDistance(), 0);
+    }
+
+    @Test
+    public void testIllegalPackedPopulation() {
+        try {
+            SolutionGroup.Builder.ofNew()
+                    .populationSize(20)
+                    .withCrossoverProbability(0.9)
+                    .withMutationProbability(0.6)
+                    .withGenerationOperator(new RandomGeneratingOperator(100))
+                    .withCrossoverOperator(new WeightedOperator.WeightedCrossoverOperator<Integer, Solution>(100) {
+                        @Override
+                        public List<Solution> crossover(Solution o1, Solution o2) {
+                            return Arrays.asList(o1, o2);
+                        }
+                    })
+                    .withMutationOperator(new RangeReversingMutationOperator(100, 5))
+                    .withSelectionOperator(new RouletteSelectionOperator(100))
+                    .withPackedPopulation(true)
+                    .build();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Packed population needs"));
+        }
+    }
+
+    @Test
+    public void testFingerprint() {
+        Solution solution = new RandomGeneratingOperator(100).generate();
+        int[] gene = solution.getClonedGene();
+        int n = gene.length;
+        int[] rotated = new int[n];
+        int[] reversed = new int[n];
+        for (int i = 0; i < n; ++i) {
+            rotated[i] = gene[(i + 7) % n];
+            reversed[i] = gene[n - 1 - i];
+        }
+        int[] swapped = gene.clone();
+        swapped[2] = gene[3];
+        swapped[3] = gene[2];
+        for (int[] same : Arrays.asList(rotated, reversed)) {
+            Solution other = new Solution(same, false);
+            Assert.assertEquals(solution.getFingerprint(), other.getFingerprint());
+            Assert.assertTrue(solution.sameTour(other));
+        }
+        Solution different = new Solution(swapped, true);
+        Assert.assertNotEquals(solution.getFingerprint(), different.getFingerprint());
+        Assert.assertFalse(solution.sameTour(different));
+        Assert.assertNotEquals(solution, new Solution(reversed, true));
+    }
+
+    @Test
+    public void testDuplicateRejection() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+        try {
+            for (long seed = 1; seed <= 2; ++seed) {
+                SolutionGroup list = newSolutionGroup(seed, null, false, true);
+                SolutionGroup packed = newSolutionGroup(seed, (seed == 2 ? forkJoinPool : null), true, true);
+                list.initialize();
+                packed.initialize();
+                list.evolve(Condition.ofMinGenerationCondition(40));
+                packed.evolve(Condition.ofMinGenerationCondition(40));
+                Assert.assertEquals(list.getBest(), packed.getBest());
+                Assert.assertEquals(list.getBest(20), packed.getBest(20));
+
+                /* There are always enough distinct offspring, so no tour survives twice. */
+                List<Solution> solutions = list.getBest(20);
+                for (int i = 0; i < solutions.size(); ++i) {
+                    /* No gene of a survivor was recycled. */
+                    Solution copy = new Solution(solutions.get(i).getClonedGene(), false);
+                    Assert.assertEquals(copy.getDistance(), solutions.get(i).getDistance(), 0);
+                    for (int j = i + 1; j < solutions.size(); ++j) {
+                        Assert.assertFalse(solutions.get(i).sameTour(solutions.get(j)));
+                    }
+                }
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSteadyState() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+        try {
+            for (boolean duplicateRejection : new boolean[] {false, true}) {
+                SolutionGroup sequential = newSteadyStateSolutionGroup(5, null, duplicateRejection);
+                SolutionGroup parallel = newSteadyStateSolutionGroup(5, forkJoinPool, duplicateRejection);
+                sequential.initialize();
+                parallel.initialize();
+                Solution initialBest = sequential.getBest();
+                for (int time = 0; time < 3; ++time) {
+                    sequential.evolve(Condition.ofMinGenerationCondition(30), 10);
+                    parallel.evolve(Condition.ofMinGenerationCondition(30), 10);
+                }
+                Assert.assertEquals(30, sequential.getGen());
+                Assert.assertEquals(sequential.getBest(), parallel.getBest());
+                Assert.assertTrue(sequential.getBest().compareTo(initialBest) >= 0);
+
+                List<Solution> solutions = sequential.getBest(20);
+                Assert.assertEquals(20, solutions.size());
+                /* The population may have converged to copies of the best solution, any of which is the best. */
+                Assert.assertEquals(sequential.getBest().getFitness(), SolutionRanking.best(solutions).getFitness(), 0);
+                for (int i = 0; i < solutions.size(); ++i) {
+                    /* No gene of a solution in the population was recycled. */
+                    Solution copy = new Solution(solutions.get(i).getClonedGene(), false);
+                    Assert.assertEquals(copy.getDistance(), solutions.get(i).getDistance(), 0);
+                    for (int j = i + 1; j < solutions.size() && duplicateRejection; ++j) {
+                        Assert.assertFalse(solutions.get(i).sameTour(solutions.get(j)));
+                    }
+                }
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEliteArchive() {
+        RandomGeneratingOperator operator = new RandomGeneratingOperator(1);
+        for (int capacity : new int[] {1, 2, 7, 50}) {
+            EliteArchive archive = new EliteArchive(capacity);
+            List<Double> all = new ArrayList<>();
+            for (int i = 0; i < 300; ++i) {
+                Solution solution = operator.generate();
+                archive.offer(solution);
+                all.add(solution.getFitness());
+                all.sort(Comparator.reverseOrder());
+                List<Double> top = all.subList(0, Math.min(capacity, all.size()));
+
+                Assert.assertEquals(top.size(), archive.size());
+                Assert.assertEquals(top.size() == capacity, archive.isFull());
+                Assert.assertEquals(top.get(0), archive.best().getFitness(), 0);
+                Assert.assertEquals(top.get(top.size() - 1), archive.worst().getFitness(), 0);
+                Assert.assertEquals(top.get(0) - top.get(top.size() - 1), archive.fitnessDifference(), 0);
+            }
+            List<Double> kept = new ArrayList<>();
+            for (Solution solution : archive.toList()) {
+                kept.add(solution.getFitness());
+            }
+            kept.sort(Comparator.reverseOrder());
+            Assert.assertEquals(all.subList(0, capacity), kept);
+        }
+
+        try {
+            new EliteArchive(0);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal elite archive"));
+        }
+    }
+
+    @Test
+    public void testIndexedMinHeap() {
+        double[] keys = {5, 3, 8, 3, 9, 1};
+        IndexedMinHeap heap = new IndexedMinHeap(keys);
+        Assert.assertEquals(5, heap.peek());
+        heap.update(5, 10);
+        /* Equal keys are ordered by index. */
+        Assert.assertEquals(1, heap.peek());
+        heap.update(1, 4);
+        Assert.assertEquals(3, heap.peek());
+        heap.update(2, 0);
+        Assert.assertEquals(2, heap.peek());
+        Assert.assertEquals(0, heap.getKey(2), 0);
+
+        /* Keys are copied. */
+        keys[0] = -1;
+        Assert.assertEquals(2, heap.peek());
+    }
+
+    @Test
+    public void testAdaptiveChances() {
+        AdaptiveChances adaptiveChances = new AdaptiveChances(new double[] {0.5, 0.25, 0.25}, 2);
+        adaptiveChances.update();
+        Assert.assertEquals(0.5, adaptiveChances.getChances()[0], 0);
+        Assert.assertEquals(0.25, adaptiveChances.getChances()[1], 0);
+
+        /* Only the latest 2 calls are taken into account, and an operator not called yet is taken as average. */
+        adaptiveChances.record(0, 100, 10);
+        adaptiveChances.record(0, 0, 10);
+        adaptiveChances.record(0, 0, 10);
+        adaptiveChances.record(1, 30, 10);
+        adaptiveChances.update();
+        double[] chances = adaptiveChances.getChances();
+        Assert.assertEquals(1, chances[0] + chances[1] + chances[2], 1e-9);
+        Assert.assertEquals(AdaptiveChances.FLOOR * 0.5, chances[0], 1e-9);
+        /* Rates are 0, 3 and 1.5 per nanosecond. */
+        Assert.assertEquals(0.1 * 0.25 + 0.9 * 3 / 4.5, chances[1], 1e-9);
+        Assert.assertEquals(0.1 * 0.25 + 0.9 * 1.5 / 4.5, chances[2], 1e-9);
+
+        Random random = new Random(1);
+        int[] counts = new int[3];
+        for (int i = 0; i < 10000; ++i) {
+            counts[adaptiveChances.sample(random)]++;
+        }
+        Assert.assertTrue(counts[0] < counts[1] && counts[0] < counts[2]);
+    }
+
+    @Test
+    public void testAdaptiveOperators() {
+        for (int mode = 0; mode < 3; ++mode) {
+            SolutionGroup.Builder builder = newBuilder(7, null)
+                    .withAdaptiveOperators(16);
+            if (mode == 1) {
+                builder.withPackedPopulation(true);
+            } else if (mode == 2) {
+                builder.withSteadyState(8);
+            }
+            SolutionGroup solutionGroup = builder.build();
+            solutionGroup.initialize();
+            Solution initialBest = solutionGroup.getBest();
+            solutionGroup.evolve(Condition.ofMinGenerationCondition(20), 20);
+            Assert.assertEquals(20, solutionGroup.getGen());
+            Assert.assertTrue(solutionGroup.getBest().compareTo(initialBest) >= 0);
+            for (Solution solution : solutionGroup.getBest(20)) {
+                Solution copy = new Solution(solution.getClonedGene(), false);
+                Assert.assertEquals(copy.getDistance(), solution.getDistance(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testIllegalAdaptiveOperators() {
+        try {
+            newBuilder(7, null).withAdaptiveOperators(-1).build();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal adaptive operators"));
+        }
+    }
+
+    @Test
+    public void testAnytime() throws InterruptedException {
+        SolutionGroup solutionGroup = newSolutionGroup(4, null);
+        Assert.assertNull(solutionGroup.getBestSoFar());
+        solutionGroup.initialize();
+        Assert.assertSame(solutionGroup.getBest(), solutionGroup.getBestSoFar());
+
+        /* Cancelled by a listener, and stops at the end of that generation. */
+        CancellationToken cancellationToken = new CancellationToken();
+        List<GenerationStatistics> history = new ArrayList<>();
+        solutionGroup.setCancellationToken(cancellationToken);
+        solutionGroup.addGenerationListener(history::add);
+        solutionGroup.addGenerationListener(statistics -> {
+            if (statistics.getGeneration() == 7) {
+                cancellationToken.cancel();
+            }
+        });
+        Assert.assertTrue(solutionGroup.evolve(Condition.ofMinGenerationCondition(Integer.MAX_VALUE), 100));
+        Assert.assertEquals(7, solutionGroup.getGen());
+        Assert.assertEquals(7, history.size());
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < history.size(); ++i) {
+            Assert.assertEquals(i + 1, history.get(i).getGeneration());
+            bestDistance = Math.min(bestDistance, history.get(i).getBestDistance());
+        }
+        Assert.assertEquals(bestDistance, solutionGroup.getBestSoFar().getDistance(), 0);
+
+        /* A cancelled token is honoured before any generation. */
+        Assert.assertTrue(solutionGroup.evolve(Condition.ofMinGenerationCondition(Integer.MAX_VALUE), 100));
+        Assert.assertEquals(7, solutionGroup.getGen());
+
+        /* Cancelled and watched by another thread. */
+        CancellationToken other = new CancellationToken();
+        CountDownLatch latch = new CountDownLatch(13);
+        solutionGroup.setCancellationToken(other);
+        solutionGroup.addGenerationListener(statistics -> latch.countDown());
+        Thread thread = new Thread(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            other.cancel();
+        });
+        thread.start();
+        solutionGroup.evolve(Condition.ofMinGenerationCondition(Integer.MAX_VALUE));
+        thread.join();
+        Assert.assertTrue(solutionGroup.getGen() >= 20);
+        Assert.assertTrue(solutionGroup.getBestSoFar().compareTo(solutionGroup.getBest()) >= 0);
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        File dir = Files.createTempDirectory("checkpoint").toFile();
+        try {
+            for (boolean packedPopulation : new boolean[] {false, true}) {
+                File file = new File(dir, "group-" + packedPopulation + ".ckpt");
+                File copy = new File(dir, "copy-" + packedPopulation + ".ckpt");
+                SolutionGroup solutionGroup = newBuilder(6, null)
+                        .withPackedPopulation(packedPopulation)
+                        .withCheckpoint(file, 3)
+                        .build();
+                solutionGroup.initialize();
+                solutionGroup.evolve(Condition.ofMinGenerationCondition(40));
+                solutionGroup.flushCheckpoint();
+                Files.copy(file.toPath(), copy.toPath());
+
+                /* Resumed at the generation it stopped, and evolves the same afterwards. */
+                SolutionGroup resumed = newBuilder(6, null)
+                        .withPackedPopulation(packedPopulation)
+                        .withCheckpoint(copy, 3)
+                        .build();
+                resumed.initialize();
+                Assert.assertEquals(40, resumed.getGen());
+                Assert.assertEquals(solutionGroup.getBest(), resumed.getBest());
+                Assert.assertEquals(solutionGroup.getBestSoFar().getDistance(), resumed.getBestSoFar().getDistance(), 0);
+                Assert.assertEquals(solutionGroup.getStatistics().getStayGeneration(),
+                        resumed.getStatistics().getStayGeneration());
+                solutionGroup.evolve(Condition.ofMinGenerationCondition(60));
+                resumed.evolve(Condition.ofMinGenerationCondition(60));
+                Assert.assertEquals(solutionGroup.getBest(), resumed.getBest());
+                Assert.assertEquals(solutionGroup.getBest().getDistance(), resumed.getBest().getDistance(), 0);
+
+                /* A frame cut off is ignored, and the previous one is taken. */
+                resumed.flushCheckpoint();
+                byte[] bytes = Files.readAllBytes(copy.toPath());
+                Files.write(copy.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+                SolutionGroup cut = newBuilder(6, null)
+                        .withPackedPopulation(packedPopulation)
+                        .withCheckpoint(copy, 3)
+                        .build();
+                cut.initialize();
+                Assert.assertEquals(57, cut.getGen());
+            }
+        } finally {
+            for (File file : dir.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(dir.delete());
+        }
+    }
+
+    @Test
+    public void testIllegalCheckpoint() {
+        try {
+            newBuilder(6, null).withCheckpoint(new File("group.ckpt"), 0).build();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal checkpoint"));
+        }
+    }
+
+    @Test
+    public void testGenePool() {
+        GenePool genePool = new GenePool(5, 2);
+        int[] a = genePool.acquire();
+        int[] b = genePool.acquire();
+        int[] c = genePool.acquire();
+        genePool.release(a);
+        genePool.release(b);
+        genePool.release(c);
+        Assert.assertEquals(2, genePool.getFreeCount());
+        Assert.assertSame(b, genePool.acquire());
+        Assert.assertSame(a, genePool.acquire());
+        Assert.assertEquals(5, genePool.acquire().length);
+    }
+
+    private static SolutionGroup newSteadyStateSolutionGroup(long seed, ForkJoinPool forkJoinPool,
+                                                             boolean duplicateRejection) {
+        return newBuilder(seed, forkJoinPool)
+                .withDuplicateRejection(duplicateRejection)
+                .withSteadyState(8)
+                .build();
+    }
+
+    static SolutionGroup newSolutionGroup(long seed, ForkJoinPool forkJoinPool) {
+        return newSolutionGroup(seed, forkJoinPool, false);
+    }
+
+    static SolutionGroup newSolutionGroup(long seed, ForkJoinPool forkJoinPool, boolean packedPopulation) {
+        return newSolutionGroup(seed, forkJoinPool, packedPopulation, false);
+    }
+
+    static SolutionGroup newSolutionGroup(long seed, ForkJoinPool forkJoinPool, boolean packedPopulation,
+                                          boolean duplicateRejection) {
+        return newBuilder(seed, forkJoinPool)
+                .withTopX(2)
+                .withTopY(3)
+                .withTopZ(2)
+                .withPackedPopulation(packedPopulation)
+                .withDuplicateRejection(duplicateRejection)
+                .build();
+    }
+
+    private static SolutionGroup.Builder newBuilder(long seed, ForkJoinPool forkJoinPool) {
+        int numberOfLoci = TspSolver.getPoints().size();
+        return SolutionGroup.Builder.ofNew()
+                .populationSize(20)
+                .withCrossoverProbability(0.9)
+                .withMutationProbability(0.6)
+                .withGenerationOperator(new RandomGeneratingOperator(50))
+                .withGenerationOperator(new NearestKNeighborsGreedyGeneratingOperator(50, 2))
+                .withCrossoverOperator(new SinglePointCrossoverOperator(50, (int) (numberOfLoci * 0.1)))
+                .withCrossoverOperator(new NearestNeighborCrossoverOperator(50))
+                .withMutationOperator(new MultiPointMutationOperator(50, (int) (numberOfLoci * 0.05)))
+                .withMutationOperator(new RangeReversingMutationOperator(50, (int) (numberOfLoci * 0.25)))
+                .withSelectionOperator(new RouletteSelectionOperator(100))
+                .withSeed(seed)
+                .withForkJoinPool(forkJoinPool);
+    }
+}
@@ -0,0 +1,66 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.ga.operator.RandomGeneratingOperator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestSolutionRanking {
+
+    private RandomGeneratingOperator randomGeneratingOperator = new RandomGeneratingOperator(100);
+
+    @Test
+    public void testSameAsStableSort() {
+        Random random = new Random(11);
+        for (int time = 0; time < 50; ++time) {
+            int size = 1 + random.nextInt(80);
+            List<Solution> list = new ArrayList<>();
+            for (int i = 0; i < size; ++i) {
+                /* Equal solutions are added now and then, so that there are ties. */
+                if (i > 0 && random.nextInt(4) == 0) {
+                    int[] gene = list.get(random.nextInt(i)).getClonedGene();
+                    list.add(new Solution(gene, true));
+                } else {
+                    list.add(randomGeneratingOperator.generate());
+                }
+            }
+            List<Solution> sorted = new ArrayList<>(list);
+            sorted.sort(Comparator.reverseOrder());
+            Assert.assertSame(sorted.get(0), SolutionRanking.best(list));
+
+            Map<Solution, Integer> positions = new IdentityHashMap<>();
+            for (int i = 0; i < size; ++i) {
+                positions.put(list.get(i), i);
+            }
+            for (int k = 0; k <= size; ++k) {
+                List<Solution> copy = new ArrayList<>(list);
+                List<Solution> top = SolutionRanking.topK(list, k);
+                Assert.assertEquals(copy, list);
+                Assert.assertEquals(k, top.size());
+                /* The same solutions as the first k of the sorted list, in the order of the list. */
+                List<Solution> expected = new ArrayList<>(sorted.subList(0, k));
+                expected.sort(Comparator.comparing(positions::get));
+                for (int i = 0; i < k; ++i) {
+                    Assert.assertSame(expected.get(i), top.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIllegalK() {
+        try {
+            SolutionRanking.topK(Collections.singletonList(randomGeneratingOperator.generate()), 2);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal k"));
+        }
+    }
+}
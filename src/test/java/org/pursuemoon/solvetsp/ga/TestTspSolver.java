@@ -0,0 +1,87 @@
+package org.pursuemoon.solvetsp.ga;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.ai.ga.Condition;
+import org.pursuemoon.solvetsp.ga.operator.*;
+import org.pursuemoon.solvetsp.util.RandomStream;
+import org.pursuemoon.solvetsp.util.TspLibParser;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestTspSolver {
+
+    @Test
+    public void testTimedModes() {
+        TspSolver tspSolver = new TspSolver(0, 1, false, 20, 0.9, 0.6, 2, 3, 3, 10, 20, 5, 5, 1e-7);
+        Assert.assertEquals(Collections.emptyList(), tspSolver.getTimedModes());
+        /* These don't depend on timing, so a seed still reproduces the evolution. */
+        tspSolver.setSteadyState(4);
+        tspSolver.setDuplicateRejection(true);
+        tspSolver.setStopLimits(0, 5, 0);
+        Assert.assertEquals(Collections.emptyList(), tspSolver.getTimedModes());
+
+        tspSolver.setIslandModel(2, 10, 2, IslandModel.Topology.RING);
+        tspSolver.setAdaptiveOperators(50);
+        tspSolver.setStopLimits(1000, -1, 500);
+        Assert.assertEquals(Arrays.asList("islands", "adaptive operators", "wall-clock limit", "stagnation limit"),
+                tspSolver.getTimedModes());
+    }
+
+    @Test
+    public void testSeededEvolutionReproduced() {
+        /* Populations get streams split from the root stream in order, as the solver gives them. */
+        SolutionGroup[] groups = new SolutionGroup[2];
+        for (int run = 0; run < groups.length; ++run) {
+            RandomStream root = new RandomStream(42);
+            root.split();
+            groups[run] = SolutionGroup.Builder.ofNew()
+                    .populationSize(20)
+                    .withCrossoverProbability(0.9)
+                    .withMutationProbability(0.6)
+                    .withGenerationOperator(new RandomGeneratingOperator(1))
+                    .withCrossoverOperator(new SectionCrossoverOperator(1))
+                    .withMutationOperator(new MultiPointMutationOperator(1, 3))
+                    .withSelectionOperator(new RouletteSelectionOperator(1))
+                    .withRandomStream(root.split())
+                    .build();
+            groups[run].initialize();
+            groups[run].evolve(Condition.ofMinGenerationCondition(20));
+        }
+        Assert.assertEquals(groups[0].getBest(), groups[1].getBest());
+        Assert.assertEquals(groups[0].getBest().getDistance(), groups[1].getBest().getDistance(), 0);
+    }
+
+    @Test
+    public void testSolveWithoutOptimalSolution() throws IOException {
+        /* EXPLICIT cases may come without an optimal tour. */
+        List<AbstractPoint> pList = TspLibParser.parseResource("tsp_explicit/eil51_full_matrix.tsp").toPoints();
+        TspInstance instance = TspInstance.of("eil51_full_matrix", pList, null, t -> 1 / (1e-5 * t + 1e-5));
+        TspInstance previous = TspSolver.bindInstance(null);
+        try {
+            TspSolver tspSolver = new TspSolver(0, 1, false, 20, 0.9, 0.6, 2, 3, 3, 10, 20, 5, 5, 1e-7);
+            tspSolver.setInstanceSupplier(() -> instance);
+            tspSolver.run();
+            Assert.assertNull(tspSolver.getOptimalSolution());
+            Assert.assertTrue(tspSolver.getReport().contains("best obtained distance"));
+            Assert.assertFalse(tspSolver.getReport().contains("true optimal"));
+
+            /* A target quality can't be measured, so it's rejected before evolution. */
+            TspSolver targetSolver = new TspSolver(0, 1, false, 20, 0.9, 0.6, 2, 3, 3, 10, 20, 5, 5, 1e-7);
+            targetSolver.setInstanceSupplier(() -> instance);
+            targetSolver.setStopLimits(0, 5, 0);
+            try {
+                targetSolver.run();
+                Assert.fail("A target quality without an optimal solution should be rejected.");
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getMessage().contains("Illegal target quality"));
+            }
+        } finally {
+            TspSolver.bindInstance(previous);
+        }
+    }
+}
@@ -3,10 +3,12 @@ package org.pursuemoon.solvetsp.ga.operator;
 import org.junit.Assert;
 import org.junit.Test;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.DataExtractor;
 
 import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
 
 public class TestCrossoverOperator {
 
@@ -58,6 +60,46 @@ public class TestCrossoverOperator {
         }
     }
 
+    @Test
+    public void testInPlaceSameAsAllocating() {
+        InPlaceCrossoverOperator[] operators = {new SinglePointCrossoverOperator(100, 20),
+                new SectionCrossoverOperator(100), new NearestNeighborCrossoverOperator(100)};
+        Solution p1 = randomGeneratingOperator.generate();
+        Solution p2 = randomGeneratingOperator.generate();
+        int[] gene1 = p1.getClonedGene();
+        int[] gene2 = p2.getClonedGene();
+        for (InPlaceCrossoverOperator operator : operators) {
+            TspSolver.bindRandom(new Random(3));
+            List<Solution> offspring = operator.crossover(p1, p2);
+            TspSolver.bindRandom(new Random(3));
+            int[] offspring1 = new int[gene1.length];
+            int[] offspring2 = new int[gene2.length];
+            Assert.assertTrue(operator.crossover(gene1, gene2, offspring1, offspring2));
+            Assert.assertEquals(offspring.get(0), Solution.wrap(offspring1));
+            Assert.assertEquals(offspring.get(1), Solution.wrap(offspring2));
+            /* Parents are not modified. */
+            Assert.assertArrayEquals(p1.getClonedGene(), gene1);
+            Assert.assertArrayEquals(p2.getClonedGene(), gene2);
+        }
+    }
+
+    @Test
+    public void testDeltaDistance() {
+        SinglePointCrossoverOperator operator = new SinglePointCrossoverOperator(100, 20);
+        Solution p1 = randomGeneratingOperator.generate();
+        Solution p2 = randomGeneratingOperator.generate();
+        for (int i = 0; i < 100; ++i) {
+            List<Solution> offspring = operator.crossover(p1, p2);
+            /* The distance of each parent plus the change equals the sum of all edges of its offspring. */
+            for (Solution solution : offspring) {
+                Solution copy = new Solution(solution.getClonedGene(), false);
+                Assert.assertEquals(copy.getDistance(), solution.getDistance(), 0);
+            }
+            p1 = offspring.get(0);
+            p2 = offspring.get(1);
+        }
+    }
+
     @Test
     public void testForComparison() {
         for (int i = 0; i < 5; ++i) {
@@ -3,6 +3,9 @@ package org.pursuemoon.solvetsp.ga.operator;
 import org.junit.Assert;
 import org.junit.Test;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
+
+import java.util.Random;
 
 public class TestMutationOperator {
 
@@ -29,4 +32,36 @@ public class TestMutationOperator {
         }
         Assert.assertNotEquals(oldSolution, newSolution);
     }
+
+    @Test
+    public void testInPlaceSameAsAllocating() {
+        InPlaceMutationOperator[] operators = {new MultiPointMutationOperator(100, 10),
+                new RangeReversingMutationOperator(100, 100)};
+        Solution solution = randomGeneratingOperator.generate();
+        int[] gene = solution.getClonedGene();
+        for (InPlaceMutationOperator operator : operators) {
+            TspSolver.bindRandom(new Random(5));
+            Solution mutated = operator.mutate(solution);
+            TspSolver.bindRandom(new Random(5));
+            int[] offspring = new int[gene.length];
+            operator.mutate(gene, offspring);
+            Assert.assertEquals(mutated, Solution.wrap(offspring));
+            Assert.assertArrayEquals(solution.getClonedGene(), gene);
+        }
+    }
+
+    @Test
+    public void testDeltaDistance() {
+        InPlaceMutationOperator[] operators = {new MultiPointMutationOperator(100, 10),
+                new RangeReversingMutationOperator(100, 100)};
+        for (InPlaceMutationOperator operator : operators) {
+            Solution solution = randomGeneratingOperator.generate();
+            for (int i = 0; i < 200; ++i) {
+                solution = operator.mutate(solution);
+                /* The distance of the parent plus the change equals the sum of all edges. */
+                Solution copy = new Solution(solution.getClonedGene(), false);
+                Assert.assertEquals(copy.getDistance(), solution.getDistance(), 0);
+            }
+        }
+    }
 }
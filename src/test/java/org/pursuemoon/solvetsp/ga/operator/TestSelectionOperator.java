@@ -3,6 +3,8 @@ package org.pursuemoon.solvetsp.ga.operator;
 import org.junit.Assert;
 import org.junit.Test;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspSolver;
+import org.pursuemoon.solvetsp.util.RandomStream;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -41,4 +43,84 @@ public class TestSelectionOperator {
         }
         Assert.assertTrue(yes >= no);
     }
+
+    @Test
+    public void testRouletteByIndices() {
+        RouletteSelectionOperator operation = new RouletteSelectionOperator(100);
+        double[] fitness = {1, 0, 3, 6, -1};
+        int[] counts = countSelected(operation, fitness, 4, 200000);
+        Assert.assertEquals(0, counts[1]);
+        Assert.assertEquals(0, counts[4]);
+        for (int i = 0; i < 4; ++i) {
+            Assert.assertEquals(fitness[i] / 10, counts[i] / 200000.0, 0.005);
+        }
+    }
+
+    @Test
+    public void testTournamentSelectionOperator() {
+        double[] fitness = {4, 1, 3, 2};
+        /* The best of k individuals of rank r (from 1) is selected with a chance of (r^k - (r-1)^k) / n^k. */
+        int[] counts = countSelected(new TournamentSelectionOperator(100, 2), fitness, 4, 160000);
+        double[] expected = {7 / 16.0, 1 / 16.0, 5 / 16.0, 3 / 16.0};
+        for (int i = 0; i < fitness.length; ++i) {
+            Assert.assertEquals(expected[i], counts[i] / 160000.0, 0.005);
+        }
+
+        /* A tournament of one individual is a uniform selection. */
+        counts = countSelected(new TournamentSelectionOperator(100, 1), fitness, 4, 160000);
+        for (int count : counts) {
+            Assert.assertEquals(0.25, count / 160000.0, 0.005);
+        }
+
+        try {
+            new TournamentSelectionOperator(100, 0);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal tournament size"));
+        }
+    }
+
+    @Test
+    public void testLinearRankSelectionOperator() {
+        /* Of the same fitness, the one of the smaller index is better, so the ranks from the worst are as follows. */
+        double[] fitness = {5, 1, 1, 0.5, 9};
+        int n = fitness.length, times = 200000;
+        int[] ranks = {3, 2, 1, 0, 4};
+        for (double pressure : new double[] {1, 1.5, 2}) {
+            int[] counts = countSelected(new LinearRankSelectionOperator(100, pressure), fitness, n, times);
+            for (int i = 0; i < n; ++i) {
+                int r = ranks[i];
+                double expected = (2 * r * pressure / 2 + 2 * (n - 1 - r) * (1 - pressure / 2) + 1) / (n * n);
+                Assert.assertEquals(expected, (double) counts[i] / times, 0.005);
+            }
+        }
+
+        /* The list is selected in the same way as its fitness. */
+        List<Solution> originalList = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            originalList.add(randomGeneratingOperator.generate());
+        }
+        List<Solution> sList = new LinearRankSelectionOperator(100, 2).select(originalList, 1000);
+        Assert.assertEquals(1000, sList.size());
+        Assert.assertTrue(originalList.containsAll(sList));
+
+        try {
+            new LinearRankSelectionOperator(100, 2.5);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Illegal selection pressure"));
+        }
+    }
+
+    /** Counts the times each of the first {@code count} individuals is selected, with a seeded random stream. */
+    private static int[] countSelected(IndexSelectionOperator operator, double[] fitness, int count, int times) {
+        TspSolver.bindRandom(new RandomStream(17));
+        int[] selected = new int[times + 1];
+        operator.select(fitness, count, times, selected, 1);
+        int[] counts = new int[fitness.length];
+        for (int i = 1; i <= times; ++i) {
+            counts[selected[i]]++;
+        }
+        return counts;
+    }
 }
@@ -0,0 +1,43 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestAliasTable {
+
+    @Test
+    public void testDistribution() {
+        double[] weights = {1, 0, 3, 6, 0.5, 9.5};
+        AliasTable aliasTable = new AliasTable(weights);
+        Random random = new Random(7);
+        int times = 200000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < times; ++i) {
+            counts[aliasTable.sample(random)]++;
+        }
+        Assert.assertEquals(0, counts[1]);
+        for (int i = 0; i < weights.length; ++i) {
+            Assert.assertEquals(weights[i] / 20, (double) counts[i] / times, 0.005);
+        }
+    }
+
+    @Test
+    public void testSingleWeight() {
+        AliasTable aliasTable = new AliasTable(new double[] {0.3});
+        Assert.assertEquals(0, aliasTable.sample(new Random(1)));
+    }
+
+    @Test
+    public void testIllegalWeights() {
+        for (double[] weights : new double[][] {{}, {0, 0}, {1, -1}, {1, Double.NaN}}) {
+            try {
+                new AliasTable(weights);
+                Assert.fail();
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getMessage().startsWith("Illegal"));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspInstance;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.MappedDistanceMatrix;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
+import org.pursuemoon.solvetsp.util.geometry.ExplicitPoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+public class TestBinaryInstanceFile {
+
+    private static final String relativeFullDir = "tsp_test/test_EUC_2D/a280/";
+    private static final String relativeTriangularDir = "tsp_test/test_EUC_2D/pr2392/";
+    private static final String relativeGeoDir = "tsp_test/test_GEO/gr96/";
+    private static final String relativeExplicitDir = "tsp_explicit/";
+
+    @Test
+    public void testFullMatrixRoundTrip() throws IOException {
+        checkRoundTrip(relativeFullDir, "a280", MappedDistanceMatrix.Layout.FULL);
+    }
+
+    @Test
+    public void testTriangularMatrixRoundTrip() throws IOException {
+        checkRoundTrip(relativeTriangularDir, "pr2392", MappedDistanceMatrix.Layout.TRIANGULAR);
+    }
+
+    @Test
+    public void testGeoRoundTrip() throws IOException {
+        checkRoundTrip(relativeGeoDir, "gr96", MappedDistanceMatrix.Layout.FULL);
+    }
+
+    @Test
+    public void testExplicitRoundTrip() throws IOException {
+        checkRoundTrip(relativeExplicitDir, "eil51_upper_row", MappedDistanceMatrix.Layout.FULL);
+    }
+
+    @Test
+    public void testExternalMatrixRoundTrip() throws IOException {
+        File dir = Files.createTempDirectory("cache").toFile();
+        File file = new File(dir, "eil51.tsp.bin");
+        File parsedMatrixFile = new File(dir, "eil51.tmp");
+        try {
+            TspLibFile problem = TspLibParser.parseResource(relativeExplicitDir + "eil51_full_matrix.tsp", size -> {
+                try {
+                    return MappedDistanceMatrix.create(parsedMatrixFile, size, MappedDistanceMatrix.Layout.TRIANGULAR);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            checkRoundTrip(problem, null, file, "eil51", MappedDistanceMatrix.Layout.TRIANGULAR);
+            Assert.assertFalse(parsedMatrixFile.exists());
+            Assert.assertTrue(BinaryInstanceFile.matrixFileOf(file).isFile());
+        } finally {
+            for (File f : dir.listFiles()) {
+                Assert.assertTrue(f.delete());
+            }
+            Assert.assertTrue(dir.delete());
+        }
+    }
+
+    private static void checkRoundTrip(String dir, String name, MappedDistanceMatrix.Layout layout) throws IOException {
+        File file = File.createTempFile(name, ".tsp.bin");
+        try {
+            checkRoundTrip(TspLibParser.parseResource(dir + name + ".tsp"),
+                    DataExtractor.extractSolutionByResource(dir + name + ".opt.tour", true), file, name, layout);
+        } finally {
+            Assert.assertTrue(file.delete() || !file.exists());
+        }
+    }
+
+    private static void checkRoundTrip(TspLibFile problem, Solution optimalSolution, File file, String name,
+                                       MappedDistanceMatrix.Layout layout) throws IOException {
+        List<AbstractPoint> pList = problem.toPoints();
+        TspInstance original = TspInstance.of(name, pList, optimalSolution, DataExtractor.fitnessFunctionOf(1e-5));
+
+        BinaryInstanceFile.write(file, new long[] {100, 200, 30, 400}, problem, original, 1e-5);
+        Assert.assertNull(BinaryInstanceFile.read(file, new long[] {100, 201, 30, 400}));
+        Assert.assertNull(BinaryInstanceFile.read(file, new long[] {101, 200, 30, 400}));
+        /* A changed or added optimal tour makes the cache stale too. */
+        Assert.assertNull(BinaryInstanceFile.read(file, new long[] {100, 200, 31, 400}));
+        Assert.assertNull(BinaryInstanceFile.read(file, new long[] {100, 200, 30, 401}));
+        Assert.assertNull(BinaryInstanceFile.read(file, new long[] {100, 200, -1, -1}));
+        TspInstance loaded = BinaryInstanceFile.read(file, new long[] {100, 200, 30, 400});
+        Assert.assertNotNull(loaded);
+
+        Assert.assertEquals(name, loaded.getName());
+        int size = pList.size();
+        Assert.assertEquals(size, loaded.size());
+        for (int i = 0; i < size; ++i) {
+            if (pList.get(i) instanceof ExplicitPoint) {
+                Assert.assertTrue(loaded.getPoints().get(i) instanceof ExplicitPoint);
+            } else {
+                Assert.assertEquals(pList.get(i), loaded.getPoints().get(i));
+            }
+            Assert.assertEquals(pList.get(i).getOrder(), loaded.getPoints().get(i).getOrder());
+        }
+        Assert.assertEquals(original.getOptimalSolution(), loaded.getOptimalSolution());
+        Assert.assertEquals(original.getFitnessFunction().apply(12345d), loaded.getFitnessFunction().apply(12345d));
+
+        DistanceOracle distanceOracle = loaded.getDistanceOracle();
+        Assert.assertTrue(distanceOracle instanceof MappedDistanceMatrix);
+        Assert.assertEquals(layout, ((MappedDistanceMatrix) distanceOracle).getLayout());
+        DistanceOracle expected = original.getDistanceOracle();
+        int[] row = new int[size];
+        for (int i = 0; i < size; ++i) {
+            row = distanceOracle.row(i, row);
+            for (int j = 0; j < size; ++j) {
+                Assert.assertEquals(expected.distance(i, j), distanceOracle.distance(i, j));
+                Assert.assertEquals(expected.distance(i, j), row[j]);
+            }
+        }
+
+        CandidateLists a = original.getCandidateLists(), b = loaded.getCandidateLists();
+        Assert.assertEquals(a.getK(), b.getK());
+        for (int i = 0; i < size; ++i) {
+            for (int r = 0; r < a.getK(); ++r) {
+                Assert.assertEquals(a.get(i, r), b.get(i, r));
+            }
+        }
+        int[][] layers = original.getConvexHullLayers();
+        Assert.assertEquals(layers.length, loaded.getConvexHullLayers().length);
+        for (int l = 0; l < layers.length; ++l) {
+            Assert.assertArrayEquals(layers[l], loaded.getConvexHullLayers()[l]);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package org.pursuemoon.solvetsp.util;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
 import org.pursuemoon.solvetsp.util.geometry.ComputationalGeometryUtils;
 import org.pursuemoon.solvetsp.util.geometry.Euc2DPoint;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,4 +34,20 @@ public class TestComputationalGeometryUtils {
         List<Euc2DPoint> convexHull = ComputationalGeometryUtils.getConvexHull(pList);
         Assert.assertEquals(chList.size(), convexHull.size());
     }
+
+    @Test
+    public void testGetApproximateConvexHullLayers() {
+        List<AbstractPoint> pList = DataExtractor.extractPointsByResource("tsp_test/test_GEO/gr96/gr96.tsp");
+        DistanceStore store = DistanceStore.ofSize(pList.size());
+        DistanceStore.fill(store, PointArrays.of(pList));
+        List<List<AbstractPoint>> expected = ComputationalGeometryUtils.getConvexHullLayers(pList, 25);
+        int[][] layers = ComputationalGeometryUtils.getApproximateConvexHullLayers(store, 25);
+        Assert.assertEquals(expected.size(), layers.length);
+        for (int l = 0; l < layers.length; ++l) {
+            Assert.assertEquals(expected.get(l).size(), layers[l].length);
+            for (int t = 0; t < layers[l].length; ++t) {
+                Assert.assertSame(expected.get(l).get(t), pList.get(layers[l][t]));
+            }
+        }
+    }
 }
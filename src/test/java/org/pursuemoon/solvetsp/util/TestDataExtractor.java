@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.pursuemoon.solvetsp.ga.TspSolver;
 import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
 import org.pursuemoon.solvetsp.ga.Solution;
+import org.pursuemoon.solvetsp.ga.TspInstance;
 
 import java.io.*;
 import java.util.List;
@@ -72,7 +73,23 @@ public class TestDataExtractor {
     @Test
     public void testDefaultNextTsp() {
         DataExtractor dataExtractor = DataExtractor.instance;
-        List<Object> list = dataExtractor.getNextTsp();
-        Assert.assertEquals(list.size(), 6);
+        TspInstance instance = dataExtractor.getNextTsp();
+        Assert.assertNotNull(instance.getName());
+        Assert.assertEquals(instance.getPoints().size(), instance.getDistanceOracle().size());
+    }
+
+    @Test
+    public void testInstanceCache() {
+        DataExtractor dataExtractor = DataExtractor.instance;
+        TspInstance first = dataExtractor.getTspByIndex(0);
+        TspInstance second = dataExtractor.getTspByIndex(0);
+        Assert.assertSame(first, second);
+
+        TspInstanceCache cache = new TspInstanceCache(1);
+        TspInstance a = cache.get("a", () -> first);
+        Assert.assertSame(a, cache.get("a", () -> second));
+        cache.get("b", () -> second);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertSame(second, cache.get("a", () -> second));
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.util.distance.DistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.distance.FullDistanceMatrix;
+import org.pursuemoon.solvetsp.util.distance.OnTheFlyDistanceOracle;
+import org.pursuemoon.solvetsp.util.distance.TriangularDistanceMatrix;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestDistanceStore {
+
+    private static final String relativeEuc2dPointsDir = "tsp_test/test_EUC_2D/a280/a280.tsp";
+    private static final String relativeGeoPointsDir = "tsp_test/test_GEO/gr96/gr96.tsp";
+    private static final String relativeLargePointsDir = "tsp_test/test_EUC_2D/pr1002/pr1002.tsp";
+
+    @Test
+    public void testEuc2dOracles() {
+        checkOracles(DataExtractor.extractPointsByResource(relativeEuc2dPointsDir));
+    }
+
+    @Test
+    public void testGeoOracles() {
+        checkOracles(DataExtractor.extractPointsByResource(relativeGeoPointsDir));
+    }
+
+    @Test
+    public void testStoreOfSize() {
+        Assert.assertTrue(DistanceStore.ofSize(DistanceStore.MAX_FULL_MATRIX_SIZE) instanceof FullDistanceMatrix);
+        Assert.assertTrue(DistanceStore.ofSize(DistanceStore.MAX_FULL_MATRIX_SIZE + 1) instanceof TriangularDistanceMatrix);
+    }
+
+    @Test
+    public void testOnTheFlyRowCache() {
+        PointArrays points = PointArrays.of(DataExtractor.extractPointsByResource(relativeEuc2dPointsDir));
+        int size = points.size();
+        OnTheFlyDistanceOracle oracle = new OnTheFlyDistanceOracle(points, 4);
+        int[] buffer = new int[size];
+        /* A row missed once is calculated into the buffer, and the second miss caches it. */
+        Assert.assertSame(buffer, oracle.row(0, buffer));
+        Assert.assertSame(buffer, oracle.row(0, buffer));
+        int[] hot = oracle.row(0, buffer);
+        Assert.assertTrue(hot != buffer);
+
+        /* A full sweep doesn't evict the hot row. */
+        for (int i = 1; i < size; ++i) {
+            Assert.assertSame(buffer, oracle.row(i, buffer));
+        }
+        Assert.assertSame(hot, oracle.row(0, new int[size]));
+        for (int j = 0; j < size; ++j) {
+            Assert.assertEquals(oracle.distance(0, j), hot[j]);
+        }
+    }
+
+    @Test
+    public void testParallelFill() {
+        List<AbstractPoint> pList = DataExtractor.extractPointsByResource(relativeLargePointsDir);
+        int size = pList.size();
+        PointArrays points = PointArrays.of(pList);
+        DistanceStore full = new FullDistanceMatrix(size);
+        DistanceStore triangular = new TriangularDistanceMatrix(size);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DistanceStore.fill(full, points, pool);
+            DistanceStore.fill(triangular, points, pool);
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                int d = (i == j ? 0 : (int) pList.get(i).distanceTo(pList.get(j)));
+                Assert.assertEquals(d, full.distance(i, j));
+                Assert.assertEquals(d, triangular.distance(i, j));
+            }
+        }
+    }
+
+    private static void checkOracles(List<AbstractPoint> pList) {
+        int size = pList.size();
+        PointArrays points = PointArrays.of(pList);
+        DistanceStore full = new FullDistanceMatrix(size);
+        DistanceStore triangular = new TriangularDistanceMatrix(size);
+        DistanceStore.fill(full, points);
+        DistanceStore.fill(triangular, points);
+        DistanceOracle onTheFly = new OnTheFlyDistanceOracle(points, 4);
+        DistanceOracle[] oracles = {full, triangular, onTheFly};
+        int[] buffer = new int[size];
+        for (DistanceOracle oracle : oracles) {
+            for (int i = 0; i < size; ++i) {
+                Assert.assertEquals(0, oracle.distance(i, i));
+                int[] row = oracle.row(i, buffer);
+                for (int j = 0; j < size; ++j) {
+                    if (i == j) continue;
+                    int d = (int) pList.get(i).distanceTo(pList.get(j));
+                    Assert.assertEquals(d, oracle.distance(i, j));
+                    Assert.assertEquals(d, row[j]);
+                }
+            }
+        }
+    }
+}
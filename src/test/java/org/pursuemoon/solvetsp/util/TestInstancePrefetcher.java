@@ -0,0 +1,87 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.ga.TspInstance;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class TestInstancePrefetcher {
+
+    private static List<Integer> firstIndices(int count) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, DataExtractor.instance.getTestDirList().size()); ++i) {
+            indices.add(i);
+        }
+        return indices;
+    }
+
+    @Test
+    public void testTakeAll() {
+        DataExtractor dataExtractor = DataExtractor.instance;
+        List<Integer> indices = firstIndices(6);
+        InstancePrefetcher prefetcher = new InstancePrefetcher(dataExtractor, indices, 2,
+                InstancePrefetcher.DEFAULT_MEMORY_BUDGET, 2);
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < indices.size(); ++i) {
+            Assert.assertTrue(prefetcher.getInFlight() <= 2);
+            TspInstance instance = prefetcher.take();
+            Assert.assertNotNull(instance);
+            Assert.assertTrue(names.add(instance.getName()));
+        }
+        Assert.assertNull(prefetcher.take());
+        Assert.assertEquals(0, prefetcher.getInFlight());
+
+        Set<String> expected = new HashSet<>();
+        for (int index : indices) {
+            expected.add(dataExtractor.getTspByIndex(index).getName());
+        }
+        Assert.assertEquals(expected, names);
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        List<Integer> indices = firstIndices(3);
+        /* A budget of 1 byte is exceeded by any instance, so only one case is in flight at a time. */
+        InstancePrefetcher prefetcher = new InstancePrefetcher(DataExtractor.instance, indices, 3, 1, 2);
+        Assert.assertEquals(1, prefetcher.getInFlight());
+        for (int i = 0; i < indices.size(); ++i) {
+            TspInstance instance = prefetcher.take();
+            Assert.assertNotNull(instance);
+            Assert.assertTrue(InstancePrefetcher.estimateHeapBytes(instance) > 1);
+            Assert.assertTrue(prefetcher.getInFlight() <= 1);
+        }
+        Assert.assertNull(prefetcher.take());
+    }
+
+    @Test
+    public void testSmallCaseNotHeldBack() throws InterruptedException {
+        DataExtractor dataExtractor = DataExtractor.instance;
+        CountDownLatch largeLoading = new CountDownLatch(1), largeReleased = new CountDownLatch(1);
+        /* Case 1 stands for a large case, which is being loaded until it's released. */
+        InstancePrefetcher prefetcher = new InstancePrefetcher(index -> {
+            if (index == 1) {
+                largeLoading.countDown();
+                try {
+                    largeReleased.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return dataExtractor.getTspByIndex(index);
+        }, firstIndices(3), 3, InstancePrefetcher.DEFAULT_MEMORY_BUDGET, 3);
+        try {
+            Assert.assertEquals(dataExtractor.getTspByIndex(0).getName(), prefetcher.take().getName());
+            largeLoading.await();
+            Assert.assertEquals(dataExtractor.getTspByIndex(2).getName(), prefetcher.take().getName());
+        } finally {
+            largeReleased.countDown();
+        }
+        Assert.assertEquals(dataExtractor.getTspByIndex(1).getName(), prefetcher.take().getName());
+        Assert.assertNull(prefetcher.take());
+    }
+}
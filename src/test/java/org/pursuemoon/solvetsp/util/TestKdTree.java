@@ -0,0 +1,65 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.geometry.CandidateLists;
+import org.pursuemoon.solvetsp.util.geometry.KdTree;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.Random;
+
+public class TestKdTree {
+
+    private static final String relativeEuc2dPointsDir = "tsp_test/test_EUC_2D/pr1002/pr1002.tsp";
+
+    private PointArrays points = PointArrays.of(DataExtractor.extractPointsByResource(relativeEuc2dPointsDir));
+
+    @Test
+    public void testCandidateLists() {
+        KdTree kdTree = new KdTree(points);
+        int k = 8;
+        CandidateLists candidateLists = kdTree.candidateLists(k);
+        DistanceStore store = DistanceStore.ofSize(points.size());
+        DistanceStore.fill(store, points);
+        CandidateLists bruteForce = CandidateLists.of(store, k);
+        for (int i = 0; i < points.size(); ++i) {
+            for (int r = 0; r < k; ++r) {
+                /* Ties may be ordered differently, so distances are compared. */
+                Assert.assertEquals(store.distance(i, bruteForce.get(i, r)), store.distance(i, candidateLists.get(i, r)));
+            }
+        }
+    }
+
+    @Test
+    public void testNearestUnvisited() {
+        KdTree kdTree = new KdTree(points);
+        KdTree.Search search = kdTree.newSearch();
+        int size = points.size();
+        boolean[] visited = new boolean[size];
+        Random random = new Random(7);
+        int from = random.nextInt(size);
+        for (int t = 1; t < size; ++t) {
+            visited[from] = true;
+            search.visit(from);
+            int next = search.nearestUnvisited(from);
+            Assert.assertFalse(visited[next]);
+            double best = Double.MAX_VALUE;
+            for (int j = 0; j < size; ++j) {
+                if (!visited[j]) {
+                    best = Math.min(best, squaredDistance(from, j));
+                }
+            }
+            Assert.assertEquals(best, squaredDistance(from, next), 0);
+            from = next;
+        }
+        search.visit(from);
+        Assert.assertEquals(-1, search.nearestUnvisited(from));
+    }
+
+    private double squaredDistance(int i, int j) {
+        double dx = points.getFirst(i) - points.getFirst(j);
+        double dy = points.getSecond(i) - points.getSecond(j);
+        return dx * dx + dy * dy;
+    }
+}
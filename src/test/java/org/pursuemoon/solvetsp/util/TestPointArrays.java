@@ -0,0 +1,67 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.GeoPoint;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestPointArrays {
+
+    private static final String[] relativeGeoPointsDirs = {
+            "tsp_test/test_GEO/gr202/gr202.tsp",
+            "tsp_test/test_GEO/gr666/gr666.tsp",
+            "tsp_test/test_GEO/gr96/gr96.tsp",
+            "tsp_test/test_GEO/ulysses16/ulysses16.tsp",
+            "tsp_test/test_GEO/ulysses22/ulysses22.tsp"
+    };
+
+    private static final String relativeEuc2dPointsDir = "tsp_test/test_EUC_2D/pr2392/pr2392.tsp";
+
+    @Test
+    public void testGeoKernelsOnAllCases() {
+        for (String dir : relativeGeoPointsDirs) {
+            checkKernels(DataExtractor.extractPointsByResource(dir));
+        }
+    }
+
+    @Test
+    public void testGeoKernelsOnRandomPoints() {
+        Random random = new Random(20);
+        List<AbstractPoint> pList = new ArrayList<>();
+        for (int i = 0; i < 300; ++i) {
+            /* Degrees in TSPLIB DDD.MM form, some of which are near each other or nearly antipodal. */
+            double latitude = random.nextInt(180) - 90 + random.nextInt(60) / 100d;
+            double longitude = random.nextInt(360) - 180 + random.nextInt(60) / 100d;
+            pList.add(new GeoPoint(i + 1, latitude, longitude));
+            pList.add(new GeoPoint(i + 1, latitude, longitude + 0.01));
+            pList.add(new GeoPoint(i + 1, -latitude, (longitude > 0 ? longitude - 180 : longitude + 180)));
+        }
+        checkKernels(pList);
+    }
+
+    @Test
+    public void testEuc2dKernels() {
+        checkKernels(DataExtractor.extractPointsByResource(relativeEuc2dPointsDir));
+    }
+
+    private static void checkKernels(List<AbstractPoint> pList) {
+        int size = pList.size();
+        PointArrays points = PointArrays.of(pList);
+        int[] row = new int[size];
+        for (int i = 0; i < size; ++i) {
+            points.row(i, row);
+            Assert.assertEquals(0, row[i]);
+            for (int j = 0; j < size; ++j) {
+                if (i == j) continue;
+                int d = (int) pList.get(i).distanceTo(pList.get(j));
+                Assert.assertEquals(d, row[j]);
+                Assert.assertEquals(d, points.distance(i, j));
+            }
+        }
+    }
+}
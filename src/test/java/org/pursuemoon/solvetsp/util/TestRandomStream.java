@@ -0,0 +1,71 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.SplittableRandom;
+
+public class TestRandomStream {
+
+    @Test
+    public void testSameAsSplittableRandom() {
+        for (long seed : new long[] {0, 7, -42, Long.MAX_VALUE}) {
+            RandomStream stream = new RandomStream(seed);
+            SplittableRandom expected = new SplittableRandom(seed);
+            for (int i = 0; i < 1000; ++i) {
+                Assert.assertEquals(expected.nextLong(), stream.nextLong());
+                Assert.assertEquals(expected.nextInt(), stream.nextInt());
+                Assert.assertEquals(expected.nextInt(1 + i), stream.nextInt(1 + i));
+                Assert.assertEquals(expected.nextInt(64), stream.nextInt(64));
+                Assert.assertEquals(expected.nextDouble(), stream.nextDouble(), 0);
+                Assert.assertEquals(expected.nextBoolean(), stream.nextBoolean());
+            }
+
+            /* Split streams are the same too, and so are the streams they are split from. */
+            RandomStream split = stream.split();
+            SplittableRandom expectedSplit = expected.split();
+            for (int i = 0; i < 100; ++i) {
+                Assert.assertEquals(expectedSplit.nextLong(), split.nextLong());
+                Assert.assertEquals(expected.nextLong(), stream.nextLong());
+            }
+        }
+    }
+
+    @Test
+    public void testSetSeed() {
+        RandomStream stream = new RandomStream(3);
+        long first = stream.nextLong();
+        stream.split().nextLong();
+        stream.setSeed(3);
+        Assert.assertEquals(first, stream.nextLong());
+    }
+
+    @Test
+    public void testIllegalBound() {
+        try {
+            new RandomStream(1).nextInt(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("bound=0"));
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        RandomStream stream = new RandomStream(11).split();
+        stream.nextLong();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(stream);
+        }
+        RandomStream copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (RandomStream) in.readObject();
+        }
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertEquals(stream.nextLong(), copy.nextLong());
+        }
+        Assert.assertEquals(stream.split().nextLong(), copy.split().nextLong());
+    }
+}
@@ -0,0 +1,159 @@
+package org.pursuemoon.solvetsp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pursuemoon.solvetsp.util.distance.DistanceStore;
+import org.pursuemoon.solvetsp.util.distance.MappedDistanceMatrix;
+import org.pursuemoon.solvetsp.util.geometry.AbstractPoint;
+import org.pursuemoon.solvetsp.util.geometry.ExplicitPoint;
+import org.pursuemoon.solvetsp.util.geometry.PointArrays;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+public class TestTspLibParser {
+
+    private static TspLibFile parse(String text) throws IOException {
+        return TspLibParser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testHeaderLayouts() throws IOException {
+        TspLibFile file = parse("COMMENT : a comment: with colon\r\n" +
+                "NAME:test\r\n" +
+                "TYPE : TSP\r\n" +
+                "DIMENSION :3\r\n" +
+                "EDGE_WEIGHT_TYPE: GEO\r\n" +
+                "DISPLAY_DATA_TYPE: COORD_DISPLAY\r\n" +
+                "NODE_COORD_SECTION\r\n" +
+                "0001 90.00 0.00\r\n" +
+                " 2 -1.5e+01 +2.25E1\r\n" +
+                "\t3\t.5\t-0\r\n" +
+                "DISPLAY_DATA_SECTION\r\n" +
+                "1 1 1\r\n");
+        Assert.assertEquals("test", file.getName());
+        Assert.assertEquals("a comment: with colon", file.getHeader("COMMENT"));
+        Assert.assertEquals("GEO", file.getEdgeWeightType());
+        Assert.assertEquals(3, file.getDimension());
+        Assert.assertEquals(3, file.getNodeCount());
+        Assert.assertEquals(1, file.getId(0));
+        Assert.assertEquals(90d, file.getFirst(0), 0);
+        Assert.assertEquals(-15d, file.getFirst(1), 0);
+        Assert.assertEquals(22.5d, file.getSecond(1), 0);
+        Assert.assertEquals(0.5d, file.getFirst(2), 0);
+        Assert.assertEquals(3, file.toPoints().size());
+    }
+
+    @Test
+    public void testMissingDimensionAndEof() throws IOException {
+        StringBuilder sb = new StringBuilder("NAME: grow\nEDGE_WEIGHT_TYPE: EUC_2D\nNODE_COORD_SECTION\n");
+        for (int i = 1; i <= 100; ++i) {
+            sb.append(i).append(' ').append(i * 2).append(' ').append(i * 3).append('\n');
+        }
+        TspLibFile file = parse(sb.toString());
+        Assert.assertEquals(-1, file.getDimension());
+        Assert.assertEquals(100, file.getNodeCount());
+        Assert.assertEquals(300d, file.getSecond(99), 0);
+    }
+
+    @Test
+    public void testTour() throws IOException {
+        TspLibFile file = parse("NAME : t.opt.tour\nTYPE : TOUR\nDIMENSION : 4\nTOUR_SECTION\n3\n1 4\n2\n-1\nEOF\n");
+        Assert.assertArrayEquals(new int[]{3, 1, 4, 2}, file.getTour());
+        Assert.assertNull(file.getEdgeWeightType());
+        Assert.assertEquals(0, file.getNodeCount());
+    }
+
+    @Test
+    public void testNumbersSameAsParseDouble() throws IOException {
+        Random random = new Random(7);
+        String[] fixed = {"334.5909245845", "1.23456789012345678901", "123456789012345678", "4.9e-324",
+                "1e23", "9007199254740993", "0.000000000000000000000001", "2.00000e+02", "-0.0"};
+        StringBuilder sb = new StringBuilder("EDGE_WEIGHT_TYPE: EUC_2D\nNODE_COORD_SECTION\n");
+        int count = 0;
+        for (String s : fixed) {
+            sb.append(++count).append(' ').append(s).append(' ').append(s).append('\n');
+        }
+        for (int i = 0; i < 2000; ++i) {
+            String s = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(12) - 4));
+            sb.append(++count).append(' ').append(s).append(' ').append(random.nextInt(100000)).append('\n');
+        }
+        TspLibFile file = parse(sb.toString());
+        String[] lines = sb.toString().split("\n");
+        Assert.assertEquals(count, file.getNodeCount());
+        for (int i = 0; i < count; ++i) {
+            String[] tokens = lines[i + 2].split(" ");
+            Assert.assertEquals(Double.doubleToLongBits(Double.parseDouble(tokens[1])),
+                    Double.doubleToLongBits(file.getFirst(i)));
+            Assert.assertEquals(Double.doubleToLongBits(Double.parseDouble(tokens[2])),
+                    Double.doubleToLongBits(file.getSecond(i)));
+        }
+    }
+
+    @Test
+    public void testEdgeWeightFormats() throws IOException {
+        PointArrays expected = PointArrays.of(DataExtractor.extractPointsByResource("tsp_test/test_EUC_2D/eil51/eil51.tsp"));
+        for (String format : new String[]{"full_matrix", "upper_row", "lower_diag_row"}) {
+            TspLibFile file = TspLibParser.parseResource("tsp_explicit/eil51_" + format + ".tsp");
+            Assert.assertEquals("EXPLICIT", file.getEdgeWeightType());
+            Assert.assertEquals(format.toUpperCase(), file.getEdgeWeightFormat());
+            checkEdgeWeights(expected, file);
+        }
+    }
+
+    @Test
+    public void testMappedEdgeWeights() throws IOException {
+        PointArrays expected = PointArrays.of(DataExtractor.extractPointsByResource("tsp_test/test_EUC_2D/eil51/eil51.tsp"));
+        File matrixFile = File.createTempFile("eil51", ".matrix");
+        try {
+            TspLibFile file = TspLibParser.parseResource("tsp_explicit/eil51_lower_diag_row.tsp", size -> {
+                try {
+                    return MappedDistanceMatrix.create(matrixFile, size, MappedDistanceMatrix.Layout.TRIANGULAR);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Assert.assertTrue(file.getEdgeWeights() instanceof MappedDistanceMatrix);
+            Assert.assertEquals(4 * MappedDistanceMatrix.lengthOf(51, MappedDistanceMatrix.Layout.TRIANGULAR), matrixFile.length());
+            checkEdgeWeights(expected, file);
+        } finally {
+            Assert.assertTrue(matrixFile.delete() || !matrixFile.exists());
+        }
+    }
+
+    private static void checkEdgeWeights(PointArrays expected, TspLibFile file) {
+        DistanceStore edgeWeights = file.getEdgeWeights();
+        int size = expected.size();
+        Assert.assertEquals(size, edgeWeights.size());
+        List<AbstractPoint> pList = file.toPoints();
+        Assert.assertEquals(size, pList.size());
+        PointArrays points = PointArrays.of(pList);
+        Assert.assertEquals(PointArrays.Type.EXPLICIT, points.getType());
+        int[] row = new int[size];
+        for (int i = 0; i < size; ++i) {
+            Assert.assertTrue(pList.get(i) instanceof ExplicitPoint);
+            Assert.assertEquals(i + 1, pList.get(i).getOrder());
+            points.row(i, row);
+            for (int j = 0; j < size; ++j) {
+                Assert.assertEquals(expected.distance(i, j), edgeWeights.distance(i, j));
+                Assert.assertEquals(expected.distance(i, j), pList.get(i).distanceTo(pList.get(j)), 0);
+                Assert.assertEquals(expected.distance(i, j), row[j]);
+            }
+        }
+    }
+
+    @Test
+    public void testAllCases() {
+        for (String dir : DataExtractor.instance.getTestDirList()) {
+            String testDir = dir.substring(0, dir.length() - 1);
+            String name = testDir.substring(testDir.lastIndexOf("/") + 1);
+            int size = DataExtractor.extractPointsByResource(String.format("%s/%s.tsp", testDir, name)).size();
+            Assert.assertEquals(size, DataExtractor.extractSolutionByResource(
+                    String.format("%s/%s.opt.tour", testDir, name), true).getClonedGene().length);
+        }
+    }
+}